@@ -0,0 +1,48 @@
+/**
+ * enum direction contains all possible routes of moving
+ */
+public enum Direction {
+    N("North", -1, 0),
+    E("East", 0, 1),
+    S("South", 1, 0),
+    W("West", 0, -1),
+    NE("North-East", -1, 1),
+    SE("South-East", 1, 1),
+    SW("South-West", 1, -1),
+    NW("North-West", -1, -1);
+
+    private String textRepresentation;
+    private int dx;
+    private int dy;
+
+    private Direction(String text, int dx, int dy) {
+        this.textRepresentation = text;
+        this.dx = dx;
+        this.dy = dy;
+    }
+
+    /**
+     * one step of this direction on Ox axis
+     * @return -1, 0 or 1
+     */
+    public int getDx() {
+        return dx;
+    }
+
+    /**
+     * one step of this direction on Oy axis
+     * @return -1, 0 or 1
+     */
+    public int getDy() {
+        return dy;
+    }
+
+    /**
+     * we override our directions in a String way
+     * @return String versions
+     */
+    @Override
+    public String toString() {
+        return this.textRepresentation;
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * this class represent an exception for case with Duplicate insects
+ */
+public class DuplicateInsectException extends Exception {
+    /**
+     * the only instance, it has no stack trace, so a rejected scenario costs no stack walk
+     */
+    static final DuplicateInsectException INSTANCE = new DuplicateInsectException();
+
+    /**
+     * constructor of the instance, without a stack trace and suppressed exceptions
+     */
+    private DuplicateInsectException() {
+        super(null, null, false, false);
+    }
+
+    /**
+     * call message
+     * @return message about mistake
+     */
+    public String getMessage() {
+        return "Duplicate insects";
+    }
+}
@@ -0,0 +1,251 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/**
+ * InputParser reads tokens of the input straight from a ByteBuffer, which is a memory
+ * mapped file when it is opened with open. It replaces java.util.Scanner and fails in
+ * the same way: a token which is not an int gives InputMismatchException without a
+ * message, an int which does not fit gives InputMismatchException with the message of
+ * Integer.parseInt, and the end of input gives NoSuchElementException. Like Scanner in
+ * the en_US locale, ints may have a sign and "," group separators (1,000)
+ */
+class InputParser {
+    /**
+     * the end of input and a token which is not an int are common mistakes of scenarios,
+     * so they are thrown as cached instances without a stack trace
+     */
+    private static final NoSuchElementException END_OF_INPUT = new EndOfInput();
+    private static final InputMismatchException NOT_AN_INT = new NotAnInt(null);
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int position;
+
+    /**
+     * constructor of a parser over the remaining bytes of a buffer
+     * @param buffer - input, it is not copied
+     */
+    InputParser(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+    }
+
+    /**
+     * map a file into memory and create a parser over it
+     * @param file - name of the input file
+     * @return parser of the file
+     * @throws IOException if the file can not be read
+     */
+    static InputParser open(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            return new InputParser(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * check whether a byte separates tokens, the same ASCII characters as Character.isWhitespace
+     * @param b - byte of the input
+     * @return true for whitespace
+     */
+    private static boolean isWhitespace(int b) {
+        final int k28 = 28;
+        final int k31 = 31;
+        return b == ' ' || b >= '\t' && b <= '\r' || b >= k28 && b <= k31;
+    }
+
+    /**
+     * check whether bytes of the input are equal to a name
+     * @param buffer - input
+     * @param from - first byte
+     * @param to - end of bytes
+     * @param name - name to compare with
+     * @return true if they are equal
+     */
+    static boolean matches(ByteBuffer buffer, int from, int to, byte[] name) {
+        if (to - from != name.length) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (buffer.get(from + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * skip whitespace and find the next token
+     * @return token packed as its first byte << 32 | its end
+     */
+    long nextToken() {
+        while (position < limit && isWhitespace(buffer.get(position))) {
+            position++;
+        }
+        if (position == limit) {
+            throw END_OF_INPUT;
+        }
+        int from = position;
+        while (position < limit && !isWhitespace(buffer.get(position))) {
+            position++;
+        }
+        return (long) from << 32 | position;
+    }
+
+    /**
+     * read the next token as an int
+     * @return value of the token
+     */
+    int nextInt() {
+        int start = position;
+        long token = nextToken();
+        int from = (int) (token >>> 32);
+        int to = (int) token;
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        if (i == to || !isNumeral(i, to)) {
+            position = start;
+            throw NOT_AN_INT;
+        }
+        final int radix = 10;
+        long value = 0;
+        for (; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b != ',') {
+                value = value * radix + (b - '0');
+                if (value > (long) Integer.MAX_VALUE + 1) {
+                    break;
+                }
+            }
+        }
+        if (negative) {
+            value = -value;
+        }
+        if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+            throw new NotAnInt("For input string: \"" + withoutGroups(from, to) + "\"");
+        }
+        return (int) value;
+    }
+
+    /**
+     * check that bytes are digits, or digits in groups of three separated by "," after a
+     * first group of one to three digits, which does not start with 0
+     * @param from - first byte after the sign
+     * @param to - end of the token
+     * @return true if it is a numeral
+     */
+    private boolean isNumeral(int from, int to) {
+        boolean grouped = false;
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == ',') {
+                grouped = true;
+            } else if (b < '0' || b > '9') {
+                return false;
+            }
+        }
+        if (!grouped) {
+            return true;
+        }
+        final int group = 4;
+        int firstGroup = 0;
+        while (buffer.get(from + firstGroup) != ',') {
+            firstGroup++;
+        }
+        if (firstGroup == 0 || firstGroup > group - 1 || buffer.get(from) == '0') {
+            return false;
+        }
+        for (int i = from + firstGroup; i < to; i += group) {
+            if (i + group > to || buffer.get(i) != ',') {
+                return false;
+            }
+            for (int j = i + 1; j < i + group; j++) {
+                if (buffer.get(j) == ',') {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * text of a token without group separators, only for error messages
+     * @param from - first byte of the token
+     * @param to - end of the token
+     * @return text of the token
+     */
+    private String withoutGroups(int from, int to) {
+        StringBuilder text = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) != ',') {
+                text.append((char) buffer.get(i));
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * read a color from a token
+     * @param token - token from nextToken
+     * @return color
+     * @throws InvalidInsectColorException if the token is not a color
+     */
+    InsectColor toColor(long token) throws InvalidInsectColorException {
+        return InsectColor.toColor(buffer, (int) (token >>> 32), (int) token);
+    }
+
+    /**
+     * read a type from a token
+     * @param token - token from nextToken
+     * @return type
+     * @throws InvalidInsectTypeException if the token is not a type
+     */
+    InsectType toType(long token) throws InvalidInsectTypeException {
+        return InsectType.toType(buffer, (int) (token >>> 32), (int) token);
+    }
+
+    /**
+     * NoSuchElementException without a stack trace
+     */
+    private static final class EndOfInput extends NoSuchElementException {
+        /**
+         * the stack is not walked
+         * @return this exception
+         */
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * InputMismatchException without a stack trace
+     */
+    private static final class NotAnInt extends InputMismatchException {
+        /**
+         * constructor of an exception
+         * @param message - message of Integer.parseInt, or null as the one of Scanner
+         */
+        NotAnInt(String message) {
+            super(message);
+        }
+
+        /**
+         * the stack is not walked
+         * @return this exception
+         */
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
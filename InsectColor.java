@@ -0,0 +1,111 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * InsectColor is an enum, which is used to save all colors
+ * and check given colors
+ */
+public enum InsectColor {
+    RED {
+        /**
+         * case RED
+         * @return "Red" in the right way according to the task
+         */
+        @Override
+        public String toString() {
+            return "Red";
+        }
+    },
+    GREEN {
+        /**
+         * case GREEN
+         * @return "Blue" in the right way according to the task
+         */
+        @Override
+        public String toString() {
+            return "Green";
+        }
+    },
+    BLUE {
+        /**
+         * case BLUE
+         * @return "Blue" in the right way according to the task
+         */
+        @Override
+        public String toString() {
+            return "Blue";
+        }
+    },
+    YELLOW {
+        /**
+         * case YELLOW
+         * @return "Yellow" in the right way according to the task
+         */
+        @Override
+        public String toString() {
+            return "Yellow";
+        }
+    };
+
+    /**
+     * function toColor make the given String one of 4 colors and check the possibility of the action
+     * @param s is a String, which should be represented as a color
+     * @return colors from enum InsectColor
+     * @throws InvalidInsectColorException is a possible exception, which we check in this function
+     */
+    public static InsectColor toColor(String s) throws InvalidInsectColorException {
+        if (s.equals("Red")) {
+            return InsectColor.RED;
+        }
+        if (s.equals("Green")) {
+            return InsectColor.GREEN;
+        }
+        if (s.equals("Blue")) {
+            return InsectColor.BLUE;
+        }
+        if (s.equals("Yellow")) {
+            return InsectColor.YELLOW;
+        }
+
+        throw InvalidInsectColorException.INSTANCE;
+    }
+
+    /**
+     * all colors, values() would clone the array for every token
+     */
+    private static final InsectColor[] VALUES = values();
+
+    /**
+     * names of colors in ASCII, in the order of VALUES
+     */
+    private static final byte[][] NAMES = names();
+
+    /**
+     * encode names of all colors
+     * @return names in ASCII
+     */
+    private static byte[][] names() {
+        byte[][] names = new byte[VALUES.length][];
+        for (int i = 0; i < VALUES.length; i++) {
+            names[i] = VALUES[i].toString().getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+
+    /**
+     * function toColor make the given bytes one of 4 colors without creating a String
+     * @param buffer is a buffer with the input
+     * @param from is the first byte of the color
+     * @param to is the end of the color
+     * @return colors from enum InsectColor
+     * @throws InvalidInsectColorException is a possible exception, which we check in this function
+     */
+    public static InsectColor toColor(ByteBuffer buffer, int from, int to) throws InvalidInsectColorException {
+        for (int i = 0; i < NAMES.length; i++) {
+            if (InputParser.matches(buffer, from, to, NAMES[i])) {
+                return VALUES[i];
+            }
+        }
+        throw InvalidInsectColorException.INSTANCE;
+    }
+}
@@ -0,0 +1,100 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * enum which contains all possible types of insects
+ */
+public enum InsectType {
+    BUTTERFLY("Butterfly", new Movement(1, Direction.N, Direction.E, Direction.S, Direction.W)),
+    ANT("Ant", new Movement(1, Direction.N, Direction.E, Direction.S, Direction.W,
+            Direction.NE, Direction.SE, Direction.SW, Direction.NW)),
+    SPIDER("Spider", new Movement(1, Direction.NE, Direction.SE, Direction.SW, Direction.NW)),
+    GRASSHOPPER("Grasshopper", new Movement(2, Direction.N, Direction.E, Direction.S, Direction.W));
+
+    private String textRepresentation;
+    private final Movement movement;
+
+    private InsectType(String text, Movement movement) {
+        this.textRepresentation = text;
+        this.movement = movement;
+    }
+
+    /**
+     * getter for the way insects of this type move
+     * @return movement of this type
+     */
+    Movement getMovement() {
+        return movement;
+    }
+
+    /**
+     * we override our types in a String way, the same as the names of insect classes
+     * @return String versions
+     */
+    @Override
+    public String toString() {
+        return this.textRepresentation;
+    }
+
+    /**
+     * function toType make the given String one of 4 insect types and check the possibility of the action
+     * @param s is a String, which should be represented as a type
+     * @return types from enum InsectType
+     * @throws InvalidInsectTypeException is a possible exception, which we check in this function
+     */
+    public static InsectType toType(String s) throws InvalidInsectTypeException {
+        if (s.equals("Butterfly")) {
+            return InsectType.BUTTERFLY;
+        }
+        if (s.equals("Ant")) {
+            return InsectType.ANT;
+        }
+        if (s.equals("Spider")) {
+            return InsectType.SPIDER;
+        }
+        if (s.equals("Grasshopper")) {
+            return InsectType.GRASSHOPPER;
+        }
+
+        throw InvalidInsectTypeException.INSTANCE;
+    }
+
+    /**
+     * all types, values() would clone the array for every token
+     */
+    private static final InsectType[] VALUES = values();
+
+    /**
+     * names of types in ASCII, in the order of VALUES
+     */
+    private static final byte[][] NAMES = names();
+
+    /**
+     * encode names of all types
+     * @return names in ASCII
+     */
+    private static byte[][] names() {
+        byte[][] names = new byte[VALUES.length][];
+        for (int i = 0; i < VALUES.length; i++) {
+            names[i] = VALUES[i].toString().getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+
+    /**
+     * function toType make the given bytes one of 4 insect types without creating a String
+     * @param buffer is a buffer with the input
+     * @param from is the first byte of the type
+     * @param to is the end of the type
+     * @return types from enum InsectType
+     * @throws InvalidInsectTypeException is a possible exception, which we check in this function
+     */
+    public static InsectType toType(ByteBuffer buffer, int from, int to) throws InvalidInsectTypeException {
+        for (int i = 0; i < NAMES.length; i++) {
+            if (InputParser.matches(buffer, from, to, NAMES[i])) {
+                return VALUES[i];
+            }
+        }
+        throw InvalidInsectTypeException.INSTANCE;
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * this class represent an exception for Invalid board size
+ */
+public class InvalidBoardSizeException extends Exception {
+    /**
+     * the only instance, it has no stack trace, so a rejected scenario costs no stack walk
+     */
+    static final InvalidBoardSizeException INSTANCE = new InvalidBoardSizeException();
+
+    /**
+     * constructor of the instance, without a stack trace and suppressed exceptions
+     */
+    private InvalidBoardSizeException() {
+        super(null, null, false, false);
+    }
+
+    /**
+     * call message
+     * @return message about mistake
+     */
+    public String getMessage() {
+        return "Invalid board size";
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * this class represent an exception for Invalid entity position
+ */
+public class InvalidEntityPositionException extends Exception {
+    /**
+     * the only instance, it has no stack trace, so a rejected scenario costs no stack walk
+     */
+    static final InvalidEntityPositionException INSTANCE = new InvalidEntityPositionException();
+
+    /**
+     * constructor of the instance, without a stack trace and suppressed exceptions
+     */
+    private InvalidEntityPositionException() {
+        super(null, null, false, false);
+    }
+
+    /**
+     * call message
+     * @return message about mistake
+     */
+    public String getMessage() {
+        return "Invalid entity position";
+    }
+}
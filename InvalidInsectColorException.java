@@ -0,0 +1,24 @@
+/**
+ * this class represent an exception for Invalid insect color
+ */
+public class InvalidInsectColorException extends Exception {
+    /**
+     * the only instance, it has no stack trace, so a rejected scenario costs no stack walk
+     */
+    static final InvalidInsectColorException INSTANCE = new InvalidInsectColorException();
+
+    /**
+     * constructor of the instance, without a stack trace and suppressed exceptions
+     */
+    private InvalidInsectColorException() {
+        super(null, null, false, false);
+    }
+
+    /**
+     * call message
+     * @return message about mistake
+     */
+    public String getMessage() {
+        return "Invalid insect color";
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * this class represent an exception for Invalid number of insects
+ */
+public class InvalidNumberOfInsectsException extends Exception {
+    /**
+     * the only instance, it has no stack trace, so a rejected scenario costs no stack walk
+     */
+    static final InvalidNumberOfInsectsException INSTANCE = new InvalidNumberOfInsectsException();
+
+    /**
+     * constructor of the instance, without a stack trace and suppressed exceptions
+     */
+    private InvalidNumberOfInsectsException() {
+        super(null, null, false, false);
+    }
+
+    /**
+     * call message
+     * @return message about mistake
+     */
+    public String getMessage() {
+        return "Invalid number of insects";
+    }
+}
@@ -7,13 +7,37 @@
  * @since   2023-12-03
  */
 
-import java.io.File;
-import java.io.FileWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Scanner;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * Main is the main class of the task that
@@ -26,1803 +50,6271 @@ public class Main {
     private Board gameBoard;
 
     /**
-     * NewInsect is used to check given type of Insect
-     * @param insectType is one of 4 Insect types, which we determine in enum InsectType
-     * @param insectColor is one of 4 Insect colors, which we determine in enum InsectColor
-     * @param x first coordinate of entity location
-     * @param y second coordinate of entity location
-     * @return return null in nor suitable case
-     * @throws InvalidInsectTypeException is a type of exception which is used to catch not right Insect Type
-     * @throws InvalidInsectColorException is a type of exception which is used to catch not right Insect Color
+     * limits of a classic scenario: sizes of the board, numbers of insects and of food points
+     */
+    static final int MIN_BOARD = 4;
+    static final int MAX_BOARD = 1000;
+    static final int MAX_INSECTS = 16;
+    static final int MAX_FOOD_POINTS = 200;
+
+    /**
+     * number of insect types, a pair of a color and a type is one bit of an int
+     */
+    private static final int TYPE_COUNT = InsectType.values().length;
+
+    /**
+     * largest board of the swarm mode
+     */
+    static final int MAX_SWARM_BOARD = 1000000;
+
+    /**
+     * number of records of the journal, which are kept in memory, see MutationJournal
+     */
+    private static final int JOURNAL_RING = 1 << 20;
+
+    /**
+     * the number of entities, for which a board of the swarm mode reserves memory at once,
+     * larger boards grow while they are read
+     */
+    private static final int SWARM_RESERVED = 1 << 20;
+
+    /**
+     * main is the entry point: without arguments we simulate input.txt into output.txt,
+     * with "--batch" we simulate many scenarios, see BatchRunner, with "--swarm" we
+     * simulate one scenario of the swarm mode, see simulateSwarm
+     * @param args - empty, or "--batch", a directory or a manifest and optionally
+     * "--combined" with a file for all results, or "--swarm", optionally "--waves" to try
+     * WaveScheduler, and optionally input and output files,
+     * or "--ticks", see simulateTicks, or "--journal", "--replay" or "--rewind", see simulateJournal,
+     * or "--generate", see ScenarioGenerator, or "--serve" and "--client", see SimulationDaemon
+     * @throws IOException is necessary because in this function
+     * we check many Exceptions(IOException type), which may happened
      */
-    private static Insect newInsect(String insectType, String insectColor, int x, int y)
-            throws InvalidInsectTypeException, InvalidInsectColorException {
-        InsectColor color = InsectColor.toColor(insectColor);
-        InsectType type = InsectType.toType(insectType);
-        EntityPosition entityPosition = new EntityPosition(x, y);
-        if (type == InsectType.BUTTERFLY) {
-            return new Butterfly(entityPosition, color);
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchRunner.main(args);
+            return;
         }
-        if (type == InsectType.ANT) {
-            return new Ant(entityPosition, color);
+        if (args.length > 1 && args[0].equals("--ticks")) {
+            simulateTicks(args);
+            return;
         }
-        if (type == InsectType.SPIDER) {
-            return new Spider(entityPosition, color);
+        if (args.length > 1 && (args[0].equals("--journal") || args[0].equals("--replay"))
+                || args.length > 2 && args[0].equals("--rewind")) {
+            simulateJournal(args);
+            return;
         }
-        if (type == InsectType.GRASSHOPPER) {
-            return new Grasshopper(entityPosition, color);
+        if (args.length > 1 && args[0].equals("--serve")) {
+            SimulationDaemon.main(args);
+            return;
         }
-        return null;
+        if (args.length > 1 && args[0].equals("--client")) {
+            SimulationDaemon.client(args);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--generate")) {
+            ScenarioGenerator.main(args);
+            return;
+        }
+        boolean swarm = args.length > 0 && args[0].equals("--swarm");
+        boolean waves = swarm && args.length > 1 && args[1].equals("--waves");
+        int files = waves ? 2 : 1;
+        boolean withFiles = swarm && args.length == files + 2;
+        String inputFile = withFiles ? args[files] : "input.txt";
+        String outputFile = withFiles ? args[files + 1] : "output.txt";
+
+        InputParser parser = InputParser.open(inputFile);
+        ResultWriter writer = ResultWriter.open(outputFile);
+        if (swarm) {
+            simulateSwarm(parser, writer, waves);
+        } else {
+            simulate(parser, writer);
+        }
+        writer.close();
     }
 
     /**
-     * newInsect is the main function of Main class,
-     * where we read input file, check all scanned data,
+     * simulate is the main function of Main class,
+     * where we read input, check all scanned data,
      * add new Insects and foodPoints on our board, call all
      * necessary functions to simulate a game and add results
-     * to the output file.
-     * @param args
-     * @throws IOException is necessary because in this function
-     * we check many Exceptions(IOException type), which may happened
+     * to the writer. Nothing is shared between calls, so scenarios
+     * may be simulated in parallel.
+     * @param parser - input of one scenario
+     * @param writer - output of the same scenario
+     * @throws IOException if the writer fails
      */
     //@SuppressWarnings("checkstyle:MagicNumber")
-    public static void main(String[] args) throws IOException {
-        String inputFile = "input.txt";
-        String outputFile = "output.txt";
-
-        Scanner scanner = new Scanner(new File(inputFile));
-        FileWriter fileWriter = new FileWriter(outputFile);
-        PrintWriter writer = new PrintWriter(fileWriter);
-
+    static void simulate(InputParser parser, ResultWriter writer) throws IOException {
         try {
-            final int k4 = 4;
-            final int k10 = 1000;
-            final int k16 = 16;
-            final int k200 = 200;
-            int d = scanner.nextInt();
-            if (d < k4 || d > k10) {
-                throw new InvalidBoardSizeException();
-            }
-            Board board = new Board(d);
-            int n = scanner.nextInt();
-            if (n < 1 || n > k16) {
-                throw new InvalidNumberOfInsectsException();
-            }
-            int m = scanner.nextInt();
-            if (m < 1 || m > k200) {
-                throw new InvalidNumberOfFoodPointsException();
-            }
-            Map<String, BoardEntity> boardData = board.getBoardData();
-            for (int i = 0; i < n; i++) {
-                String scannedColor = scanner.next();
-                String scannedType = scanner.next();
-
-                int scannedXCoordinate = scanner.nextInt();
-                int scannedYCoordinate = scanner.nextInt();
-                if (scannedXCoordinate > d || scannedYCoordinate > d || scannedXCoordinate < 1
-                        || scannedYCoordinate < 1) {
-                    throw new InvalidEntityPositionException();
+            int d = parser.nextInt();
+            if (d < MIN_BOARD || d > MAX_BOARD) {
+                throw InvalidBoardSizeException.INSTANCE;
+            }
+            int n = parser.nextInt();
+            if (n < 1 || n > MAX_INSECTS) {
+                throw InvalidNumberOfInsectsException.INSTANCE;
+            }
+            int m = parser.nextInt();
+            if (m < 1 || m > MAX_FOOD_POINTS) {
+                throw InvalidNumberOfFoodPointsException.INSTANCE;
+            }
+            // entities are checked before the board is allocated, so a rejected scenario
+            // costs only its parsing: cells are marked in a bitset of this thread
+            int[] insectX = new int[n];
+            int[] insectY = new int[n];
+            InsectColor[] insectColors = new InsectColor[n];
+            InsectType[] insectTypes = new InsectType[n];
+            int[] foodX = new int[m];
+            int[] foodY = new int[m];
+            int[] foodValues = new int[m];
+            CellBitset cells = CellBitset.acquire(d * d);
+            try {
+                int seenPairs = 0;
+                for (int i = 0; i < n; i++) {
+                    long scannedColor = parser.nextToken();
+                    long scannedType = parser.nextToken();
+
+                    int scannedXCoordinate = parser.nextInt();
+                    int scannedYCoordinate = parser.nextInt();
+                    checkPosition(d, scannedXCoordinate, scannedYCoordinate);
+
+                    InsectColor color = parser.toColor(scannedColor);
+                    InsectType type = parser.toType(scannedType);
+                    seenPairs = checkInsect(d, scannedXCoordinate, scannedYCoordinate, color, type, seenPairs, cells);
+
+                    insectX[i] = scannedXCoordinate;
+                    insectY[i] = scannedYCoordinate;
+                    insectColors[i] = color;
+                    insectTypes[i] = type;
                 }
 
-                Insect insect = newInsect(scannedType, scannedColor, scannedXCoordinate, scannedYCoordinate);
-
-                for (int j = 0; j < i; j++) {
-                    Insect insectPrev = (Insect) boardData.get(Integer.toString(j));
-                    if (insect.color == insectPrev.color && insect.getClass() == insectPrev.getClass())  {
-                        throw new DuplicateInsectException();
-                    }
-                }
+                for (int i = 0; i < m; i++) {
+                    int scannedAmountOfFood = parser.nextInt();
+                    int scannedXCoordinate = parser.nextInt();
+                    int scannedYCoordinate = parser.nextInt();
+                    checkPosition(d, scannedXCoordinate, scannedYCoordinate);
+                    occupy(d, scannedXCoordinate, scannedYCoordinate, cells);
 
-                if (boardData.containsKey(scannedXCoordinate + "_" + scannedYCoordinate)) {
-                    throw new TwoEntitiesOnSamePositionException();
+                    foodX[i] = scannedXCoordinate;
+                    foodY[i] = scannedYCoordinate;
+                    foodValues[i] = scannedAmountOfFood;
                 }
-
-                board.addEntity(Integer.toString(i), insect);
-                board.addEntity(scannedXCoordinate + "_" + scannedYCoordinate, insect);
+            } finally {
+                cells.clear();
             }
 
+            Board board = new Board(d, n, m);
+            for (int i = 0; i < n; i++) {
+                board.addInsect(insectX[i], insectY[i], insectColors[i], insectTypes[i]);
+            }
             for (int i = 0; i < m; i++) {
-                int scannedAmountOfFood = scanner.nextInt();
-                int scannedXCoordinate = scanner.nextInt();
-                int scannedYCoordinate = scanner.nextInt();
-                if (scannedXCoordinate > d || scannedYCoordinate > d || scannedXCoordinate < 1
-                        || scannedYCoordinate < 1) {
-                    throw new InvalidEntityPositionException();
-                } else {
-                    EntityPosition entityPosition = new EntityPosition(scannedXCoordinate, scannedYCoordinate);
-                    FoodPoint foodPoint = new FoodPoint(entityPosition, scannedAmountOfFood);
-
-                    if (boardData.containsKey(scannedXCoordinate + "_" + scannedYCoordinate)) {
-                        throw new TwoEntitiesOnSamePositionException();
-                    }
+                board.addFood(foodX[i], foodY[i], foodValues[i]);
+            }
+
+            play(board, n, false, false, writer);
+        } catch (Exception e) {
+            writer.writeMessage(e.getMessage());
+        }
+    }
 
-                    board.addEntity(scannedXCoordinate + "_" + scannedYCoordinate, foodPoint);
+    /**
+     * simulate a classic scenario, which is given as values, see Simulation.Scenario. It is
+     * checked in the same order as input.txt, a null color or type is an invalid one
+     * @param d - size of the board
+     * @param n - number of insects
+     * @param colors - colors of the insects
+     * @param types - types of the insects
+     * @param insectCells - coordinates of the insects, x and y of each one
+     * @param m - number of food points
+     * @param foodPoints - amount, x and y of each food point
+     * @param writer - output of the scenario
+     * @throws Exception the first mistake of the scenario, as for its text, or IOException if the writer fails
+     */
+    static void simulate(int d, int n, InsectColor[] colors, InsectType[] types, int[] insectCells,
+                         int m, int[] foodPoints, ResultWriter writer) throws Exception {
+        if (d < MIN_BOARD || d > MAX_BOARD) {
+            throw InvalidBoardSizeException.INSTANCE;
+        }
+        if (n < 1 || n > MAX_INSECTS) {
+            throw InvalidNumberOfInsectsException.INSTANCE;
+        }
+        if (m < 1 || m > MAX_FOOD_POINTS) {
+            throw InvalidNumberOfFoodPointsException.INSTANCE;
+        }
+        final int fields = 3;
+        CellBitset cells = CellBitset.acquire(d * d);
+        try {
+            int seenPairs = 0;
+            for (int i = 0; i < n; i++) {
+                int x = insectCells[2 * i];
+                int y = insectCells[2 * i + 1];
+                checkPosition(d, x, y);
+                if (colors[i] == null) {
+                    throw InvalidInsectColorException.INSTANCE;
+                }
+                if (types[i] == null) {
+                    throw InvalidInsectTypeException.INSTANCE;
                 }
+                seenPairs = checkInsect(d, x, y, colors[i], types[i], seenPairs, cells);
             }
+            for (int i = 0; i < fields * m; i += fields) {
+                checkPosition(d, foodPoints[i + 1], foodPoints[i + 2]);
+                occupy(d, foodPoints[i + 1], foodPoints[i + 2], cells);
+            }
+        } finally {
+            cells.clear();
+        }
 
-            for (int i = 0; i < n; i++) {
-                Insect insect = (Insect) boardData.get(Integer.toString(i));
-                Direction bestDirection = insect.getBestDirection(boardData, d);
-                int eatenFood = insect.travelDirection(bestDirection, boardData, d);
+        Board board = new Board(d, n, m);
+        for (int i = 0; i < n; i++) {
+            board.addInsect(insectCells[2 * i], insectCells[2 * i + 1], colors[i], types[i]);
+        }
+        for (int i = 0; i < fields * m; i += fields) {
+            board.addFood(foodPoints[i + 1], foodPoints[i + 2], foodPoints[i]);
+        }
+        play(board, n, false, false, writer);
+    }
+
+    /**
+     * check that an entity of a classic scenario is on the board
+     * @param d - size of the board
+     * @param x first coordinate of the entity
+     * @param y second coordinate of the entity
+     * @throws InvalidEntityPositionException if it is outside
+     */
+    private static void checkPosition(int d, int x, int y) throws InvalidEntityPositionException {
+        if (x > d || y > d || x < 1 || y < 1) {
+            throw InvalidEntityPositionException.INSTANCE;
+        }
+    }
+
+    /**
+     * check an insect of a classic scenario after its position: its pair of color and type
+     * must be new, then its cell must be free
+     * @param d - size of the board
+     * @param x first coordinate of the insect
+     * @param y second coordinate of the insect
+     * @param color - color of the insect
+     * @param type - type of the insect
+     * @param seenPairs - bits of pairs of the insects before it
+     * @param cells - occupied cells
+     * @return bits of pairs with this insect
+     * @throws DuplicateInsectException if there is such an insect already
+     * @throws TwoEntitiesOnSamePositionException if the cell is occupied
+     */
+    private static int checkInsect(int d, int x, int y, InsectColor color, InsectType type, int seenPairs, CellBitset cells)
+            throws DuplicateInsectException, TwoEntitiesOnSamePositionException {
+        int pair = 1 << (color.ordinal() * TYPE_COUNT + type.ordinal());
+        if ((seenPairs & pair) != 0) {
+            throw DuplicateInsectException.INSTANCE;
+        }
+        occupy(d, x, y, cells);
+        return seenPairs | pair;
+    }
+
+    /**
+     * mark the cell of an entity of a classic scenario as occupied
+     * @param d - size of the board
+     * @param x first coordinate of the entity
+     * @param y second coordinate of the entity
+     * @param cells - occupied cells
+     * @throws TwoEntitiesOnSamePositionException if the cell is occupied already
+     */
+    private static void occupy(int d, int x, int y, CellBitset cells) throws TwoEntitiesOnSamePositionException {
+        if (!cells.add((x - 1) * d + y - 1)) {
+            throw TwoEntitiesOnSamePositionException.INSTANCE;
+        }
+    }
+
+    /**
+     * simulateSwarm reads a scenario of the swarm mode: the same input as in simulate, but
+     * every insect line starts with an integer id, "id color type x y". There are no limits
+     * on numbers of insects and food points, a board may have up to MAX_SWARM_BOARD cells
+     * on a side, and insects of the same color and type are allowed, only ids must differ,
+     * otherwise it is DuplicateInsectException. Every result line starts with the id.
+     * Ids are checked with a hash set and cells with the board storage, so the check is linear
+     * @param parser - input of one scenario
+     * @param writer - output of the same scenario
+     * @throws IOException if the writer fails
+     */
+    static void simulateSwarm(InputParser parser, ResultWriter writer) throws IOException {
+        simulateSwarm(parser, writer, false);
+    }
+
+    /**
+     * simulateSwarm as above, where the pool may be driven by WaveScheduler instead of
+     * SpeculativeEngine, the results are the same
+     * @param parser - input of one scenario
+     * @param writer - output of the same scenario
+     * @param waves - true to try WaveScheduler
+     * @throws IOException if the writer fails
+     */
+    static void simulateSwarm(InputParser parser, ResultWriter writer, boolean waves) throws IOException {
+        try {
+            Board board = readSwarm(parser, false);
+            play(board, board.getEntities().getInsectCount(), true, waves, writer);
+        } catch (Exception e) {
+            writer.writeMessage(e.getMessage());
+        }
+    }
+
+    /**
+     * simulateTicks runs the multi-tick mode on a scenario of the swarm mode and writes the
+     * state of every insect after all ticks: "id color type x y eaten". Throughput goes to
+     * the standard error stream
+     * @param args - "--ticks", number of ticks, optionally "--regrow" with the delay and the
+     * percent of regrowing food, and optionally input and output files
+     * @throws IOException if the files can not be opened
+     */
+    static void simulateTicks(String[] args) throws IOException {
+        int ticks = Integer.parseInt(args[1]);
+        int next = 2;
+        FoodRegrowth regrowth = FoodRegrowth.NONE;
+        final int regrowArgs = 3;
+        if (args.length >= next + regrowArgs && args[next].equals("--regrow")) {
+            regrowth = new FoodRegrowth(Integer.parseInt(args[next + 1]), Integer.parseInt(args[next + 2]));
+            next += regrowArgs;
+        }
+        String inputFile = args.length >= next + 2 ? args[next] : "input.txt";
+        String outputFile = args.length >= next + 2 ? args[next + 1] : "output.txt";
 
-                writer.println(insect.color + " " + insect + " "
-                        + bestDirection + " " + eatenFood);
+        InputParser parser = InputParser.open(inputFile);
+        ResultWriter writer = ResultWriter.open(outputFile);
+        try {
+            Board board = readSwarm(parser, true);
+            MultiTickEngine engine = new MultiTickEngine(board, regrowth);
+            engine.run(ticks);
+            EntityStore entities = board.getEntities();
+            for (int id = 0; id < entities.getInsectCount(); id++) {
+                writer.writeState(entities.getLabel(id), entities.getColor(id), entities.getType(id),
+                        entities.getX(id), entities.getY(id), engine.getEaten(id));
             }
+            System.err.println(engine);
         } catch (Exception e) {
-            writer.println(e.getMessage());
+            writer.writeMessage(e.getMessage());
         }
         writer.close();
+    }
 
+    /**
+     * simulateJournal works with journals of the swarm mode. "--journal file" simulates a
+     * scenario as simulateSwarm does and writes every change of the board to the journal
+     * file. "--replay file" reads the scenario and the journal and writes the same results
+     * again from the journal, without choosing directions, so the board of a mismatch can
+     * be inspected at any insect. "--rewind file k" replays the results of the insects before
+     * k, goes on to the end of the journal, rewinds the board to the move of the insect k and
+     * simulates the rest again, so it writes the same results as a plain run
+     * @param args - "--journal" or "--replay", the journal file, or "--rewind", the journal file
+     * and the id of an insect, and optionally input and output files
+     * @throws IOException if the files can not be opened
+     */
+    static void simulateJournal(String[] args) throws IOException {
+        boolean rewind = args[0].equals("--rewind");
+        int files = rewind ? 3 : 2;
+        Path journalFile = Paths.get(args[1]);
+        String inputFile = args.length == files + 2 ? args[files] : "input.txt";
+        String outputFile = args.length == files + 2 ? args[files + 1] : "output.txt";
+
+        InputParser parser = InputParser.open(inputFile);
+        ResultWriter writer = ResultWriter.open(outputFile);
+        try {
+            Board board = readSwarm(parser, false);
+            if (args[0].equals("--journal")) {
+                try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    MutationJournal journal = new MutationJournal(JOURNAL_RING, channel);
+                    board.setJournal(journal);
+                    play(board, board.getEntities().getInsectCount(), true, false, writer);
+                    journal.flush();
+                }
+            } else if (rewind) {
+                int insect = Integer.parseInt(args[2]);
+                MutationJournal journal = MutationJournal.read(journalFile);
+                JournalCursor cursor = JournalCursor.atStart(board, journal, true);
+                cursor.replayTo(insect, writer);
+                cursor.replayAll(null);
+                if (cursor.rewindTo(insect)) {
+                    cursor.truncate();
+                    board.setJournal(journal);
+                    playFrom(board, insect, board.getEntities().getInsectCount(), true, writer);
+                }
+            } else {
+                JournalCursor cursor = JournalCursor.atStart(board, MutationJournal.read(journalFile), true);
+                cursor.replayAll(writer);
+            }
+        } catch (Exception e) {
+            writer.writeMessage(e.getMessage());
+        }
+        writer.close();
     }
-}
 
-/**
- * InsectColor is an enum, which is used to save all colors
- * and check given colors
- */
-enum InsectColor {
-    RED {
-        /**
-         * case RED
-         * @return "Red" in the right way according to the task
-         */
-        @Override
-        public String toString() {
-            return "Red";
+    /**
+     * readSwarm reads and checks a scenario of the swarm mode, ids of insects become their labels
+     * in the entity store
+     * @param parser - input of one scenario
+     * @param incremental - true if entities will be put on the board after it is read,
+     * then the board gets a storage, which updates its indexes in place
+     * @return filled board
+     * @throws Exception one of the exceptions of the task, or of the parser
+     */
+    static Board readSwarm(InputParser parser, boolean incremental) throws Exception {
+        final int k4 = 4;
+        int d = parser.nextInt();
+        if (d < k4 || d > MAX_SWARM_BOARD) {
+            throw InvalidBoardSizeException.INSTANCE;
         }
-    },
-    GREEN {
-        /**
-         * case GREEN
-         * @return "Blue" in the right way according to the task
-         */
-        @Override
-        public String toString() {
-            return "Green";
+        int n = parser.nextInt();
+        if (n < 1) {
+            throw InvalidNumberOfInsectsException.INSTANCE;
         }
-    },
-    BLUE {
-        /**
-         * case BLUE
-         * @return "Blue" in the right way according to the task
-         */
-        @Override
-        public String toString() {
-            return "Blue";
+        int m = parser.nextInt();
+        if (m < 1) {
+            throw InvalidNumberOfFoodPointsException.INSTANCE;
         }
-    },
-    YELLOW {
-        /**
-         * case YELLOW
-         * @return "Yellow" in the right way according to the task
-         */
-        @Override
-        public String toString() {
-            return "Yellow";
+        long entities = (long) n + m;
+        StorageKind kind = incremental ? StorageKind.chooseIncremental(d, entities) : StorageKind.choose(d, entities);
+        Board board = new Board(d, kind, (int) Math.min(entities, SWARM_RESERVED));
+        LongIntHashMap seenIds = new LongIntHashMap(Math.min(n, SWARM_RESERVED));
+        for (int i = 0; i < n; i++) {
+            int id = parser.nextInt();
+            long scannedColor = parser.nextToken();
+            long scannedType = parser.nextToken();
+
+            int scannedXCoordinate = parser.nextInt();
+            int scannedYCoordinate = parser.nextInt();
+            if (scannedXCoordinate > d || scannedYCoordinate > d || scannedXCoordinate < 1
+                    || scannedYCoordinate < 1) {
+                throw InvalidEntityPositionException.INSTANCE;
+            }
+
+            InsectColor color = parser.toColor(scannedColor);
+            InsectType type = parser.toType(scannedType);
+
+            long idKey = (long) id - Integer.MIN_VALUE + 1;
+            if (seenIds.get(idKey) >= 0) {
+                throw DuplicateInsectException.INSTANCE;
+            }
+
+            if (board.isOccupied(scannedXCoordinate, scannedYCoordinate)) {
+                throw TwoEntitiesOnSamePositionException.INSTANCE;
+            }
+
+            int insect = board.addInsect(scannedXCoordinate, scannedYCoordinate, color, type);
+            board.getEntities().setLabel(insect, id);
+            seenIds.put(idKey, i);
+        }
+
+        for (int i = 0; i < m; i++) {
+            int scannedAmountOfFood = parser.nextInt();
+            int scannedXCoordinate = parser.nextInt();
+            int scannedYCoordinate = parser.nextInt();
+            if (scannedXCoordinate > d || scannedYCoordinate > d || scannedXCoordinate < 1
+                    || scannedYCoordinate < 1) {
+                throw InvalidEntityPositionException.INSTANCE;
+            } else {
+                if (board.isOccupied(scannedXCoordinate, scannedYCoordinate)) {
+                    throw TwoEntitiesOnSamePositionException.INSTANCE;
+                }
+
+                board.addFood(scannedXCoordinate, scannedYCoordinate, scannedAmountOfFood);
+            }
         }
-    };
+
+        return board;
+    }
 
     /**
-     * function toColor make the given String one of 4 colors and check the possibility of the action
-     * @param s is a String, which should be represented as a color
-     * @return colors from enum InsectColor
-     * @throws InvalidInsectColorException is a possible exception, which we check in this function
+     * play moves all insects of a filled board in the order of their ids and writes the results,
+     * a lot of insects are simulated with the pool when there is more than one core.
+     * WaveScheduler is tried only on request and without a journal, because moves of a wave
+     * are committed at the same time: its footprints are whole rays, so on real boards
+     * its waves hold about one insect and its plan costs more than it saves. Then the plan,
+     * or the reason why there is none, is reported to the standard error
+     * @param board - our board, insects have ids from 0 to n - 1
+     * @param n - number of insects
+     * @param labelled - true if labels of insects are written before results
+     * @param waves - true to try WaveScheduler before SpeculativeEngine
+     * @param writer - output of the scenario
+     * @throws IOException if the writer fails
      */
-    public static InsectColor toColor(String s) throws InvalidInsectColorException {
-        if (s.equals("Red")) {
-            return InsectColor.RED;
-        }
-        if (s.equals("Green")) {
-            return InsectColor.GREEN;
+    private static void play(Board board, int n, boolean labelled, boolean waves, ResultWriter writer)
+            throws IOException {
+        if (n >= SpeculativeEngine.MIN_INSECTS && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            Direction[] directions = new Direction[n];
+            int[] eaten = new int[n];
+            WaveScheduler scheduler = new WaveScheduler(ForkJoinPool.commonPool());
+            boolean planned = waves && board.getJournal() == null && WaveScheduler.isCheap(board, n);
+            if (planned && scheduler.plan(board, n) >= 2) {
+                System.err.println("waves: " + scheduler + ", used");
+                scheduler.run(board, directions, eaten);
+            } else {
+                if (waves) {
+                    System.err.println(planned ? "waves: " + scheduler + ", too narrow, not used"
+                            : board.getJournal() != null ? "waves: moves of a wave can not be journaled, not used"
+                            : "waves: footprints are too large to plan, not used");
+                }
+                new SpeculativeEngine(ForkJoinPool.commonPool()).run(board, n, directions, eaten);
+            }
+            for (int i = 0; i < n; i++) {
+                write(writer, labelled, board.getEntities(), i, directions[i], eaten[i]);
+            }
+            return;
         }
-        if (s.equals("Blue")) {
-            return InsectColor.BLUE;
+        if (waves) {
+            System.err.println("waves: not planned, insects are simulated one by one");
         }
-        if (s.equals("Yellow")) {
-            return InsectColor.YELLOW;
+        playFrom(board, 0, n, labelled, writer);
+    }
+
+    /**
+     * playFrom moves insects one by one, starting from a given id, for example after
+     * JournalCursor.rewindTo restored the board before that insect. The chosen direction
+     * of every insect goes to the journal of the board, if it has one
+     * @param board - our board, insects have ids from 0 to n - 1
+     * @param from - id of the first insect to move
+     * @param n - number of insects
+     * @param labelled - true if labels of insects are written before results
+     * @param writer - output of the scenario
+     * @throws IOException if the writer fails
+     */
+    static void playFrom(Board board, int from, int n, boolean labelled, ResultWriter writer) throws IOException {
+        int d = board.getSize();
+        MutationJournal journal = board.getJournal();
+        for (int i = from; i < n; i++) {
+            Insect insect = board.getInsect(i);
+            Direction bestDirection = insect.getBestDirection(board, d);
+            if (journal != null) {
+                journal.step(i, bestDirection);
+            }
+            int eatenFood = insect.travelDirection(bestDirection, board, d);
+
+            write(writer, labelled, board.getEntities(), i, bestDirection, eatenFood);
         }
+    }
 
-        throw new InvalidInsectColorException();
+    /**
+     * write the result of one insect, with its label if results are labelled
+     */
+    static void write(ResultWriter writer, boolean labelled, EntityStore entities, int i,
+                              Direction direction, int eatenFood) throws IOException {
+        if (labelled) {
+            writer.writeResult(entities.getLabel(i), entities.getColor(i), entities.getType(i), direction, eatenFood);
+        } else {
+            writer.writeResult(entities.getColor(i), entities.getType(i), direction, eatenFood);
+        }
     }
 }
 
 /**
- * enum which contains all possible types of insects
+ * SpeculativeEngine simulates insects in the same order as the sequential loop, but first
+ * chooses the best direction of every insect in parallel against the initial board.
+ * Then moves are committed one by one in the input order. The board counts removed food
+ * of every line, and an insect, whose row, column, diagonal or anti-diagonal lost food
+ * after the parallel phase, checks its direction before its own move. When all food is
+ * positive, eaten food can only make other directions worse, so the direction stays the
+ * best one while its own score is the same, otherwise the insect chooses again. So the
+ * results are the same as the ones of the sequential run, and the journal of the board,
+ * if it has one, gets the same records, because only the commit loop changes the board
  */
-enum InsectType {
-    BUTTERFLY,
-    ANT,
-    SPIDER,
-    GRASSHOPPER;
+class SpeculativeEngine {
+    /**
+     * number of insects from which the parallel phase pays off, when there is more than one core
+     */
+    static final int MIN_INSECTS = 512;
+
+    private final ForkJoinPool pool;
+    private int reevaluated;
 
     /**
-     * function toType make the given String one of 4 insect types and check the possibility of the action
-     * @param s is a String, which should be represented as a type
-     * @return types from enum InsectType
-     * @throws InvalidInsectTypeException is a possible exception, which we check in this function
+     * constructor of an engine
+     * @param pool - threads for the parallel phase
      */
-    public static InsectType toType(String s) throws InvalidInsectTypeException {
-        if (s.equals("Butterfly")) {
-            return InsectType.BUTTERFLY;
-        }
-        if (s.equals("Ant")) {
-            return InsectType.ANT;
-        }
-        if (s.equals("Spider")) {
-            return InsectType.SPIDER;
-        }
-        if (s.equals("Grasshopper")) {
-            return InsectType.GRASSHOPPER;
+    SpeculativeEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * simulate the first count insects of the board
+     * @param board - our board, insects have ids from 0 to count - 1
+     * @param count - number of insects
+     * @param directions - here we put the chosen direction of every insect
+     * @param eaten - here we put the amount of food eaten by every insect, during the run it
+     * keeps the food visible in the speculated direction
+     */
+    void run(Board board, int count, Direction[] directions, int[] eaten) {
+        int size = board.getSize();
+        EntityStore entities = board.getEntities();
+        long[] removals = new long[count];
+        board.prepareVisibleFood();
+        pool.submit(() -> IntStream.range(0, count).parallel().forEach(i -> {
+            Insect insect = board.getInsect(i);
+            removals[i] = board.getFoodRemovals(insect.getX(), insect.getY());
+            directions[i] = insect.getBestDirection(board, size);
+            eaten[i] = board.getDirectionSum(insect, directions[i]);
+        })).join();
+
+        boolean onlyPositive = board.hasOnlyPositiveFood();
+        MutationJournal journal = board.getJournal();
+        reevaluated = 0;
+        for (int i = 0; i < count; i++) {
+            Insect insect = board.getInsect(i);
+            if (board.getFoodRemovals(insect.getX(), insect.getY()) != removals[i]
+                    && !(onlyPositive && board.getDirectionSum(insect, directions[i]) == eaten[i])) {
+                directions[i] = insect.getBestDirection(board, size);
+                reevaluated++;
+            }
+            if (journal != null) {
+                journal.step(i, directions[i]);
+            }
+            eaten[i] = insect.travelDirection(directions[i], board, size);
         }
+    }
 
-        throw new InvalidInsectTypeException();
+    /**
+     * number of insects, which chose their direction again in the last run
+     * @return number of insects
+     */
+    int getReevaluated() {
+        return reevaluated;
     }
 }
 
 /**
- * enum direction contains all possible routes of moving
+ * WaveScheduler splits insects into waves by their ray footprints: the cells of all rays,
+ * which an insect may look along or travel along, and its own cell. An insect goes to the
+ * wave after the latest wave of an earlier insect, whose footprint shares a cell with its
+ * one. So insects of one wave do not depend on each other: their best directions are
+ * chosen in parallel, then their travels are committed one by one, because storages
+ * are not safe for parallel changes. Insects with overlapping footprints keep the
+ * input order, so the results are the same as the ones of the sequential run. Rows and
+ * columns always cross, so it finds real waves only on boards with few insects, and it
+ * runs only with "--swarm --waves", which reports its plan to the standard error
  */
-enum Direction {
-    N("North"),
-    E("East"),
-    S("South"),
-    W("West"),
-    NE("North-East"),
-    SE("South-East"),
-    SW("South-West"),
-    NW("North-West");
+class WaveScheduler {
+    /**
+     * the number of cells up to which the last wave of a cell is kept in an array
+     */
+    private static final long DENSE_CELLS = 1L << 24;
 
-    private String textRepresentation;
+    /**
+     * waves with less insects are scored without the pool
+     */
+    private static final int MIN_PARALLEL_WAVE = 64;
+
+    /**
+     * the largest number of footprint cells, which plan may walk
+     */
+    private static final long MAX_FOOTPRINT = 1L << 28;
+
+    private final ForkJoinPool pool;
+    private int[] order = new int[0];
+    private int[] waveStart = new int[1];
+    private int waveCount;
+    private int widestWave;
 
-    private Direction(String text) {
-        this.textRepresentation = text;
+    /**
+     * constructor of a scheduler
+     * @param pool - threads for choosing directions
+     */
+    WaveScheduler(ForkJoinPool pool) {
+        this.pool = pool;
     }
 
     /**
-     * we override our directions in a String way
-     * @return String versions
+     * check that footprints are small enough to plan, a footprint is up to 8 rays across the board
+     * @param board - our board
+     * @param count - number of insects
+     * @return true if plan does not walk more than MAX_FOOTPRINT cells
      */
-    @Override
-    public String toString() {
-        return this.textRepresentation;
+    static boolean isCheap(Board board, int count) {
+        final int rays = 8;
+        return (long) count * rays * board.getSize() <= MAX_FOOTPRINT;
     }
-}
 
-/**
- * class EntityPosition is necessary to store data about locations of different entities on the board
- */
-class EntityPosition {
-    private int x;
-    private int y;
+    /**
+     * split the first count insects of the board into waves
+     * @param board - our board, insects have ids from 0 to count - 1
+     * @param count - number of insects
+     * @return mean number of insects in a wave, 1 means that there is no parallelism
+     */
+    double plan(Board board, int count) {
+        int size = board.getSize();
+        EntityStore entities = board.getEntities();
+        int[] denseWaves = (long) size * size <= DENSE_CELLS ? new int[size * size] : null;
+        LongIntHashMap sparseWaves = denseWaves == null ? new LongIntHashMap(count) : null;
+        int[] waves = new int[count];
+        waveCount = 0;
+        for (int i = 0; i < count; i++) {
+            int x = entities.getX(i);
+            int y = entities.getY(i);
+            Movement movement = entities.getType(i).getMovement();
+            int wave = 1;
+            for (int pass = 0; pass < 2; pass++) {
+                for (int r = 0; r < movement.size(); r++) {
+                    int dx = movement.getDx(r);
+                    int dy = movement.getDy(r);
+                    for (int cx = x, cy = y; cx >= 1 && cy >= 1 && cx <= size && cy <= size; cx += dx, cy += dy) {
+                        if (pass == 0) {
+                            int last = denseWaves != null ? denseWaves[(cx - 1) * size + cy - 1]
+                                    : Math.max(sparseWaves.get(SparseGrid.key(cx, cy)), 0);
+                            wave = Math.max(wave, last + 1);
+                        } else if (denseWaves != null) {
+                            denseWaves[(cx - 1) * size + cy - 1] = wave;
+                        } else {
+                            sparseWaves.put(SparseGrid.key(cx, cy), wave);
+                        }
+                    }
+                }
+            }
+            waves[i] = wave;
+            waveCount = Math.max(waveCount, wave);
+        }
+        group(waves, count);
+        return count == 0 ? 1 : (double) count / waveCount;
+    }
 
     /**
-     * getter to private int x
-     * @return private x
+     * order insects by waves, inside a wave by their ids
+     * @param waves - wave of every insect, from 1
+     * @param count - number of insects
      */
-    public int getX() {
-        return x;
+    private void group(int[] waves, int count) {
+        waveStart = new int[waveCount + 1];
+        for (int i = 0; i < count; i++) {
+            waveStart[waves[i]]++;
+        }
+        widestWave = 0;
+        for (int w = 1; w <= waveCount; w++) {
+            widestWave = Math.max(widestWave, waveStart[w]);
+            waveStart[w] += waveStart[w - 1];
+        }
+        order = new int[count];
+        int[] next = Arrays.copyOf(waveStart, waveCount);
+        for (int i = 0; i < count; i++) {
+            order[next[waves[i] - 1]++] = i;
+        }
     }
 
     /**
-     * setter to private int x
-     * change original x to new x
+     * simulate the insects of the last plan
+     * @param board - our board, it has to be the one of the plan
+     * @param directions - here we put the chosen direction of every insect
+     * @param eaten - here we put the amount of food eaten by every insect
      */
-    public void setX(int x) {
-        this.x = x;
+    void run(Board board, Direction[] directions, int[] eaten) {
+        int size = board.getSize();
+        board.prepareVisibleFood();
+        for (int w = 0; w < waveCount; w++) {
+            int from = waveStart[w];
+            int to = waveStart[w + 1];
+            if (to - from >= MIN_PARALLEL_WAVE) {
+                pool.submit(() -> IntStream.range(from, to).parallel().forEach(k ->
+                        directions[order[k]] = board.getInsect(order[k]).getBestDirection(board, size))).join();
+            } else {
+                for (int k = from; k < to; k++) {
+                    directions[order[k]] = board.getInsect(order[k]).getBestDirection(board, size);
+                }
+            }
+            for (int k = from; k < to; k++) {
+                eaten[order[k]] = board.getInsect(order[k]).travelDirection(directions[order[k]], board, size);
+            }
+        }
     }
 
     /**
-     * getter to private int y
-     * @return private y
+     * number of waves of the last plan
+     * @return number of waves
      */
-    public int getY() {
-        return y;
+    int getWaveCount() {
+        return waveCount;
     }
 
     /**
-     * setter to private int y
-     * change original y to new y
+     * number of insects in the largest wave of the last plan
+     * @return size of the largest wave
      */
-    public void setY(int y) {
-        this.y = y;
+    int getWidestWave() {
+        return widestWave;
     }
 
     /**
-     * function which generate a position for new entity according to give x and y
-     * @param x first coordinate of entity location
-     * @param y second coordinate of entity location
+     * here we describe the parallelism, which the last plan found
+     * @return number of insects, waves, the largest and the mean wave
      */
-    public EntityPosition(int x, int y) {
-        this.x = x;
-        this.y = y;
+    @Override
+    public String toString() {
+        int count = order.length;
+        return count + " insects in " + waveCount + " waves, widest " + widestWave
+                + ", mean " + (waveCount == 0 ? 0 : count / waveCount);
     }
 }
 
 /**
- * BoardEntity is a super class for Insect and foodPoint classes
+ * FoodListener is told about every food point, which is eaten on a board
  */
-abstract class BoardEntity {
+interface FoodListener {
     /**
-     * here we create a new entityPosition of EntityPosition class,
-     * where we'll store location of our entity
+     * food was removed from a cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param value - amount of food, which was there
      */
-    protected EntityPosition entityPosition;
+    void foodRemoved(int x, int y, int value);
 }
 
 /**
- * FoodPoint is a class representing one of two types of entities
+ * FoodRegrowth is the rule of the multi-tick mode for eaten food: it grows again in the
+ * same cell after delay ticks, with percent of the amount which was eaten. If the cell is
+ * taken at that tick, the food tries again after another delay
  */
-class FoodPoint extends BoardEntity {
+final class FoodRegrowth {
     /**
-     * value is an Integer, where we save amount of food in this FoodPoint
+     * eaten food never grows again
      */
-    protected int value;
+    static final FoodRegrowth NONE = new FoodRegrowth(0, 0);
+
+    private final int delay;
+    private final int percent;
 
     /**
-     * this function is a constructor, which create a new FoodPoint
-     * @param position is a variable of EntityPosition type, where we store coordinates
-     * @param value amount of food in this FoodPoint
+     * constructor of a rule
+     * @param delay - number of ticks before food grows again, 0 for never
+     * @param percent - amount of new food in percents of the eaten one
      */
-    public FoodPoint(EntityPosition position, int value) {
-        this.entityPosition = position;
-        this.value = value;
+    FoodRegrowth(int delay, int percent) {
+        this.delay = delay;
+        this.percent = percent;
     }
-}
-
-/**
- * abstract class Insect represent one of BoardEntity entities
- */
-abstract class Insect extends BoardEntity {
-    protected InsectColor color;
 
     /**
-     * constructor for new insects of Insect type
-     * @param position position of a new insect
-     * @param color color of a new insect
+     * check whether food grows again at all
+     * @return true if it does
      */
-    public Insect(EntityPosition position, InsectColor color) {
-        this.entityPosition = position;
-        this.color = color;
+    boolean isEnabled() {
+        return delay > 0;
     }
 
     /**
-     * function which choose best direction by counting the maximum amount of eaten food
-     * @param board - our board, where we locate all food and insects
-     * @param boardSize - size of our board
-     * @return null because for this type of task I decide not to use this function
-     * */
-    public Direction getBestDirection(Map<String, BoardEntity> board, int boardSize) {
-        return null;
+     * getter for the delay
+     * @return number of ticks before food grows again
+     */
+    int getDelay() {
+        return delay;
     }
 
     /**
-     * this function count amount of food, which Insect will eat while following chosen direction
-     * @param dir chosen direction
-     * @param boarData our board
-     * @param boardSize size of our board
-     * @return  null because for this type of task I decide not to use this function
-     * */
-    public int travelDirection(Direction dir, Map<String, BoardEntity> boarData, int boardSize) {
-        return 0;
+     * amount of food, which grows instead of the eaten one
+     * @param eaten - amount of eaten food
+     * @return amount of new food
+     */
+    int regrow(int eaten) {
+        final int hundred = 100;
+        return (int) ((long) eaten * percent / hundred);
     }
 }
 
 /**
- * class Butterfly represent one of our Insect types.
- * Here we store all methods, which we need to work
- * with this type of Insect
+ * MultiTickEngine runs the multi-tick mode: in every tick each insect, in the order of ids,
+ * chooses its best direction, eats along it and lands at the end of its ray instead of
+ * leaving the board, then food grows again by a FoodRegrowth rule. All indexes of the board
+ * are updated in place by moveInsect, removeFood and regrowFood, so the cost of a tick
+ * depends on rays and changed cells, not on the size of the board. Regrowing food waits in
+ * a queue of parallel arrays, which is ordered by tick because the delay is the same for all
  */
-class Butterfly extends Insect implements OrthogonalMoving {
+class MultiTickEngine implements FoodListener {
+    private final Board board;
+    private final FoodRegrowth regrowth;
+    private final long[] eaten;
+    private int tick;
+
+    private int[] dueTicks = new int[16];
+    private int[] queueX = new int[16];
+    private int[] queueY = new int[16];
+    private int[] queueValue = new int[16];
+    private int head;
+    private int queued;
+
+    private long moves;
+    private long foodEaten;
+    private long foodRegrown;
+    private long elapsedNanos;
+    private long slowestTickNanos;
+
     /**
-     * we create a new butterfly by using information from super class Insect
-     * @param entityPosition position on the board
-     * @param color color of this particular butterfly
+     * constructor of an engine, it starts to listen to the food of the board
+     * @param board - filled board, it should have an incremental storage
+     * @param regrowth - rule for eaten food
      */
-    public Butterfly(EntityPosition entityPosition, InsectColor color) {
-        super(entityPosition, color);
+    MultiTickEngine(Board board, FoodRegrowth regrowth) {
+        this.board = board;
+        this.regrowth = regrowth;
+        this.eaten = new long[board.getEntities().getInsectCount()];
+        board.setFoodListener(this);
     }
 
     /**
-     * here we override method toString to get a String
-     * @return String version of BUTTERFLY
+     * run a number of ticks
+     * @param ticks - number of ticks
      */
-    @Override
-    public String toString() {
-        return "Butterfly";
+    void run(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            tick();
+        }
     }
 
     /**
-     * here we override method getBestDirection to choose which direction should this butterfly follow
-     * @param boardData - our board, where we locate all food and insects
-     * @param boardSize - size of our board
-     * @return direction to choose
+     * one tick: every insect moves, then due food grows again
      */
-    @Override
-    public Direction getBestDirection(Map<String, BoardEntity> boardData, int boardSize) {
-        Direction bestDirection = Direction.N;
-        int maxScore = 0;
-
-        int result1 = getOrthogonalDirectionVisibleValue(Direction.N, null, boardData, boardSize);
-        int result2 = getOrthogonalDirectionVisibleValue(Direction.E, null, boardData, boardSize);
-        int result3 = getOrthogonalDirectionVisibleValue(Direction.S, null, boardData, boardSize);
-        int result4 = getOrthogonalDirectionVisibleValue(Direction.W, null, boardData, boardSize);
-
-        if (result1 > maxScore) {
-            maxScore = result1;
-            bestDirection = Direction.N;
+    void tick() {
+        long start = System.nanoTime();
+        EntityStore entities = board.getEntities();
+        MutationJournal journal = board.getJournal();
+        for (int id = 0; id < eaten.length; id++) {
+            int x = entities.getX(id);
+            int y = entities.getY(id);
+            Movement movement = entities.getType(id).getMovement();
+            Direction direction = RayKernel.bestDirection(board, x, y, movement);
+            if (journal != null) {
+                journal.step(id, direction);
+            }
+            int stride = movement.getStride();
+            int food = RayKernel.travelAndLand(board, id, entities.getColor(id),
+                    direction.getDx() * stride, direction.getDy() * stride);
+            eaten[id] += food;
+            if (entities.getX(id) != x || entities.getY(id) != y) {
+                moves++;
+            }
         }
-        if (result2 > maxScore) {
-            maxScore = result2;
-            bestDirection = Direction.E;
+        tick++;
+        regrowDue();
+        long spent = System.nanoTime() - start;
+        elapsedNanos += spent;
+        slowestTickNanos = Math.max(slowestTickNanos, spent);
+    }
+
+    /**
+     * put back the food, whose delay is over, on cells which are empty now
+     */
+    private void regrowDue() {
+        while (queued > 0 && dueTicks[head] <= tick) {
+            int x = queueX[head];
+            int y = queueY[head];
+            int value = queueValue[head];
+            head = (head + 1) % dueTicks.length;
+            queued--;
+            if (board.getCellType(x, y) == BoardStorage.EMPTY) {
+                board.regrowFood(x, y, value);
+                foodRegrown++;
+            } else {
+                enqueue(x, y, value);
+            }
         }
-        if (result3 > maxScore) {
-            maxScore = result3;
-            bestDirection = Direction.S;
+    }
+
+    @Override
+    public void foodRemoved(int x, int y, int value) {
+        foodEaten++;
+        if (regrowth.isEnabled()) {
+            enqueue(x, y, regrowth.regrow(value));
         }
-        if (result4 > maxScore) {
-            maxScore = result4;
-            bestDirection = Direction.W;
+    }
+
+    /**
+     * add food to the end of the queue, the queue grows twice when it is full
+     */
+    private void enqueue(int x, int y, int value) {
+        if (queued == dueTicks.length) {
+            int length = queued * 2;
+            dueTicks = unwrap(dueTicks, length);
+            queueX = unwrap(queueX, length);
+            queueY = unwrap(queueY, length);
+            queueValue = unwrap(queueValue, length);
+            head = 0;
         }
+        int tail = (head + queued) % dueTicks.length;
+        dueTicks[tail] = tick + regrowth.getDelay();
+        queueX[tail] = x;
+        queueY[tail] = y;
+        queueValue[tail] = value;
+        queued++;
+    }
 
-        return bestDirection;
+    /**
+     * copy a full ring into a larger array, starting from its head
+     */
+    private int[] unwrap(int[] ring, int length) {
+        int[] copy = new int[length];
+        int first = ring.length - head;
+        System.arraycopy(ring, head, copy, 0, first);
+        System.arraycopy(ring, 0, copy, first, head);
+        return copy;
     }
 
     /**
-     * here we override method travelDirection to count maximum
-     * amount of food, which our butterfly can eat
-     * @param dir chosen direction
-     * @param boardData our board
-     * @param boardSize size of our board
+     * total food eaten by an insect during all ticks
+     * @param id - id of the insect
      * @return amount of eaten food
      */
-    @Override
-    public int travelDirection(Direction dir, Map<String, BoardEntity> boardData, int boardSize) {
-        int x = this.entityPosition.getX();
-        int y = this.entityPosition.getY();
-
-        int currentScore = 0;
-
-        int dx = 0;
-        int dy = 0;
-
-        switch (dir) {
-            case N:
-                dy = 0;
-                dx = -1;
-                break;
-            case E:
-                dy = 1;
-                dx = 0;
-                break;
-            case S:
-                dy = 0;
-                dx = 1;
-                break;
-            case W:
-                dy = -1;
-                dx = 0;
-                break;
-            default:
-                break;
-        }
-
-        y += dy;
-        x += dx;
-        while (y >= 1 && x >= 1 && y <= boardSize && x <= boardSize) {
-            BoardEntity entity = boardData.get(x + "_" + y);
+    long getEaten(int id) {
+        return eaten[id];
+    }
 
-            if (entity == null) {
-                y += dy;
-                x += dx;
-                continue;
-            }
+    /**
+     * here we describe the throughput of all ticks so far
+     * @return ticks, insect moves, eaten and regrown food, ticks and insect steps per second
+     */
+    @Override
+    public String toString() {
+        final double nanos = 1e9;
+        double seconds = Math.max(elapsedNanos, 1) / nanos;
+        return String.format("ticks=%d insects=%d moves=%d eaten=%d regrown=%d seconds=%.3f "
+                        + "ticks/s=%.1f insect-steps/s=%.0f slowest-tick-ms=%.3f",
+                tick, eaten.length, moves, foodEaten, foodRegrown, seconds, tick / seconds,
+                (double) tick * eaten.length / seconds, slowestTickNanos / 1e6);
+    }
+}
 
-            if (entity.getClass() == FoodPoint.class) {
-                FoodPoint foodPoint = (FoodPoint) entity;
+/**
+ * MutationJournal records every change of a board as compact binary records: the direction
+ * chosen by an insect, eaten and regrown food with its amount, removed and moved insects.
+ * A record is one to three longs, the kind of a record is in the highest bits of its first
+ * long and continuation longs have kind 0, so the journal is read in both directions.
+ * Records are put into a preallocated ring, so recording costs a few array writes. When the
+ * ring is full, the oldest records are written to the sink, if there is one, and dropped
+ */
+class MutationJournal {
+    static final int CONTINUATION = 0;
+    static final int STEP = 1;
+    static final int FOOD_REMOVED = 2;
+    static final int FOOD_PUT = 3;
+    static final int INSECT_REMOVED = 4;
+    static final int INSECT_MOVED = 5;
+
+    private static final int KIND_SHIFT = 61;
+    private static final long PAYLOAD = (1L << KIND_SHIFT) - 1;
+    private static final int COORDINATE_BITS = 21;
+    private static final int DIRECTION_BITS = 3;
+    private static final int SPILL_SIZE = 1 << 16;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final long[] ring;
+    private final int mask;
+    private final WritableByteChannel sink;
+    private final ByteBuffer spill;
 
-                currentScore += foodPoint.value;
-                boardData.remove(x + "_" + y);
-            }
+    /**
+     * positions of longs since the journal was created: the first one in the ring,
+     * the first one not written to the sink, and the next one
+     */
+    private long start;
+    private long flushed;
+    private long end;
 
-            if (entity instanceof Insect) {
-                Insect insect = (Insect) entity;
+    /**
+     * constructor of a journal, which keeps only its last records
+     * @param capacity - number of longs in the ring, it is rounded up to a power of two
+     */
+    MutationJournal(int capacity) {
+        this(capacity, null);
+    }
 
-                if (this.color != insect.color) {
-                    break;
-                }
-            }
+    /**
+     * constructor of a journal
+     * @param capacity - number of longs in the ring, it is rounded up to a power of two
+     * @param sink - where all records go, null to keep only the last records
+     */
+    MutationJournal(int capacity, WritableByteChannel sink) {
+        final int smallest = 4;
+        int length = Integer.highestOneBit(Math.max(capacity, smallest) * 2 - 1);
+        this.ring = new long[length];
+        this.mask = length - 1;
+        this.sink = sink;
+        this.spill = sink == null ? null : ByteBuffer.allocateDirect(SPILL_SIZE);
+    }
 
-            y += dy;
-            x += dx;
+    /**
+     * read a whole journal, which was written to a file
+     * @param file - journal file
+     * @return journal with all records of the file
+     * @throws IOException if the file can not be read
+     */
+    static MutationJournal read(Path file) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        int longs = bytes.remaining() / Long.BYTES;
+        MutationJournal journal = new MutationJournal(longs);
+        for (int i = 0; i < longs; i++) {
+            journal.ring[i] = bytes.getLong();
         }
+        journal.end = longs;
+        journal.flushed = longs;
+        return journal;
+    }
 
-        x = this.entityPosition.getX();
-        y = this.entityPosition.getY();
-        boardData.remove(x + "_" + y);
+    /**
+     * record the direction chosen by an insect, it comes before the changes of its move
+     * @param id - id of the insect
+     * @param direction - chosen direction
+     */
+    void step(int id, Direction direction) {
+        reserve(1);
+        put(STEP, (long) id << DIRECTION_BITS | direction.ordinal());
+    }
 
-        return currentScore;
+    /**
+     * record eaten food
+     * @param x first coordinate of the food point
+     * @param y second coordinate of the food point
+     * @param value - amount of food
+     */
+    void foodRemoved(int x, int y, int value) {
+        reserve(2);
+        put(FOOD_REMOVED, cell(x, y));
+        put(CONTINUATION, value & 0xFFFFFFFFL);
     }
 
     /**
-     * here we override getOrthogonalDirectionVisibleValue to
-     * imitate moving orthogonally for butterfly
-     * @param dir - direction
-     * @param entityPosition - coordinates of a butterfly
-     * @param boardData - our board
-     * @param boardSize - size of our board
-     * @return amount of food
+     * record food, which was put into an empty cell
+     * @param x first coordinate of the food point
+     * @param y second coordinate of the food point
+     * @param value - amount of food
      */
-    @Override
-    public int getOrthogonalDirectionVisibleValue(Direction dir, EntityPosition entityPosition,
-                                                  Map<String, BoardEntity> boardData, int boardSize) {
-        int x = this.entityPosition.getX();
-        int y = this.entityPosition.getY();
+    void foodPut(int x, int y, int value) {
+        reserve(2);
+        put(FOOD_PUT, cell(x, y));
+        put(CONTINUATION, value & 0xFFFFFFFFL);
+    }
 
-        int currentScore = 0;
+    /**
+     * record an insect, which left the board
+     * @param id - id of the insect
+     */
+    void insectRemoved(int id) {
+        reserve(1);
+        put(INSECT_REMOVED, id);
+    }
 
-        int dx = 0;
-        int dy = 0;
+    /**
+     * record a moved insect
+     * @param id - id of the insect
+     * @param fromX old first coordinate
+     * @param fromY old second coordinate
+     * @param x new first coordinate
+     * @param y new second coordinate
+     */
+    void insectMoved(int id, int fromX, int fromY, int x, int y) {
+        final int longs = 3;
+        reserve(longs);
+        put(INSECT_MOVED, id);
+        put(CONTINUATION, cell(fromX, fromY));
+        put(CONTINUATION, cell(x, y));
+    }
 
-        switch (dir) {
-            case N:
-                dy = 0;
-                dx = -1;
-                break;
-            case E:
-                dy = 1;
-                dx = 0;
-                break;
-            case S:
-                dy = 0;
-                dx = 1;
-                break;
-            case W:
-                dy = -1;
-                dx = 0;
-                break;
-            default:
-                break;
-        }
+    /**
+     * both coordinates of a cell in one payload
+     */
+    private static long cell(int x, int y) {
+        return (long) x << COORDINATE_BITS | y;
+    }
 
-        y += dy;
-        x += dx;
-        while (y >= 1 && x >= 1 && y <= boardSize && x <= boardSize) {
-            BoardEntity entity = boardData.get(x + "_" + y);
+    /**
+     * append one long
+     */
+    private void put(int kind, long payload) {
+        ring[(int) (end++ & mask)] = (long) kind << KIND_SHIFT | payload;
+    }
 
-            if (entity == null) {
-                y += dy;
-                x += dx;
-                continue;
+    /**
+     * make room for a record: the oldest records are written to the sink and dropped
+     * @param longs - length of the record
+     */
+    private void reserve(int longs) {
+        if (end + longs - start <= ring.length) {
+            return;
+        }
+        if (sink != null) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        }
+        while (end + longs - start > ring.length) {
+            start += length(kind(ring[(int) (start & mask)]));
+        }
+    }
 
-            if (entity.getClass() == FoodPoint.class) {
-                FoodPoint foodPoint = (FoodPoint) entity;
-
-                currentScore += foodPoint.value;
+    /**
+     * write all records, which are not in the sink yet, to the sink
+     * @throws IOException if the sink fails
+     */
+    void flush() throws IOException {
+        if (sink == null) {
+            return;
+        }
+        while (flushed < end) {
+            spill.clear();
+            while (flushed < end && spill.remaining() >= Long.BYTES) {
+                spill.putLong(ring[(int) (flushed++ & mask)]);
             }
+            spill.flip();
+            while (spill.hasRemaining()) {
+                sink.write(spill);
+            }
+        }
+    }
 
-            y += dy;
-            x += dx;
+    /**
+     * drop the records after a position, for example the undone ones before a suffix is
+     * simulated again
+     * @param position - new end of the journal, at the beginning of a record
+     * @throws IllegalStateException if those records are already in the sink or not in memory
+     */
+    void truncate(long position) {
+        if (position < start || sink != null && position < flushed) {
+            throw new IllegalStateException("records before " + position + " can not be dropped");
         }
+        end = Math.min(end, position);
+    }
 
-        return currentScore;
+    /**
+     * getter for the position of the oldest record, which is still in memory
+     * @return position in longs
+     */
+    long getStart() {
+        return start;
     }
 
     /**
-     * here we override method travelOrthogonally to count
-     * specific amount of eaten food by travelling orthogonally
-     * @param dir - direction
-     * @param entityPosition - coordinates of a butterfly
-     * @param color - color of a butterfly, which is important
-     *              for case with eating other insects
-     * @param boardData - our board
-     * @param boardSize - size of our board
-     * @return
+     * getter for the position after the last record
+     * @return position in longs
      */
-    @Override
-    public int travelOrthogonally(Direction dir, EntityPosition entityPosition, InsectColor color,
-                                  Map<String, BoardEntity> boardData, int boardSize) {
-        int x = this.entityPosition.getX();
-        int y = this.entityPosition.getY();
+    long getEnd() {
+        return end;
+    }
 
-        int currentScore = 0;
+    /**
+     * a long of the journal, it must be in memory
+     * @param position - position in longs
+     * @return the long
+     */
+    long get(long position) {
+        return ring[(int) (position & mask)];
+    }
 
-        int dx = 0;
-        int dy = 0;
+    /**
+     * kind of a record
+     * @param first - first long of the record
+     * @return kind, CONTINUATION if it is not a first long
+     */
+    static int kind(long first) {
+        return (int) (first >>> KIND_SHIFT);
+    }
 
-        switch (dir) {
-            case N:
-                dy = 0;
-                dx = -1;
-                break;
-            case E:
-                dy = 1;
-                dx = 0;
-                break;
-            case S:
-                dy = 0;
-                dx = 1;
-                break;
-            case W:
-                dy = -1;
-                dx = 0;
-                break;
+    /**
+     * payload of a long without its kind
+     * @param value - long of a record
+     * @return payload
+     */
+    static long payload(long value) {
+        return value & PAYLOAD;
+    }
+
+    /**
+     * number of longs of a record of a given kind
+     * @param kind - kind of the record
+     * @return length of the record
+     */
+    static int length(int kind) {
+        final int moved = 3;
+        switch (kind) {
+            case FOOD_REMOVED:
+            case FOOD_PUT:
+                return 2;
+            case INSECT_MOVED:
+                return moved;
             default:
-                break;
+                return 1;
         }
+    }
 
-        y += dy;
-        x += dx;
-        while (y >= 1 && x >= 1 && y <= boardSize && x <= boardSize) {
-            BoardEntity entity = boardData.get(x + "_" + y);
+    /**
+     * first coordinate of a cell payload
+     * @param cell - payload with a cell
+     * @return first coordinate
+     */
+    static int cellX(long cell) {
+        return (int) (payload(cell) >>> COORDINATE_BITS);
+    }
 
-            if (entity == null) {
-                y += dy;
-                x += dx;
-                continue;
-            }
+    /**
+     * second coordinate of a cell payload
+     * @param cell - payload with a cell
+     * @return second coordinate
+     */
+    static int cellY(long cell) {
+        return (int) (cell & ((1 << COORDINATE_BITS) - 1));
+    }
 
-            if (entity.getClass() == FoodPoint.class) {
-                FoodPoint foodPoint = (FoodPoint) entity;
+    /**
+     * id of the insect of a STEP record
+     * @param step - first long of the record
+     * @return id of the insect
+     */
+    static int stepInsect(long step) {
+        return (int) (payload(step) >>> DIRECTION_BITS);
+    }
 
-                currentScore += foodPoint.value;
-                boardData.remove(x + "_" + y);
-            }
+    /**
+     * direction of a STEP record
+     * @param step - first long of the record
+     * @return chosen direction
+     */
+    static Direction stepDirection(long step) {
+        return DIRECTIONS[(int) (step & ((1 << DIRECTION_BITS) - 1))];
+    }
+}
 
-            if (entity instanceof Insect) {
-                Insect insect = (Insect) entity;
+/**
+ * JournalCursor moves a board along its journal: forward, applying recorded changes and
+ * writing recorded results, or backward, undoing them. Directions are not chosen again,
+ * so a cursor goes to any insect much faster than a simulation. The board must be in the
+ * state of the position of the cursor, and its own journal is off while the cursor works
+ */
+class JournalCursor {
+    private final Board board;
+    private final MutationJournal journal;
+    private final boolean labelled;
+    private long position;
 
-                if (this.color != insect.color) {
-                    break;
-                }
-            }
+    /**
+     * constructor of a cursor
+     */
+    private JournalCursor(Board board, MutationJournal journal, boolean labelled, long position) {
+        this.board = board;
+        this.journal = journal;
+        this.labelled = labelled;
+        this.position = position;
+    }
 
-            y += dy;
-            x += dx;
+    /**
+     * cursor at the beginning of a journal, for a board which was just read
+     * @param board - board in the state before the first record
+     * @param journal - whole journal
+     * @param labelled - true if labels of insects are written before results
+     * @return cursor
+     * @throws IllegalStateException if the first records of the journal were dropped
+     */
+    static JournalCursor atStart(Board board, MutationJournal journal, boolean labelled) {
+        if (journal.getStart() != 0) {
+            throw new IllegalStateException("the journal does not start with the first record");
         }
+        return new JournalCursor(board, journal, labelled, 0);
+    }
 
-        x = this.entityPosition.getX();
-        y = this.entityPosition.getY();
-        boardData.remove(x + "_" + y);
+    /**
+     * cursor at the end of a journal, for the board which recorded it
+     * @param board - board in the state after the last record
+     * @param journal - journal of the board
+     * @param labelled - true if labels of insects are written before results
+     * @return cursor
+     */
+    static JournalCursor atEnd(Board board, MutationJournal journal, boolean labelled) {
+        return new JournalCursor(board, journal, labelled, journal.getEnd());
+    }
 
-        return currentScore;
+    /**
+     * getter for the position
+     * @return position in longs of the journal
+     */
+    long getPosition() {
+        return position;
     }
-}
 
-/**
- * class Ant represent one of 4 types of Insects
- */
-class Ant extends Insect implements OrthogonalMoving, DiagonalMoving {
     /**
-     * public Ant is used as a constructor to create new Insects of Ant type
-     * @param entityPosition - coordinates of this Ant
-     * @param color - color of this Ant
+     * drop the records of the journal after the cursor, so that a board, which records
+     * into the same journal, continues it from here
      */
-    public Ant(EntityPosition entityPosition, InsectColor color) {
-        super(entityPosition, color);
+    void truncate() {
+        journal.truncate(position);
     }
 
     /**
-     * function getBestDirection is used to choose the best direction based on maximum possible amount os eaten food
-     * @param boardData - our board, where we locate all food and insects
-     * @param boardSize - size of our board
-     * @return direction to choose
+     * undo records until the board is in the state before the move of an insect,
+     * then playFrom can simulate the rest again, after truncate if the board records
+     * @param insect - id of the insect
+     * @return true if the move was found, false if the cursor stopped at the oldest record in memory
      */
-    public Direction getBestDirection(Map<String, BoardEntity> boardData, int boardSize) {
-        Direction bestDirection = Direction.N;
-        int maxScore = 0;
+    boolean rewindTo(int insect) {
+        MutationJournal own = board.getJournal();
+        board.setJournal(null);
+        try {
+            while (position > journal.getStart()) {
+                long first;
+                do {
+                    first = journal.get(--position);
+                } while (MutationJournal.kind(first) == MutationJournal.CONTINUATION);
+                int kind = MutationJournal.kind(first);
+                if (kind == MutationJournal.STEP) {
+                    if (MutationJournal.stepInsect(first) == insect) {
+                        return true;
+                    }
+                    continue;
+                }
+                undo(kind, first);
+            }
+            return false;
+        } finally {
+            board.setJournal(own);
+        }
+    }
 
-        int result1 = getOrthogonalDirectionVisibleValue(Direction.N, null, boardData, boardSize);
-        int result2 = getOrthogonalDirectionVisibleValue(Direction.E, null, boardData, boardSize);
-        int result3 = getOrthogonalDirectionVisibleValue(Direction.S, null, boardData, boardSize);
-        int result4 = getOrthogonalDirectionVisibleValue(Direction.W, null, boardData, boardSize);
+    /**
+     * apply records until the move of an insect, which is not applied
+     * @param insect - id of the insect
+     * @param writer - where results of applied moves are written, null if nowhere
+     * @return true if the move was found, false if the cursor is at the end
+     * @throws IOException if the writer fails
+     */
+    boolean replayTo(int insect, ResultWriter writer) throws IOException {
+        MutationJournal own = board.getJournal();
+        board.setJournal(null);
+        try {
+            while (position < journal.getEnd()) {
+                long first = journal.get(position);
+                if (MutationJournal.kind(first) == MutationJournal.STEP && MutationJournal.stepInsect(first) == insect) {
+                    return true;
+                }
+                replayStep(writer);
+            }
+            return false;
+        } finally {
+            board.setJournal(own);
+        }
+    }
 
-        int result5 = getDiagonalDirectionVisibleValue(Direction.NW, null, boardData, boardSize);
-        int result6 = getDiagonalDirectionVisibleValue(Direction.NE, null, boardData, boardSize);
-        int result7 = getDiagonalDirectionVisibleValue(Direction.SW, null, boardData, boardSize);
-        int result8 = getDiagonalDirectionVisibleValue(Direction.SE, null, boardData, boardSize);
+    /**
+     * apply all records to the end of the journal
+     * @param writer - where results of applied moves are written, null if nowhere
+     * @throws IOException if the writer fails
+     */
+    void replayAll(ResultWriter writer) throws IOException {
+        replayTo(-1, writer);
+    }
 
-        if (result1 > maxScore) {
-            maxScore = result1;
-            bestDirection = Direction.N;
-        }
-        if (result2 > maxScore) {
-            maxScore = result2;
-            bestDirection = Direction.E;
-        }
-        if (result3 > maxScore) {
-            maxScore = result3;
-            bestDirection = Direction.S;
-        }
-        if (result4 > maxScore) {
-            maxScore = result4;
-            bestDirection = Direction.W;
-        }
-        if (result6 > maxScore) {
-            maxScore = result6;
-            bestDirection = Direction.NE;
-        }
-        if (result8 > maxScore) {
-            maxScore = result8;
-            bestDirection = Direction.SE;
-        }
-        if (result7 > maxScore) {
-            maxScore = result7;
-            bestDirection = Direction.SW;
+    /**
+     * apply one STEP record and the changes of its move
+     */
+    private void replayStep(ResultWriter writer) throws IOException {
+        long step = journal.get(position);
+        position += MutationJournal.length(MutationJournal.kind(step));
+        int eatenFood = 0;
+        while (position < journal.getEnd()) {
+            long first = journal.get(position);
+            int kind = MutationJournal.kind(first);
+            if (kind == MutationJournal.STEP) {
+                break;
+            }
+            if (kind == MutationJournal.FOOD_REMOVED) {
+                eatenFood += (int) journal.get(position + 1);
+            }
+            apply(kind, first);
+            position += MutationJournal.length(kind);
         }
-        if (result5 > maxScore) {
-            maxScore = result5;
-            bestDirection = Direction.NW;
+        if (writer != null && MutationJournal.kind(step) == MutationJournal.STEP) {
+            Main.write(writer, labelled, board.getEntities(), MutationJournal.stepInsect(step),
+                    MutationJournal.stepDirection(step), eatenFood);
         }
-
-        return bestDirection;
     }
 
-
     /**
-     * function travelDirection is used to count amount of eaten food on the chosen direction
-     * @param dir chosen direction
-     * @param boardData our board
-     * @param boardSize size of our board
-     * @return amount of food
+     * apply a record at the position of the cursor
      */
-    public int travelDirection(Direction dir, Map<String, BoardEntity> boardData, int boardSize) {
-        int x = this.entityPosition.getX();
-        int y = this.entityPosition.getY();
-
-        int currentScore = 0;
-
-        int dx = 0;
-        int dy = 0;
-
-        switch (dir) {
-            case N:
-                dy = 0;
-                dx = -1;
+    private void apply(int kind, long first) {
+        switch (kind) {
+            case MutationJournal.FOOD_REMOVED:
+                board.removeFood(MutationJournal.cellX(first), MutationJournal.cellY(first));
                 break;
-            case E:
-                dy = 1;
-                dx = 0;
+            case MutationJournal.FOOD_PUT:
+                board.regrowFood(MutationJournal.cellX(first), MutationJournal.cellY(first),
+                        (int) journal.get(position + 1));
                 break;
-            case S:
-                dy = 0;
-                dx = 1;
+            case MutationJournal.INSECT_REMOVED: {
+                int id = (int) MutationJournal.payload(first);
+                board.removeInsect(board.getEntities().getX(id), board.getEntities().getY(id));
                 break;
-            case W:
-                dy = -1;
-                dx = 0;
+            }
+            case MutationJournal.INSECT_MOVED: {
+                long to = journal.get(position + 2);
+                board.moveInsect((int) MutationJournal.payload(first), MutationJournal.cellX(to), MutationJournal.cellY(to));
+                break;
+            }
+            default:
                 break;
-            case NE:
-                dy = 1;
-                dx = -1;
+        }
+    }
+
+    /**
+     * undo a record at the position of the cursor
+     */
+    private void undo(int kind, long first) {
+        switch (kind) {
+            case MutationJournal.FOOD_REMOVED:
+                board.regrowFood(MutationJournal.cellX(first), MutationJournal.cellY(first),
+                        (int) journal.get(position + 1));
                 break;
-            case SE:
-                dy = 1;
-                dx = 1;
+            case MutationJournal.FOOD_PUT:
+                board.removeFood(MutationJournal.cellX(first), MutationJournal.cellY(first));
                 break;
-            case SW:
-                dy = -1;
-                dx = 1;
+            case MutationJournal.INSECT_REMOVED:
+                board.restoreInsect((int) MutationJournal.payload(first));
                 break;
-            case NW:
-                dy = -1;
-                dx = -1;
+            case MutationJournal.INSECT_MOVED: {
+                long from = journal.get(position + 1);
+                board.moveInsect((int) MutationJournal.payload(first), MutationJournal.cellX(from), MutationJournal.cellY(from));
                 break;
+            }
             default:
                 break;
         }
+    }
+}
 
-        y += dy;
-        x += dx;
-        while (y >= 1 && x >= 1 && y <= boardSize && x <= boardSize) {
-            BoardEntity entity = boardData.get(x + "_" + y);
+/**
+ * ScenarioGenerator writes seeded scenarios in the format, which Main parses, for load tests.
+ * Entities are put on distinct cells without remembering them: the i-th entity takes the
+ * cell number p(i) of a keyed permutation of all cells, so files of any size are streamed
+ * through one buffer. Cells of a few hot rows or diagonals, where x - y is constant, may
+ * come first in the order, then entities gather on those lines. Insects take colors and types from given lists,
+ * a name repeated in a list is chosen more often, classic insects get distinct pairs.
+ * The generator can also break a valid scenario, so that Main fails with a given exception:
+ * "--generate [--seed S] [--size d] [--insects n] [--food m] [--swarm] [--values uniform:LO:HI
+ * | constant:V | pareto:LO:ALPHA] [--layout uniform | rows:K | diagonals:K] [--colors Red,Green]
+ * [--types Ant,Spider] [--invalid ExceptionName] file", a file "-" is the standard output
+ */
+class ScenarioGenerator {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private long seed = 1;
+    private int size = 1000;
+    private int insects = 16;
+    private int food = 200;
+    private boolean swarm;
+    private String values = "uniform:1:100";
+    private String layout = "uniform";
+    private InsectColor[] colors = InsectColor.values();
+    private InsectType[] types = InsectType.values();
+    private String invalid;
+
+    private ByteBuffer buffer;
+    private WritableByteChannel channel;
 
-            if (entity == null) {
-                y += dy;
-                x += dx;
-                continue;
-            }
+    /**
+     * Permutation is a keyed bijection of numbers from 0 to size - 1: a Feistel network
+     * over the smallest even power of two, which is not less than size, and values out of
+     * the range are encrypted again until they get into it
+     */
+    static final class Permutation {
+        private static final int ROUNDS = 4;
+        private final long size;
+        private final int halfBits;
+        private final long halfMask;
+        private final long key;
 
-            if (entity.getClass() == FoodPoint.class) {
-                FoodPoint foodPoint = (FoodPoint) entity;
+        /**
+         * constructor of a permutation
+         * @param size - number of permuted numbers
+         * @param key - key, different keys give different permutations
+         */
+        Permutation(long size, long key) {
+            int bits = Math.max(2, Long.SIZE - Long.numberOfLeadingZeros(Math.max(size - 1, 1)));
+            bits += bits & 1;
+            this.size = size;
+            this.halfBits = bits / 2;
+            this.halfMask = (1L << halfBits) - 1;
+            this.key = key;
+        }
 
-                currentScore += foodPoint.value;
-                boardData.remove(x + "_" + y);
-            }
-
-            if (entity instanceof Insect) {
-                Insect insect = (Insect) entity;
-
-                if (this.color != insect.color) {
-                    break;
+        /**
+         * image of a number
+         * @param value - number from 0 to size - 1
+         * @return its image, from 0 to size - 1
+         */
+        long apply(long value) {
+            do {
+                long left = value >>> halfBits;
+                long right = value & halfMask;
+                for (int round = 0; round < ROUNDS; round++) {
+                    long next = left ^ (mix(right + key * (round + 1)) & halfMask);
+                    left = right;
+                    right = next;
                 }
-            }
-
-            y += dy;
-            x += dx;
+                value = left << halfBits | right;
+            } while (value >= size);
+            return value;
         }
 
-        x = this.entityPosition.getX();
-        y = this.entityPosition.getY();
-        boardData.remove(x + "_" + y);
-
-        return currentScore;
+        /**
+         * the finalizer of SplitMix64, a good mix of bits for the rounds
+         */
+        private static long mix(long value) {
+            final long first = 0xBF58476D1CE4E5B9L;
+            final long second = 0x94D049BB133111EBL;
+            final int shiftOne = 30;
+            final int shiftTwo = 27;
+            final int shiftThree = 31;
+            value = (value ^ (value >>> shiftOne)) * first;
+            value = (value ^ (value >>> shiftTwo)) * second;
+            return value ^ (value >>> shiftThree);
+        }
     }
 
     /**
-     * here we override function which make ANT to String Ant
-     * @return String "Ant"
+     * read options and write the scenario
+     * @param args - "--generate", options and the output file
+     * @throws IOException if the file can not be written
      */
-    @Override
-    public String toString() {
-        return "Ant";
+    static void main(String[] args) throws IOException {
+        ScenarioGenerator generator = new ScenarioGenerator();
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            generator.option(args[i], args[i + 1]);
+            if (args[i].equals("--swarm")) {
+                i--;
+            }
+        }
+        String file = args[args.length - 1];
+        if (file.equals("-")) {
+            generator.generate(Channels.newChannel(System.out));
+            System.out.flush();
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            generator.generate(channel);
+        }
     }
 
     /**
-     * function getOrthogonalDirectionVisibleValue to
-     * imitate moving orthogonally for ant
-     * @param dir - current direction
-     * @param entityPosition - coordinates of the ant
-     * @param boardData - our board
-     * @param boardSize - size of our board
-     * @return amount of eaten food
+     * text of a classic scenario with uniform food from 1 to 100 on a uniform layout
+     * @param seed - seed of the scenario
+     * @param size - size of the board
+     * @param insects - number of insects, distinct pairs of color and type
+     * @param food - number of food points
+     * @return text of the scenario
+     * @throws IOException never, the text is kept in memory
      */
-    @Override
-    public int getOrthogonalDirectionVisibleValue(Direction dir, EntityPosition entityPosition,
-                                                  Map<String, BoardEntity> boardData, int boardSize) {
-        int x = this.entityPosition.getX();
-        int y = this.entityPosition.getY();
-
-        int currentScore = 0;
-
-        int dx = 0;
-        int dy = 0;
+    static byte[] classic(long seed, int size, int insects, int food) throws IOException {
+        ScenarioGenerator generator = new ScenarioGenerator();
+        generator.seed = seed;
+        generator.size = size;
+        generator.insects = insects;
+        generator.food = food;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        generator.generate(Channels.newChannel(bytes));
+        return bytes.toByteArray();
+    }
 
-        switch (dir) {
-            case N:
-                dy = 0;
-                dx = -1;
+    /**
+     * set an option
+     * @param name - name of the option
+     * @param value - value of the option, it is ignored for "--swarm"
+     */
+    void option(String name, String value) {
+        switch (name) {
+            case "--seed":
+                seed = Long.parseLong(value);
                 break;
-            case E:
-                dy = 1;
-                dx = 0;
+            case "--size":
+                size = Integer.parseInt(value);
                 break;
-            case S:
-                dy = 0;
-                dx = 1;
+            case "--insects":
+                insects = Integer.parseInt(value);
                 break;
-            case W:
-                dy = -1;
-                dx = 0;
+            case "--food":
+                food = Integer.parseInt(value);
                 break;
-            default:
+            case "--swarm":
+                swarm = true;
+                break;
+            case "--values":
+                values = value;
+                break;
+            case "--layout":
+                layout = value;
+                break;
+            case "--colors":
+                colors = Arrays.stream(value.split(",")).map(InsectColor::valueOf).toArray(InsectColor[]::new);
                 break;
+            case "--types":
+                types = Arrays.stream(value.split(",")).map(InsectType::valueOf).toArray(InsectType[]::new);
+                break;
+            case "--invalid":
+                invalid = value;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown option " + name);
         }
+    }
 
-        y += dy;
-        x += dx;
-        while (y >= 1 && x >= 1 && y <= boardSize && x <= boardSize) {
-            BoardEntity entity = boardData.get(x + "_" + y);
-
-            if (entity == null) {
-                y += dy;
-                x += dx;
-                continue;
+    /**
+     * write the scenario
+     * @param out - where the text goes
+     * @throws IOException if the channel fails
+     */
+    void generate(WritableByteChannel out) throws IOException {
+        channel = out;
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        Random random = new Random(seed);
+        int n = insects;
+        if (invalid != null && invalid.equals("DuplicateInsectException")) {
+            n = Math.max(n, 2);
+        }
+        long cells = (long) size * size;
+        if (size < 1 || n < 0 || food < 0 || n + (long) food > cells) {
+            throw new IllegalArgumentException("the board of size " + size + " has no room for "
+                    + n + " insects and " + food + " food points");
+        }
+        String[] layoutParts = layout.split(":");
+        boolean diagonals = layoutParts[0].equals("diagonals");
+        int lineCount = diagonals ? 2 * size - 1 : size;
+        int hotLines = layoutParts[0].equals("uniform") ? 0 : Math.min(lineCount, Integer.parseInt(layoutParts[1]));
+        Permutation lines = new Permutation(lineCount, random.nextLong());
+        long[] diagonalStarts = diagonals ? diagonalStarts(lines) : null;
+        long hotCells = diagonals ? diagonalStarts[hotLines] : (long) hotLines * size;
+        Permutation hot = new Permutation(Math.max(hotCells, 1), random.nextLong());
+        Permutation rest = new Permutation(Math.max(cells - hotCells, 1), random.nextLong());
+
+        writeHeader(n);
+        int[] pairs = classicPairs(random);
+        long firstCell = 0;
+        for (long i = 0; i < n + (long) food; i++) {
+            long q = i < hotCells ? hot.apply(i) : hotCells + rest.apply(i - hotCells);
+            int x;
+            int y;
+            if (diagonals) {
+                int j = Arrays.binarySearch(diagonalStarts, q);
+                j = j >= 0 ? j : -j - 2;
+                int offset = (int) lines.apply(j) - (size - 1);
+                int position = (int) (q - diagonalStarts[j]);
+                x = Math.max(offset, 0) + position + 1;
+                y = Math.max(-offset, 0) + position + 1;
+            } else {
+                x = (int) lines.apply(q / size) + 1;
+                y = (int) (q % size) + 1;
             }
-
-            if (entity.getClass() == FoodPoint.class) {
-                FoodPoint foodPoint = (FoodPoint) entity;
-
-                currentScore += foodPoint.value;
+            if (i == 0) {
+                firstCell = (long) x << Integer.SIZE | y;
+            } else if (i == 1 && "TwoEntitiesOnSamePositionException".equals(invalid)) {
+                x = (int) (firstCell >>> Integer.SIZE);
+                y = (int) firstCell;
+            }
+            if (i < n) {
+                writeInsect((int) i, x, y, random, pairs);
+            } else if (i + 1 < n + (long) food || !"NoSuchElementException".equals(invalid)) {
+                writeFood(x, y, random);
             }
-
-            y += dy;
-            x += dx;
         }
-
-        return currentScore;
+        flush();
     }
 
     /**
-     * here we override method travelOrthogonally to count
-     * specific amount of eaten food by travelling orthogonally
-     * @param dir - current direction
-     * @param entityPosition - coordinates of the ant
-     * @param color - color of the anr, which will be necessary for
-     *              case with facing other insects
-     * @param boardData - our board
-     * @param boardSize - size of our board
-     * @return amount of eaten food
+     * first cell numbers of diagonals in the order of a permutation. A diagonal is a line
+     * where x - y is constant, from 1 - size to size - 1, it has size - |x - y| cells and
+     * does not wrap around the board edge
+     * @param lines - order of the 2 * size - 1 diagonals, the number of a diagonal is x - y + size - 1
+     * @return first cell number of every diagonal in the order and the number of all cells at the end
      */
-    @Override
-    public int travelOrthogonally(Direction dir, EntityPosition entityPosition, InsectColor color,
-                                  Map<String, BoardEntity> boardData, int boardSize) {
-        int x = this.entityPosition.getX();
-        int y = this.entityPosition.getY();
-
-        int currentScore = 0;
-
-        int dx = 0;
-        int dy = 0;
+    private long[] diagonalStarts(Permutation lines) {
+        long[] starts = new long[2 * size];
+        for (int j = 0; j < 2 * size - 1; j++) {
+            int offset = (int) lines.apply(j) - (size - 1);
+            starts[j + 1] = starts[j] + size - Math.abs(offset);
+        }
+        return starts;
+    }
 
-        switch (dir) {
-            case N:
-                dy = 0;
-                dx = -1;
-                break;
-            case E:
-                dy = 1;
-                dx = 0;
-                break;
-            case S:
-                dy = 0;
-                dx = 1;
+    /**
+     * write the three numbers of the head, one of them is broken for the exceptions about them
+     */
+    private void writeHeader(int n) throws IOException {
+        final int maxClassicInsects = 16;
+        final int maxClassicFood = 200;
+        String broken = invalid == null ? "" : invalid;
+        switch (broken) {
+            case "InputMismatchException":
+                put("size");
                 break;
-            case W:
-                dy = -1;
-                dx = 0;
+            case "InvalidBoardSizeException":
+                put(swarm ? Main.MAX_SWARM_BOARD + 1 : 2);
                 break;
             default:
+                put(size);
                 break;
         }
+        newLine();
+        put(broken.equals("InvalidNumberOfInsectsException") ? (swarm ? 0 : maxClassicInsects + 1) : n);
+        newLine();
+        put(broken.equals("InvalidNumberOfFoodPointsException") ? (swarm ? 0 : maxClassicFood + 1) : food);
+        newLine();
+    }
 
-        y += dy;
-        x += dx;
-        while (y >= 1 && x >= 1 && y <= boardSize && x <= boardSize) {
-            BoardEntity entity = boardData.get(x + "_" + y);
-
-            if (entity == null) {
-                y += dy;
-                x += dx;
-                continue;
-            }
-
-            if (entity.getClass() == FoodPoint.class) {
-                FoodPoint foodPoint = (FoodPoint) entity;
-
-                currentScore += foodPoint.value;
-                boardData.remove(x + "_" + y);
-            }
-
-            if (entity instanceof Insect) {
-                Insect insect = (Insect) entity;
+    /**
+     * distinct color and type pairs of classic insects in a random order
+     * @return pairs as color * number of types + type, null in the swarm mode
+     */
+    private int[] classicPairs(Random random) {
+        if (swarm) {
+            return null;
+        }
+        int[] pairs = IntStream.range(0, colors.length * types.length)
+                .filter(p -> Arrays.asList(colors).indexOf(colors[p / types.length]) == p / types.length
+                        && Arrays.asList(types).indexOf(types[p % types.length]) == p % types.length)
+                .toArray();
+        for (int i = pairs.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int pair = pairs[i];
+            pairs[i] = pairs[j];
+            pairs[j] = pair;
+        }
+        return pairs;
+    }
 
-                if (this.color != insect.color) {
-                    break;
-                }
+    /**
+     * write one insect line, the first two insects may be broken
+     */
+    private void writeInsect(int i, int x, int y, Random random, int[] pairs) throws IOException {
+        InsectColor color;
+        InsectType type;
+        if (swarm) {
+            color = colors[random.nextInt(colors.length)];
+            type = types[random.nextInt(types.length)];
+            boolean duplicate = i == 1 && "DuplicateInsectException".equals(invalid);
+            put(duplicate ? 0 : i);
+            buffer.put((byte) ' ');
+        } else {
+            int pair = i == 1 && "DuplicateInsectException".equals(invalid) ? pairs[0] : pairs[i % pairs.length];
+            if (i >= pairs.length && !"DuplicateInsectException".equals(invalid)) {
+                throw new IllegalArgumentException("only " + pairs.length + " distinct classic insects");
             }
-
-            y += dy;
-            x += dx;
+            color = colors[pair / types.length];
+            type = types[pair % types.length];
         }
-
-        x = this.entityPosition.getX();
-        y = this.entityPosition.getY();
-        boardData.remove(x + "_" + y);
-
-        return currentScore;
+        String broken = i == 0 && invalid != null ? invalid : "";
+        put(broken.equals("InvalidInsectColorException") ? "Purple" : color.toString());
+        buffer.put((byte) ' ');
+        put(broken.equals("InvalidInsectTypeException") ? "Beetle" : type.toString());
+        buffer.put((byte) ' ');
+        put(broken.equals("InvalidEntityPositionException") ? size + 1 : x);
+        buffer.put((byte) ' ');
+        put(y);
+        newLine();
     }
 
     /**
-     * function getDiagonalDirectionVisibleValue to
-     * imitate moving orthogonally for ant
-     * @param dir - current direction
-     * @param entityPosition - coordinates of the ant
-     * @param boardData - our board
-     * @param boardSize - size of our board
-     * @return - direction to choose
+     * write one food line with a value of the distribution
      */
-    @Override
-    public int getDiagonalDirectionVisibleValue(Direction dir, EntityPosition entityPosition,
-                                                Map<String, BoardEntity> boardData, int boardSize) {
-        int x = this.entityPosition.getX();
-        int y = this.entityPosition.getY();
-
-        int currentScore = 0;
-
-        int dx = 0;
-        int dy = 0;
-
-        switch (dir) {
-            case NE:
-                dy = 1;
-                dx = -1;
-                break;
-            case SE:
-                dy = 1;
-                dx = 1;
+    private void writeFood(int x, int y, Random random) throws IOException {
+        String[] parts = values.split(":");
+        long value;
+        switch (parts[0]) {
+            case "constant":
+                value = Long.parseLong(parts[1]);
                 break;
-            case SW:
-                dy = -1;
-                dx = 1;
+            case "pareto":
+                value = (long) (Long.parseLong(parts[1]) / Math.pow(1 - random.nextDouble(), 1 / Double.parseDouble(parts[2])));
                 break;
-            case NW:
-                dy = -1;
-                dx = -1;
+            case "uniform":
+                long low = Long.parseLong(parts[1]);
+                value = low + Math.floorMod(random.nextLong(), Long.parseLong(parts[2]) - low + 1);
                 break;
             default:
-                break;
+                throw new IllegalArgumentException("unknown distribution of values " + values);
         }
+        put(Math.min(value, Integer.MAX_VALUE));
+        buffer.put((byte) ' ');
+        put(x);
+        buffer.put((byte) ' ');
+        put(y);
+        newLine();
+    }
 
-        y += dy;
-        x += dx;
-        while (y >= 1 && x >= 1 && y <= boardSize && x <= boardSize) {
-            BoardEntity entity = boardData.get(x + "_" + y);
-
-            if (entity == null) {
-                y += dy;
-                x += dx;
-                continue;
-            }
-
-            if (entity.getClass() == FoodPoint.class) {
-                FoodPoint foodPoint = (FoodPoint) entity;
-
-                currentScore += foodPoint.value;
-            }
+    /**
+     * put a number, the buffer is flushed before a line can overflow it
+     */
+    private void put(long value) throws IOException {
+        put(Long.toString(value));
+    }
 
-            y += dy;
-            x += dx;
+    /**
+     * put a word
+     */
+    private void put(String word) throws IOException {
+        final int longestLine = 128;
+        if (buffer.remaining() < longestLine) {
+            flush();
+        }
+        for (int i = 0; i < word.length(); i++) {
+            buffer.put((byte) word.charAt(i));
         }
+    }
 
-        return currentScore;
+    /**
+     * end a line
+     */
+    private void newLine() {
+        buffer.put((byte) '\n');
     }
 
     /**
-     * here we override method travelDiagonally to count
-     * specific amount of eaten food by travelling orthogonally
-     * @param dir - current direction
-     * @param entityPosition - coordinates of the ant
-     * @param color - color of the ant
-     * @param boardData - our board
-     * @param boardSize - size of our board
-     * @return amount of eaten food
+     * write the buffer to the channel
      */
-    @Override
-    public int travelDiagonally(Direction dir, EntityPosition entityPosition, InsectColor color,
-                                Map<String, BoardEntity> boardData, int boardSize) {
-        int x = this.entityPosition.getX();
-        int y = this.entityPosition.getY();
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
 
-        int currentScore = 0;
+/**
+ * BatchRunner simulates many scenario files in one JVM. Scenarios are found in a
+ * directory (every file whose name starts with "input") or listed in a manifest (one
+ * path per line, relative to the manifest). They run on a work-stealing ForkJoinPool
+ * with one thread per core, and each one has its own parser, board and writer, so an
+ * exception in one scenario only goes to its own output.
+ */
+class BatchRunner {
+    private final ForkJoinPool pool;
 
-        int dx = 0;
-        int dy = 0;
+    /**
+     * constructor of a runner
+     * @param parallelism - number of threads in the pool
+     */
+    BatchRunner(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
 
-        switch (dir) {
-            case NE:
-                dy = 1;
-                dx = -1;
-                break;
-            case SE:
-                dy = 1;
-                dx = 1;
-                break;
-            case SW:
-                dy = -1;
-                dx = 1;
-                break;
-            case NW:
-                dy = -1;
-                dx = -1;
-                break;
-            default:
-                break;
+    /**
+     * usage: --batch directory|manifest [--combined results-file]
+     * @param args - arguments of Main
+     * @throws IOException if scenarios can not be listed or results can not be written
+     */
+    static void main(String[] args) throws IOException {
+        final int withCombined = 4;
+        if (args.length != 2 && !(args.length == withCombined && args[2].equals("--combined"))) {
+            System.err.println("usage: Main --batch directory|manifest [--combined results-file]");
+            return;
         }
-
-        y += dy;
-        x += dx;
-        while (y >= 1 && x >= 1 && y <= boardSize && x <= boardSize) {
-            BoardEntity entity = boardData.get(x + "_" + y);
-
-            if (entity == null) {
-                y += dy;
-                x += dx;
-                continue;
+        List<Path> scenarios = list(Paths.get(args[1]));
+        BatchRunner runner = new BatchRunner(Runtime.getRuntime().availableProcessors());
+        try {
+            if (args.length == withCombined) {
+                runner.runCombined(scenarios, Paths.get(args[3]));
+            } else {
+                runner.runSeparately(scenarios);
             }
+        } finally {
+            runner.shutdown();
+        }
+    }
 
-            if (entity.getClass() == FoodPoint.class) {
-                FoodPoint foodPoint = (FoodPoint) entity;
-
-                currentScore += foodPoint.value;
-                boardData.remove(x + "_" + y);
+    /**
+     * list scenarios of a directory or a manifest in a stable order
+     * @param source - directory with scenarios or a manifest file
+     * @return paths of input files
+     * @throws IOException if the source can not be read
+     */
+    static List<Path> list(Path source) throws IOException {
+        if (Files.isDirectory(source)) {
+            try (Stream<Path> files = Files.walk(source)) {
+                return files.filter(Files::isRegularFile)
+                        .filter(file -> file.getFileName().toString().startsWith("input"))
+                        .sorted()
+                        .collect(Collectors.toList());
             }
-
-            if (entity instanceof Insect) {
-                Insect insect = (Insect) entity;
-
-                if (this.color != insect.color) {
-                    break;
-                }
+        }
+        Path base = source.toAbsolutePath().getParent();
+        List<Path> scenarios = new ArrayList<>();
+        for (String line : Files.readAllLines(source, StandardCharsets.UTF_8)) {
+            String name = line.trim();
+            if (!name.isEmpty() && !name.startsWith("#")) {
+                scenarios.add(base.resolve(name));
             }
-
-            y += dy;
-            x += dx;
         }
-
-        x = this.entityPosition.getX();
-        y = this.entityPosition.getY();
-        boardData.remove(x + "_" + y);
-
-        return currentScore;
+        return scenarios;
     }
-}
 
-/**
- * class Spider represent one of 4 types of Insects
- */
-class Spider extends Insect implements DiagonalMoving {
     /**
-     * public Spider is a constructor to create new insects of Spider type
-     * @param entityPosition - coordinates of a new spider
-     * @param color - color of a new spider
+     * output file next to the input: input.txt gives output.txt, other names get ".out"
+     * @param input - input file of a scenario
+     * @return output file of the scenario
      */
-    public Spider(EntityPosition entityPosition, InsectColor color) {
-        super(entityPosition, color);
+    static Path outputOf(Path input) {
+        String name = input.getFileName().toString();
+        if (name.startsWith("input")) {
+            return input.resolveSibling("output" + name.substring("input".length()));
+        }
+        return input.resolveSibling(name + ".out");
     }
 
     /**
-     * function getBestDirection is used to choose the best direction based
-     * on maximum possible amount os eaten food
-     * @param boardData - our board, where we locate all food and insects
-     * @param boardSize - size of our board
-     * @return
+     * simulate every scenario into the file next to its input, a scenario, which fails,
+     * does not stop the others: its message is written to its output, or to System.err
+     * if the output can not be written
+     * @param scenarios - input files
      */
-    public Direction getBestDirection(Map<String, BoardEntity> boardData, int boardSize) {
-        Direction bestDirection = Direction.NE;
-        int maxScore = 0;
-
-        int result1 = getDiagonalDirectionVisibleValue(Direction.NW, null, boardData, boardSize);
-        int result2 = getDiagonalDirectionVisibleValue(Direction.NE, null, boardData, boardSize);
-        int result3 = getDiagonalDirectionVisibleValue(Direction.SW, null, boardData, boardSize);
-        int result4 = getDiagonalDirectionVisibleValue(Direction.SE, null, boardData, boardSize);
+    void runSeparately(List<Path> scenarios) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(scenarios.size());
+        for (Path input : scenarios) {
+            tasks.add(pool.submit(() -> {
+                try {
+                    ResultWriter writer = ResultWriter.open(outputOf(input).toString());
+                    run(input, writer);
+                    writer.close();
+                } catch (Exception e) {
+                    System.err.println(input + ": " + e.getMessage());
+                }
+            }));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
 
-        if (result2 > maxScore) {
-            maxScore = result2;
-            bestDirection = Direction.NE;
+    /**
+     * simulate every scenario into one results file, where the results of each scenario
+     * follow a "# path" line, in the order of scenarios
+     * @param scenarios - input files
+     * @param results - file for all results
+     * @throws IOException if the results can not be written
+     */
+    void runCombined(List<Path> scenarios, Path results) throws IOException {
+        List<ForkJoinTask<byte[]>> tasks = new ArrayList<>(scenarios.size());
+        for (Path input : scenarios) {
+            tasks.add(pool.submit(() -> {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                ResultWriter writer = new ResultWriter(Channels.newChannel(bytes), ByteBuffer.allocate(1 << 12));
+                writer.writeMessage("# " + input);
+                run(input, writer);
+                writer.close();
+                return bytes.toByteArray();
+            }));
         }
-        if (result4 > maxScore) {
-            maxScore = result4;
-            bestDirection = Direction.SE;
+        try (FileChannel channel = FileChannel.open(results, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (ForkJoinTask<byte[]> task : tasks) {
+                ByteBuffer buffer = ByteBuffer.wrap(task.join());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
         }
-        if (result3 > maxScore) {
-            maxScore = result3;
-            bestDirection = Direction.SW;
+    }
+
+    /**
+     * simulate one scenario, an input which can not be opened or a scenario, which fails
+     * in any other way, is reported in its output, so one scenario does not stop the batch
+     * @param input - input file
+     * @param writer - output of the scenario
+     * @throws IOException if the writer fails
+     */
+    static void run(Path input, ResultWriter writer) throws IOException {
+        InputParser parser;
+        try {
+            parser = InputParser.open(input.toString());
+        } catch (Exception e) {
+            writer.writeMessage(e.getMessage());
+            return;
         }
-        if (result1 > maxScore) {
-            maxScore = result1;
-            bestDirection = Direction.NW;
+        try {
+            Main.simulate(parser, writer);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            writer.writeMessage(e.getMessage());
         }
+    }
 
-        return bestDirection;
+    /**
+     * stop threads of the pool
+     */
+    void shutdown() {
+        pool.shutdown();
     }
+}
 
+/**
+ * SimulationDaemon keeps a warmed engine in one JVM and simulates classic scenarios, which
+ * come over a Unix domain socket: a client writes the text of input.txt, shuts down its
+ * output and reads the lines of output.txt until the end of the stream. Before it listens,
+ * the daemon simulates generated scenarios with every insect type, so getBestDirection and
+ * travelDirection are compiled before the first request. Connections are served by a fixed
+ * pool and a semaphore of permits: when all permits are taken the daemon stops accepting,
+ * so new clients wait in the backlog of the socket instead of queueing in memory.
+ * Usage: "--serve socket [--workers n] [--pending n] [--warmup n]", a client is
+ * "--client socket [input output]"
+ */
+class SimulationDaemon {
     /**
-     * function travelDirection is used to count amount of eaten food on the chosen direction
-     * @param dir chosen direction
-     * @param boardData our board
-     * @param boardSize size of our board
-     * @return
+     * largest scenario, which is accepted, its text is kept in memory
      */
-    public int travelDirection(Direction dir, Map<String, BoardEntity> boardData, int boardSize) {
-        int x = this.entityPosition.getX();
-        int y = this.entityPosition.getY();
+    static final int MAX_REQUEST = 1 << 24;
 
-        int currentScore = 0;
+    private static final int REQUEST_BUFFER = 1 << 12;
+    private static final int RESPONSE_BUFFER = 1 << 16;
 
-        int dx = 0;
-        int dy = 0;
+    /**
+     * buffers of a worker, they are reused by all connections of the thread
+     */
+    private static final ThreadLocal<ByteBuffer[]> BUFFERS = ThreadLocal.withInitial(() -> new ByteBuffer[] {
+        ByteBuffer.allocate(REQUEST_BUFFER), ByteBuffer.allocateDirect(RESPONSE_BUFFER)
+    });
 
-        switch (dir) {
-            case NE:
-                dy = 1;
-                dx = -1;
-                break;
-            case SE:
-                dy = 1;
-                dx = 1;
-                break;
-            case SW:
-                dy = -1;
-                dx = 1;
-                break;
-            case NW:
-                dy = -1;
-                dx = -1;
-                break;
-            default:
-                break;
-        }
+    private final Path socket;
+    private final ExecutorService workers;
+    private final Semaphore permits;
+    private volatile ServerSocketChannel server;
 
-        y += dy;
-        x += dx;
-        while (y >= 1 && x >= 1 && y <= boardSize && x <= boardSize) {
-            BoardEntity entity = boardData.get(x + "_" + y);
+    /**
+     * constructor of a daemon
+     * @param socket - path of the socket
+     * @param workers - number of connections, which are simulated at once
+     * @param pending - number of accepted connections, which may wait for a worker
+     */
+    SimulationDaemon(Path socket, int workers, int pending) {
+        this.socket = socket;
+        this.workers = Executors.newFixedThreadPool(workers, task -> {
+            Thread thread = new Thread(task, "simulation-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.permits = new Semaphore(workers + pending);
+    }
 
-            if (entity == null) {
-                y += dy;
-                x += dx;
-                continue;
+    /**
+     * usage: --serve socket [--workers n] [--pending n] [--warmup n]
+     * @param args - arguments of Main
+     * @throws IOException if the socket can not be opened
+     */
+    static void main(String[] args) throws IOException {
+        final int warmupScenarios = 20000;
+        final int pendingPerWorker = 4;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int pending = -1;
+        int warmup = warmupScenarios;
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            int value = Integer.parseInt(args[i + 1]);
+            if (args[i].equals("--workers")) {
+                workers = value;
+            } else if (args[i].equals("--pending")) {
+                pending = value;
+            } else if (args[i].equals("--warmup")) {
+                warmup = value;
             }
+        }
+        SimulationDaemon daemon = new SimulationDaemon(Paths.get(args[1]), workers,
+                pending < 0 ? workers * pendingPerWorker : pending);
+        daemon.bind();
+        Runtime.getRuntime().addShutdownHook(new Thread(daemon::close));
+        long start = System.nanoTime();
+        warmUp(warmup);
+        final double nanosInMilli = 1e6;
+        System.err.printf(Locale.US, "warmed up with %d scenarios in %.0f ms%n", warmup,
+                (System.nanoTime() - start) / nanosInMilli);
+        daemon.serve();
+    }
 
-            if (entity.getClass() == FoodPoint.class) {
-                FoodPoint foodPoint = (FoodPoint) entity;
+    /**
+     * simulate generated scenarios from 4x4 to 50x50 boards, where all sixteen insects of
+     * every color and type look for food, the results are discarded
+     * @param scenarios - number of scenarios
+     * @throws IOException never, results are not written anywhere
+     */
+    static void warmUp(int scenarios) throws IOException {
+        final int minSize = 4;
+        final int maxSize = 50;
+        final int variants = 64;
+        int insects = InsectColor.values().length * InsectType.values().length;
+        byte[][] inputs = new byte[variants][];
+        for (int i = 0; i < variants; i++) {
+            int size = minSize + i * (maxSize - minSize) / (variants - 1);
+            int food = Math.min(size * size - insects, i % 2 == 0 ? size : size * size / 2);
+            inputs[i] = ScenarioGenerator.classic(i, size, Math.min(insects, size * size), Math.max(food, 0));
+        }
+        ResultWriter writer = new ResultWriter(Channels.newChannel(OutputStream.nullOutputStream()),
+                ByteBuffer.allocate(RESPONSE_BUFFER));
+        for (int i = 0; i < scenarios; i++) {
+            Main.simulate(new InputParser(ByteBuffer.wrap(inputs[i % variants])), writer);
+            writer.flush();
+        }
+    }
 
-                currentScore += foodPoint.value;
-                boardData.remove(x + "_" + y);
+    /**
+     * take the socket before the warm-up, clients, which come meanwhile, wait in its backlog.
+     * A socket file of a previous daemon is replaced only if nobody accepts connections on it
+     * @throws IOException if the socket can not be opened or another daemon listens on it
+     */
+    void bind() throws IOException {
+        if (Files.exists(socket) && !Files.isRegularFile(socket) && !Files.isDirectory(socket)) {
+            SocketChannel probe;
+            try {
+                probe = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+            } catch (ConnectException e) {
+                probe = null;
             }
+            if (probe != null) {
+                probe.close();
+                throw new IOException("another daemon listens on " + socket);
+            }
+            Files.delete(socket);
+        }
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+    }
 
-            if (entity instanceof Insect) {
-                Insect insect = (Insect) entity;
-
-                if (this.color != insect.color) {
-                    break;
+    /**
+     * serve connections of the bound socket until the daemon is closed
+     * @throws IOException if a connection can not be accepted
+     */
+    void serve() throws IOException {
+        System.err.println("listening on " + socket);
+        try {
+            while (true) {
+                permits.acquireUninterruptibly();
+                SocketChannel connection;
+                try {
+                    connection = server.accept();
+                } catch (IOException e) {
+                    permits.release();
+                    if (!server.isOpen()) {
+                        return;
+                    }
+                    throw e;
                 }
+                workers.execute(() -> {
+                    try {
+                        handle(connection);
+                    } finally {
+                        permits.release();
+                    }
+                });
             }
-
-            y += dy;
-            x += dx;
+        } finally {
+            close();
         }
-
-        x = this.entityPosition.getX();
-        y = this.entityPosition.getY();
-        boardData.remove(x + "_" + y);
-
-        return currentScore;
     }
 
     /**
-     * here we override SPIDER to String "Spider"
-     * @return String "Spider"
+     * read a scenario from a connection, simulate it and answer with its results
+     * @param connection - connection of a client, it is closed here
      */
-    @Override
-    public String toString() {
-        return "Spider";
+    static void handle(SocketChannel connection) {
+        ByteBuffer[] buffers = BUFFERS.get();
+        try (connection) {
+            ByteBuffer request = read(connection, buffers);
+            ResultWriter writer = new ResultWriter(connection, buffers[1]);
+            if (request == null) {
+                writer.writeMessage("Scenario is too large");
+            } else {
+                Main.simulate(new InputParser(request), writer);
+            }
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("connection failed: " + e.getMessage());
+        } finally {
+            buffers[0].clear();
+            buffers[1].clear();
+        }
     }
 
     /**
-     * function getOrthogonalDirectionVisibleValue to
-     * imitate moving orthogonally for spider
-     * @param dir - current direction
-     * @param entityPosition - coordinates of the spider
-     * @param boardData - our board
-     * @param boardSize - size of our board
-     * @return amount of eaten food
+     * read the whole request, the buffer of the worker grows while it is not enough
+     * @param connection - connection of a client
+     * @param buffers - buffers of the worker, the request buffer may be replaced
+     * @return request, which is ready to be read, or null if it is larger than MAX_REQUEST,
+     * then the rest of it is read and dropped, so the client gets the answer
+     * @throws IOException if reading fails
      */
-    @Override
-    public int getDiagonalDirectionVisibleValue(Direction dir, EntityPosition entityPosition,
-                                                Map<String, BoardEntity> boardData, int boardSize) {
-        int x = this.entityPosition.getX();
-        int y = this.entityPosition.getY();
+    private static ByteBuffer read(SocketChannel connection, ByteBuffer[] buffers) throws IOException {
+        ByteBuffer request = buffers[0];
+        while (connection.read(request) >= 0) {
+            if (!request.hasRemaining()) {
+                if (request.capacity() >= MAX_REQUEST) {
+                    do {
+                        request.clear();
+                    } while (connection.read(request) >= 0);
+                    return null;
+                }
+                request.flip();
+                request = ByteBuffer.allocate(request.capacity() * 2).put(request);
+                buffers[0] = request;
+            }
+        }
+        return request.flip();
+    }
+
+    /**
+     * stop accepting connections and remove the socket file
+     */
+    void close() {
+        try {
+            if (server != null && server.isOpen()) {
+                server.close();
+                Files.deleteIfExists(socket);
+            }
+        } catch (IOException e) {
+            System.err.println("daemon can not be closed: " + e.getMessage());
+        }
+        workers.shutdown();
+    }
+
+    /**
+     * usage: --client socket [input output], send a scenario to a daemon and write its
+     * results, input.txt and output.txt are used by default
+     * @param args - arguments of Main
+     * @throws IOException if the daemon can not be reached
+     */
+    static void client(String[] args) throws IOException {
+        final int withFiles = 4;
+        String inputFile = args.length == withFiles ? args[2] : "input.txt";
+        String outputFile = args.length == withFiles ? args[3] : "output.txt";
+        try (SocketChannel connection = SocketChannel.open(UnixDomainSocketAddress.of(args[1]));
+                FileChannel input = FileChannel.open(Paths.get(inputFile), StandardOpenOption.READ);
+                FileChannel output = FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = input.size();
+            for (long sent = 0; sent < size;) {
+                sent += input.transferTo(sent, size - sent, connection);
+            }
+            connection.shutdownOutput();
+            ByteBuffer buffer = ByteBuffer.allocate(RESPONSE_BUFFER);
+            while (connection.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    output.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+    }
+}
+
+/**
+ * class EntityPosition is necessary to store data about locations of different entities on the board
+ */
+class EntityPosition {
+    private int x;
+    private int y;
+
+    /**
+     * getter to private int x
+     * @return private x
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * setter to private int x
+     * change original x to new x
+     */
+    public void setX(int x) {
+        this.x = x;
+    }
+
+    /**
+     * getter to private int y
+     * @return private y
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * setter to private int y
+     * change original y to new y
+     */
+    public void setY(int y) {
+        this.y = y;
+    }
+
+    /**
+     * function which generate a position for new entity according to give x and y
+     * @param x first coordinate of entity location
+     * @param y second coordinate of entity location
+     */
+    public EntityPosition(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+}
+
+/**
+ * BoardEntity is a super class for Insect and foodPoint classes
+ */
+abstract class BoardEntity {
+    /**
+     * first coordinate of the entity
+     * @return x of its location
+     */
+    public abstract int getX();
+
+    /**
+     * second coordinate of the entity
+     * @return y of its location
+     */
+    public abstract int getY();
+}
+
+/**
+ * FoodPoint is a class representing one of two types of entities
+ */
+class FoodPoint extends BoardEntity {
+    /**
+     * here we create a new entityPosition of EntityPosition class,
+     * where we'll store location of our entity
+     */
+    protected EntityPosition entityPosition;
+
+    /**
+     * value is an Integer, where we save amount of food in this FoodPoint
+     */
+    protected int value;
+
+    /**
+     * this function is a constructor, which create a new FoodPoint
+     * @param position is a variable of EntityPosition type, where we store coordinates
+     * @param value amount of food in this FoodPoint
+     */
+    public FoodPoint(EntityPosition position, int value) {
+        this.entityPosition = position;
+        this.value = value;
+    }
+
+    @Override
+    public int getX() {
+        return entityPosition.getX();
+    }
+
+    @Override
+    public int getY() {
+        return entityPosition.getY();
+    }
+}
+
+/**
+ * abstract class Insect represent one of BoardEntity entities.
+ * An insect is only a handle: its position and color are kept in an EntityStore
+ */
+abstract class Insect extends BoardEntity {
+    protected final EntityStore store;
+    protected final int id;
+
+    /**
+     * constructor for new insects of Insect type
+     * @param store entities of the board
+     * @param id index of the insect in the store
+     */
+    public Insect(EntityStore store, int id) {
+        this.store = store;
+        this.id = id;
+    }
+
+    @Override
+    public int getX() {
+        return store.getX(id);
+    }
+
+    @Override
+    public int getY() {
+        return store.getY(id);
+    }
+
+    /**
+     * color of this insect
+     * @return color from the store
+     */
+    public InsectColor getColor() {
+        return store.getColor(id);
+    }
+
+    /**
+     * function which choose best direction by counting the maximum amount of eaten food,
+     * directions are tried in the order of the movement of the type
+     * @param board - our board, where we locate all food and insects
+     * @param boardSize - size of our board
+     * @return direction to choose
+     * */
+    public Direction getBestDirection(Board board, int boardSize) {
+        return RayKernel.bestDirection(board, getX(), getY(), getType().getMovement());
+    }
+
+    /**
+     * this function count amount of food, which Insect will eat while following chosen direction,
+     * after that the insect leaves the board
+     * @param dir chosen direction
+     * @param board our board
+     * @param boardSize size of our board
+     * @return amount of eaten food
+     * */
+    public int travelDirection(Direction dir, Board board, int boardSize) {
+        int stride = getStride();
+        return RayKernel.travel(board, getX(), getY(), getColor(), dir.getDx() * stride, dir.getDy() * stride);
+    }
+
+    /**
+     * number of cells this insect passes in one step
+     * @return stride of the movement of its type
+     */
+    public int getStride() {
+        return getType().getMovement().getStride();
+    }
+
+    /**
+     * type of this insect
+     * @return one of InsectType values
+     */
+    public abstract InsectType getType();
+}
+
+/**
+ * class Butterfly represent one of our Insect types.
+ * Here we store all methods, which we need to work
+ * with this type of Insect
+ */
+class Butterfly extends Insect implements OrthogonalMoving {
+    /**
+     * we create a new butterfly, which reads its position and color from the entity store
+     * @param store - entities of the board
+     * @param id - index of this butterfly in the store
+     */
+    public Butterfly(EntityStore store, int id) {
+        super(store, id);
+    }
+
+    /**
+     * here we override method toString to get a String
+     * @return String version of BUTTERFLY
+     */
+    @Override
+    public String toString() {
+        return "Butterfly";
+    }
+
+    /**
+     * type of this insect
+     * @return InsectType.BUTTERFLY
+     */
+    @Override
+    public InsectType getType() {
+        return InsectType.BUTTERFLY;
+    }
+
+    /**
+     * amount of food visible in an orthogonal direction
+     * @param dir - direction
+     * @param entityPosition - not used, the position is read from the store
+     * @param board - our board
+     * @param boardSize - size of our board
+     * @return amount of food
+     */
+    @Override
+    public int getOrthogonalDirectionVisibleValue(Direction dir, EntityPosition entityPosition,
+                                                  Board board, int boardSize) {
+        return board.getDirectionSum(this, dir);
+    }
+
+    /**
+     * travel in an orthogonal direction
+     * @param dir - direction
+     * @param entityPosition - not used, the position is read from the store
+     * @param color - not used, the color is read from the store
+     * @param board - our board
+     * @param boardSize - size of our board
+     * @return amount of eaten food
+     */
+    @Override
+    public int travelOrthogonally(Direction dir, EntityPosition entityPosition, InsectColor color,
+                                  Board board, int boardSize) {
+        return travelDirection(dir, board, boardSize);
+    }
+}
+
+/**
+ * class Ant represent one of 4 types of Insects
+ */
+class Ant extends Insect implements OrthogonalMoving, DiagonalMoving {
+    /**
+     * we create a new ant, which reads its position and color from the entity store
+     * @param store - entities of the board
+     * @param id - index of this ant in the store
+     */
+    public Ant(EntityStore store, int id) {
+        super(store, id);
+    }
+
+    /**
+     * here we override method toString to get a String
+     * @return String version of ANT
+     */
+    @Override
+    public String toString() {
+        return "Ant";
+    }
+
+    /**
+     * type of this insect
+     * @return InsectType.ANT
+     */
+    @Override
+    public InsectType getType() {
+        return InsectType.ANT;
+    }
+
+    /**
+     * amount of food visible in an orthogonal direction
+     * @param dir - direction
+     * @param entityPosition - not used, the position is read from the store
+     * @param board - our board
+     * @param boardSize - size of our board
+     * @return amount of food
+     */
+    @Override
+    public int getOrthogonalDirectionVisibleValue(Direction dir, EntityPosition entityPosition,
+                                                  Board board, int boardSize) {
+        return board.getDirectionSum(this, dir);
+    }
+
+    /**
+     * travel in an orthogonal direction
+     * @param dir - direction
+     * @param entityPosition - not used, the position is read from the store
+     * @param color - not used, the color is read from the store
+     * @param board - our board
+     * @param boardSize - size of our board
+     * @return amount of eaten food
+     */
+    @Override
+    public int travelOrthogonally(Direction dir, EntityPosition entityPosition, InsectColor color,
+                                  Board board, int boardSize) {
+        return travelDirection(dir, board, boardSize);
+    }
+
+    /**
+     * amount of food visible in an diagonal direction
+     * @param dir - direction
+     * @param entityPosition - not used, the position is read from the store
+     * @param board - our board
+     * @param boardSize - size of our board
+     * @return amount of food
+     */
+    @Override
+    public int getDiagonalDirectionVisibleValue(Direction dir, EntityPosition entityPosition,
+                                                Board board, int boardSize) {
+        return board.getDirectionSum(this, dir);
+    }
+
+    /**
+     * travel in an diagonal direction
+     * @param dir - direction
+     * @param entityPosition - not used, the position is read from the store
+     * @param color - not used, the color is read from the store
+     * @param board - our board
+     * @param boardSize - size of our board
+     * @return amount of eaten food
+     */
+    @Override
+    public int travelDiagonally(Direction dir, EntityPosition entityPosition, InsectColor color,
+                                Board board, int boardSize) {
+        return travelDirection(dir, board, boardSize);
+    }
+}
+
+/**
+ * class Spider represent one of 4 types of Insects
+ */
+class Spider extends Insect implements DiagonalMoving {
+    /**
+     * we create a new spider, which reads its position and color from the entity store
+     * @param store - entities of the board
+     * @param id - index of this spider in the store
+     */
+    public Spider(EntityStore store, int id) {
+        super(store, id);
+    }
+
+    /**
+     * here we override method toString to get a String
+     * @return String version of SPIDER
+     */
+    @Override
+    public String toString() {
+        return "Spider";
+    }
+
+    /**
+     * type of this insect
+     * @return InsectType.SPIDER
+     */
+    @Override
+    public InsectType getType() {
+        return InsectType.SPIDER;
+    }
+
+    /**
+     * amount of food visible in an diagonal direction
+     * @param dir - direction
+     * @param entityPosition - not used, the position is read from the store
+     * @param board - our board
+     * @param boardSize - size of our board
+     * @return amount of food
+     */
+    @Override
+    public int getDiagonalDirectionVisibleValue(Direction dir, EntityPosition entityPosition,
+                                                Board board, int boardSize) {
+        return board.getDirectionSum(this, dir);
+    }
+
+    /**
+     * travel in an diagonal direction
+     * @param dir - direction
+     * @param entityPosition - not used, the position is read from the store
+     * @param color - not used, the color is read from the store
+     * @param board - our board
+     * @param boardSize - size of our board
+     * @return amount of eaten food
+     */
+    @Override
+    public int travelDiagonally(Direction dir, EntityPosition entityPosition, InsectColor color,
+                                Board board, int boardSize) {
+        return travelDirection(dir, board, boardSize);
+    }
+}
+
+/**
+ * class Grasshopper represent one of 4 types of Insects, it jumps over one cell
+ */
+class Grasshopper extends Insect {
+    /**
+     * we create a new grasshopper, which reads its position and color from the entity store
+     * @param store - entities of the board
+     * @param id - index of this grasshopper in the store
+     */
+    public Grasshopper(EntityStore store, int id) {
+        super(store, id);
+    }
+
+    /**
+     * here we override method toString to get a String
+     * @return String version of GRASSHOPPER
+     */
+    @Override
+    public String toString() {
+        return "Grasshopper";
+    }
+
+    /**
+     * type of this insect
+     * @return InsectType.GRASSHOPPER
+     */
+    @Override
+    public InsectType getType() {
+        return InsectType.GRASSHOPPER;
+    }
+}
+
+/**
+ * LineTotals keeps the total food of every row, column, diagonal and anti-diagonal.
+ * The food, which an insect sees along a ray, is a part of one line, so a line total is
+ * an upper bound for every ray on this line and it is updated in O(1) when food is eaten
+ */
+class LineTotals {
+    private final int size;
+    private long[] rows;
+    private long[] columns;
+    private long[] diagonals;
+    private long[] antiDiagonals;
+
+    /**
+     * number of removed food points of every line, in the same order as totals
+     */
+    private int[][] removals;
+
+    /**
+     * true while arrays are shared with the totals of a snapshot, they are copied before a change
+     */
+    private boolean shared;
+
+    /**
+     * constructor of empty totals
+     * @param size - size of our board
+     */
+    LineTotals(int size) {
+        this.size = size;
+        this.rows = new long[size + 1];
+        this.columns = new long[size + 1];
+        this.diagonals = new long[2 * size];
+        this.antiDiagonals = new long[2 * size + 1];
+        this.removals = new int[][] {
+            new int[size + 1], new int[size + 1], new int[2 * size], new int[2 * size + 1]
+        };
+    }
+
+    /**
+     * constructor of a snapshot, arrays are shared until one of the totals changes
+     * @param base - copied totals
+     */
+    private LineTotals(LineTotals base) {
+        this.size = base.size;
+        this.rows = base.rows;
+        this.columns = base.columns;
+        this.diagonals = base.diagonals;
+        this.antiDiagonals = base.antiDiagonals;
+        this.removals = base.removals;
+        this.shared = true;
+    }
+
+    /**
+     * copy of the totals, which changes independently of them
+     * @return copy of the totals
+     */
+    LineTotals snapshot() {
+        shared = true;
+        return new LineTotals(this);
+    }
+
+    /**
+     * take own copies of shared arrays before a change
+     */
+    private void unshare() {
+        rows = rows.clone();
+        columns = columns.clone();
+        diagonals = diagonals.clone();
+        antiDiagonals = antiDiagonals.clone();
+        int[][] copy = new int[removals.length][];
+        for (int i = 0; i < removals.length; i++) {
+            copy[i] = removals[i].clone();
+        }
+        removals = copy;
+        shared = false;
+    }
+
+    /**
+     * add food to the lines of a cell, only positive food counts, so a total stays an upper bound
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param value - amount of food
+     */
+    void add(int x, int y, int value) {
+        change(x, y, Math.max(value, 0));
+    }
+
+    /**
+     * remove food from the lines of a cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param value - amount of food, which was added
+     */
+    void remove(int x, int y, int value) {
+        change(x, y, -Math.max(value, 0));
+        removals[0][x]++;
+        removals[1][y]++;
+        removals[2][x - y + size]++;
+        removals[3][x + y]++;
+    }
+
+    /**
+     * number of food points removed from the four lines of a cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return number of removals
+     */
+    long removals(int x, int y) {
+        return (long) removals[0][x] + removals[1][y] + removals[2][x - y + size] + removals[3][x + y];
+    }
+
+    /**
+     * change totals of the four lines of a cell
+     */
+    private void change(int x, int y, int value) {
+        if (shared) {
+            unshare();
+        }
+        rows[x] += value;
+        columns[y] += value;
+        diagonals[x - y + size] += value;
+        antiDiagonals[x + y] += value;
+    }
+
+    /**
+     * total food on the line of a ray, which starts at the cell (x, y)
+     * @param x first coordinate of the start cell
+     * @param y second coordinate of the start cell
+     * @param dx step on Ox axis
+     * @param dy step on Oy axis
+     * @return upper bound of food visible along the ray
+     */
+    long bound(int x, int y, int dx, int dy) {
+        if (dx == 0) {
+            return rows[x];
+        }
+        if (dy == 0) {
+            return columns[y];
+        }
+        if ((dx > 0) == (dy > 0)) {
+            return diagonals[x - y + size];
+        }
+        return antiDiagonals[x + y];
+    }
+}
+
+/**
+ * RayKernel is the only place where insects look along a ray and travel along it.
+ * All types of insects share these two loops, they differ only by their Movement
+ */
+final class RayKernel {
+    private RayKernel() {
+    }
+
+    /**
+     * choose the direction with the most visible food, a direction wins only with strictly
+     * more food than every direction before it
+     * @param board - our board
+     * @param x first coordinate of the insect
+     * @param y second coordinate of the insect
+     * @param movement - how the insect moves
+     * @return best direction
+     */
+    static Direction bestDirection(Board board, int x, int y, Movement movement) {
+        LineTotals totals = board.getLineTotals();
+        if (totals != null) {
+            return boundedBestDirection(board, totals, x, y, movement);
+        }
+        int best = 0;
+        int maxScore = 0;
+        for (int i = 0; i < movement.size(); i++) {
+            int score = board.getVisibleFood(x, y, movement.getDx(i), movement.getDy(i));
+            if (score > maxScore) {
+                maxScore = score;
+                best = i;
+            }
+        }
+        return movement.getDirection(best);
+    }
+
+    /**
+     * the same choice as bestDirection, but a direction is skipped when its line total is not
+     * larger than the best score: it can not see more food, and a tie keeps the earlier direction.
+     * Directions are tried in their order, so every line total is read once
+     * @param board - our board
+     * @param totals - food totals of lines of the board
+     * @param x first coordinate of the insect
+     * @param y second coordinate of the insect
+     * @param movement - how the insect moves
+     * @return best direction
+     */
+    private static Direction boundedBestDirection(Board board, LineTotals totals, int x, int y,
+                                                  Movement movement) {
+        int best = 0;
+        int maxScore = 0;
+        for (int i = 0; i < movement.size(); i++) {
+            int dx = movement.getDx(i);
+            int dy = movement.getDy(i);
+            if (totals.bound(x, y, dx, dy) > maxScore) {
+                int score = board.getVisibleFood(x, y, dx, dy);
+                if (score > maxScore) {
+                    maxScore = score;
+                    best = i;
+                }
+            }
+        }
+        return movement.getDirection(best);
+    }
+
+    /**
+     * travel along a ray: eat all food until an insect of another color, pass insects of
+     * the same color, and leave the board
+     * @param board - our board
+     * @param x first coordinate of the insect
+     * @param y second coordinate of the insect
+     * @param color - color of the insect
+     * @param dx step on Ox axis, multiplied by the stride
+     * @param dy step on Oy axis, multiplied by the stride
+     * @return amount of eaten food
+     */
+    static int travel(Board board, int x, int y, InsectColor color, int dx, int dy) {
+        int currentScore = 0;
+        int cx = x;
+        int cy = y;
+        int steps = board.nextStop(cx, cy, dx, dy, color);
+        while (steps > 0) {
+            cx += dx * steps;
+            cy += dy * steps;
+            byte cellType = board.getCellType(cx, cy);
+
+            if (cellType == BoardStorage.FOOD) {
+                currentScore += board.getFoodValue(cx, cy);
+                board.removeFood(cx, cy);
+            }
+
+            if (cellType == BoardStorage.INSECT && board.getInsectColorAt(cx, cy) != color) {
+                break;
+            }
+
+            steps = board.nextStop(cx, cy, dx, dy, color);
+        }
+        board.removeInsect(x, y);
+        return currentScore;
+    }
+
+    /**
+     * travel along a ray as in travel, but the insect stays on the board: it lands on the last
+     * empty cell of its path, before an insect of another color or the board edge. Insects of
+     * the same color are passed, and the insect stays where it was if there is no such cell
+     * @param board - our board
+     * @param id - id of the insect
+     * @param color - color of the insect
+     * @param dx step on Ox axis, multiplied by the stride
+     * @param dy step on Oy axis, multiplied by the stride
+     * @return amount of eaten food
+     */
+    static int travelAndLand(Board board, int id, InsectColor color, int dx, int dy) {
+        EntityStore entities = board.getEntities();
+        int x = entities.getX(id);
+        int y = entities.getY(id);
+        int size = board.getSize();
+        int currentScore = 0;
+        int cx = x;
+        int cy = y;
+        boolean blocked = false;
+        int steps = board.nextStop(cx, cy, dx, dy, color);
+        while (steps > 0) {
+            cx += dx * steps;
+            cy += dy * steps;
+            byte cellType = board.getCellType(cx, cy);
+
+            if (cellType == BoardStorage.FOOD) {
+                currentScore += board.getFoodValue(cx, cy);
+                board.removeFood(cx, cy);
+            }
+
+            if (cellType == BoardStorage.INSECT && board.getInsectColorAt(cx, cy) != color) {
+                blocked = true;
+                break;
+            }
+
+            steps = board.nextStop(cx, cy, dx, dy, color);
+        }
+        if (blocked) {
+            cx -= dx;
+            cy -= dy;
+        } else {
+            int toEdge = Integer.MAX_VALUE;
+            if (dx != 0) {
+                toEdge = dx > 0 ? (size - cx) / dx : (cx - 1) / -dx;
+            }
+            if (dy != 0) {
+                toEdge = Math.min(toEdge, dy > 0 ? (size - cy) / dy : (cy - 1) / -dy);
+            }
+            cx += dx * toEdge;
+            cy += dy * toEdge;
+        }
+        while ((cx != x || cy != y) && board.getCellType(cx, cy) != BoardStorage.EMPTY) {
+            cx -= dx;
+            cy -= dy;
+        }
+        if (cx != x || cy != y) {
+            board.moveInsect(id, cx, cy);
+        }
+        return currentScore;
+    }
+}
+
+/**
+ * interface OrthogonalMoving might be used to imitate interface orthogonal moving of different insects
+ */
+interface OrthogonalMoving {
+    /**
+     * function getOrthogonalDirectionVisibleValue might
+     * be used to count possible amount of food which will be eaten
+     * in case following one of orthogonal directions
+     * @param dir - current direction
+     * @param entityPosition - coordinates of an insect
+     * @param board - our board
+     * @param boardSize - size of our board
+     * @return amount of eaten food
+     */
+    public int getOrthogonalDirectionVisibleValue(Direction dir, EntityPosition entityPosition,
+                                                  Board board, int boardSize);
+
+    /**
+     * with the help of a function travelOrthogonally we might count amount of eaten
+     * food while following chosen direction
+     * @param dir - current direction
+     * @param entityPosition - coordinates of an insect
+     * @param color - color of an insect
+     * @param board - our board
+     * @param boardSize - size of our board
+     * @return amount of eaten food
+     */
+    public int travelOrthogonally(Direction dir, EntityPosition entityPosition, InsectColor color,
+                                  Board board, int boardSize);
+}
+
+/**
+ * interface DiagonalMoving might be used to imitate interface diagonal moving of different insects
+ */
+interface DiagonalMoving {
+    /**
+     * function getDiagonalDirectionVisibleValue might
+     * be used to count possible amount of food which will be eaten
+     * in case following one of diagonal directions
+     * @param dir - current direction
+     * @param entityPosition - coordinates of an insect
+     * @param board - our board
+     * @param boardSize - size of our board
+     * @return amount of eaten food
+     */
+    public int getDiagonalDirectionVisibleValue(Direction dir, EntityPosition entityPosition,
+                                                Board board, int boardSize);
+
+    /**
+     * with the help of a function travelDiagonally we might count amount of eaten
+     * food while following chosen direction
+     * @param dir - current direction
+     * @param entityPosition - coordinates of an insect
+     * @param color - color of an insect
+     * @param board - our board
+     * @param boardSize - size of our board
+     * @return amount of eaten food
+     */
+    public int travelDiagonally(Direction dir, EntityPosition entityPosition, InsectColor color,
+                                Board board, int boardSize);
+}
+
+/**
+ * DenseGrid stores every cell of the board in flat primitive arrays:
+ * a cell-type plane, a food-value plane and an insect-id plane.
+ * Cell (x, y) lives at index (x - 1) * size + (y - 1), so a lookup never allocates
+ */
+class DenseGrid {
+    private final int size;
+    private final byte[] cellType;
+    private final int[] foodValue;
+    private final int[] insectId;
+
+    /**
+     * constructor of an empty grid
+     * @param size - size of our board
+     */
+    DenseGrid(int size) {
+        this.size = size;
+        this.cellType = new byte[size * size];
+        this.foodValue = new int[size * size];
+        this.insectId = new int[size * size];
+    }
+
+    /**
+     * index of a cell in the flat planes
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return index in cellType, foodValue and insectId
+     */
+    int index(int x, int y) {
+        return (x - 1) * size + (y - 1);
+    }
+
+    /**
+     * type of the cell: EMPTY, FOOD or INSECT
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return type of the cell
+     */
+    byte getCellType(int x, int y) {
+        return cellType[index(x, y)];
+    }
+
+    /**
+     * check whether the cell is empty
+     * @param index - index of the cell
+     * @return true if there is no entity in the cell
+     */
+    boolean isEmpty(int index) {
+        return cellType[index] == BoardStorage.EMPTY;
+    }
+
+    /**
+     * check whether there is an insect in the cell
+     * @param index - index of the cell
+     * @return true if the cell type is INSECT
+     */
+    boolean isInsect(int index) {
+        return cellType[index] == BoardStorage.INSECT;
+    }
+
+    /**
+     * id of the insect in the cell
+     * @param index - index of the cell
+     * @return id of the insect, only meaningful when the cell type is INSECT
+     */
+    int getInsectId(int index) {
+        return insectId[index];
+    }
+
+    /**
+     * amount of food in the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return amount of food, 0 if there is no food
+     */
+    int getFoodValue(int x, int y) {
+        return foodValue[index(x, y)];
+    }
+
+    /**
+     * id of the insect in the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return id of the insect, only meaningful when the cell type is INSECT
+     */
+    int getInsectId(int x, int y) {
+        return insectId[index(x, y)];
+    }
+
+    /**
+     * put food in the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param value amount of food
+     */
+    void putFood(int x, int y, int value) {
+        int i = index(x, y);
+        cellType[i] = BoardStorage.FOOD;
+        foodValue[i] = value;
+    }
+
+    /**
+     * put an insect in the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param id id of the insect
+     */
+    void putInsect(int x, int y, int id) {
+        int i = index(x, y);
+        cellType[i] = BoardStorage.INSECT;
+        insectId[i] = id;
+    }
+
+    /**
+     * make the cell empty
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     */
+    void clear(int x, int y) {
+        int i = index(x, y);
+        cellType[i] = BoardStorage.EMPTY;
+        foodValue[i] = 0;
+    }
+}
+
+/**
+ * FenwickLines is a family of binary indexed trees, one per line of the board
+ * (a row, a column or a diagonal), stored one after another in a single array.
+ * Positions on a line are 1-based
+ */
+class FenwickLines {
+    private final int capacity;
+    private final int[] tree;
+
+    /**
+     * constructor of a family of empty trees
+     * @param lines - number of lines
+     * @param capacity - number of positions on each line
+     */
+    FenwickLines(int lines, int capacity) {
+        this.capacity = capacity;
+        this.tree = new int[lines * capacity];
+    }
+
+    /**
+     * add delta to one position of a line
+     * @param line - number of the line
+     * @param position - position on the line, from 1 to capacity
+     * @param delta - value to add
+     */
+    void add(int line, int position, int delta) {
+        int offset = line * capacity - 1;
+        for (int i = position; i <= capacity; i += i & -i) {
+            tree[offset + i] += delta;
+        }
+    }
+
+    /**
+     * sum of positions from 1 to position on a line
+     * @param line - number of the line
+     * @param position - last position to count
+     * @return sum of values
+     */
+    int prefix(int line, int position) {
+        int offset = line * capacity - 1;
+        int sum = 0;
+        for (int i = Math.min(position, capacity); i > 0; i -= i & -i) {
+            sum += tree[offset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * sum of positions from "from" to "to" on a line, both included
+     * @param line - number of the line
+     * @param from - first position to count
+     * @param to - last position to count
+     * @return sum of values, 0 for an empty range
+     */
+    int sum(int line, int from, int to) {
+        if (from > to) {
+            return 0;
+        }
+        return prefix(line, to) - prefix(line, from - 1);
+    }
+}
+
+/**
+ * FoodLineIndex keeps food values in Fenwick trees over every row, column,
+ * diagonal and anti-diagonal, plus rows and columns split by parity for
+ * the stride-2 rays of a grasshopper. The food visible along a ray is then
+ * a range query, and eating food is a point update.
+ * Every family of trees is built on its first query
+ */
+class FoodLineIndex {
+    private final int size;
+    private final DenseGrid grid;
+
+    /**
+     * coordinates of all food points which were put on the board, packed as x * (size + 1) + y
+     */
+    private int[] foodCells = new int[16];
+    private int foodCount;
+
+    /**
+     * cells which are in foodCells, so that food which grows again is not registered twice
+     */
+    private final long[] registered;
+
+    private FenwickLines rows;
+    private FenwickLines columns;
+    private FenwickLines diagonals;
+    private FenwickLines antiDiagonals;
+    private FenwickLines rowsByParity;
+    private FenwickLines columnsByParity;
+
+    /**
+     * constructor of the index
+     * @param size - size of our board
+     * @param grid - cells of our board, used to build trees lazily
+     */
+    FoodLineIndex(int size, DenseGrid grid) {
+        this.size = size;
+        this.grid = grid;
+        this.registered = new long[(size * size + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    /**
+     * register a new food point, or food which grew again, its value is read from the grid
+     * @param x first coordinate of the food point
+     * @param y second coordinate of the food point
+     */
+    void addFood(int x, int y) {
+        int cell = grid.index(x, y);
+        if ((registered[cell / Long.SIZE] & 1L << cell) == 0) {
+            registered[cell / Long.SIZE] |= 1L << cell;
+            if (foodCount == foodCells.length) {
+                foodCells = Arrays.copyOf(foodCells, foodCount * 2);
+            }
+            foodCells[foodCount++] = x * (size + 1) + y;
+        }
+        update(x, y, grid.getFoodValue(x, y));
+    }
+
+    /**
+     * update trees after food was eaten
+     * @param x first coordinate of the food point
+     * @param y second coordinate of the food point
+     * @param value amount of eaten food
+     */
+    void removeFood(int x, int y, int value) {
+        update(x, y, -value);
+    }
+
+    /**
+     * apply a change of food value to every tree which is already built
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param delta change of food value
+     */
+    private void update(int x, int y, int delta) {
+        if (rows != null) {
+            rows.add(x - 1, y, delta);
+        }
+        if (columns != null) {
+            columns.add(y - 1, x, delta);
+        }
+        if (diagonals != null) {
+            diagonals.add(x - y + size - 1, x, delta);
+        }
+        if (antiDiagonals != null) {
+            antiDiagonals.add(x + y - 2, x, delta);
+        }
+        if (rowsByParity != null) {
+            rowsByParity.add((x - 1) * 2 + (y - 1) % 2, (y - 1) / 2 + 1, delta);
+        }
+        if (columnsByParity != null) {
+            columnsByParity.add((y - 1) * 2 + (x - 1) % 2, (x - 1) / 2 + 1, delta);
+        }
+    }
+
+    /**
+     * fill a new family of trees with the food which is still on the board
+     * @param family - trees to fill
+     * @param kind - which family it is, the same number as in raySum
+     * @return filled family
+     */
+    private FenwickLines build(FenwickLines family, int kind) {
+        for (int i = 0; i < foodCount; i++) {
+            int x = foodCells[i] / (size + 1);
+            int y = foodCells[i] % (size + 1);
+            if (grid.getCellType(x, y) != BoardStorage.FOOD) {
+                continue;
+            }
+            int value = grid.getFoodValue(x, y);
+            switch (kind) {
+                case 0:
+                    family.add(x - 1, y, value);
+                    break;
+                case 1:
+                    family.add(y - 1, x, value);
+                    break;
+                case 2:
+                    family.add(x - y + size - 1, x, value);
+                    break;
+                case 3:
+                    family.add(x + y - 2, x, value);
+                    break;
+                case 4:
+                    family.add((x - 1) * 2 + (y - 1) % 2, (y - 1) / 2 + 1, value);
+                    break;
+                default:
+                    family.add((y - 1) * 2 + (x - 1) % 2, (x - 1) / 2 + 1, value);
+                    break;
+            }
+        }
+        return family;
+    }
+
+    /**
+     * build all families of trees, after that raySum does not change the index
+     */
+    void prepare() {
+        int half = (size + 1) / 2;
+        if (rows == null) {
+            rows = build(new FenwickLines(size, size), 0);
+        }
+        if (columns == null) {
+            columns = build(new FenwickLines(size, size), 1);
+        }
+        if (diagonals == null) {
+            diagonals = build(new FenwickLines(2 * size - 1, size), 2);
+        }
+        if (antiDiagonals == null) {
+            antiDiagonals = build(new FenwickLines(2 * size - 1, size), 3);
+        }
+        if (rowsByParity == null) {
+            rowsByParity = build(new FenwickLines(2 * size, half), 4);
+        }
+        if (columnsByParity == null) {
+            columnsByParity = build(new FenwickLines(2 * size, half), 5);
+        }
+    }
+
+    /**
+     * sum of food visible from the cell (x, y) along a ray, the cell itself is not counted.
+     * dx and dy are -1, 0 or 1, or -2, 0 or 2 for orthogonal rays of a grasshopper
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param dx step on Ox axis
+     * @param dy step on Oy axis
+     * @return amount of visible food
+     */
+    int raySum(int x, int y, int dx, int dy) {
+        if (dx == 0 && (dy == 1 || dy == -1)) {
+            if (rows == null) {
+                rows = build(new FenwickLines(size, size), 0);
+            }
+            return dy > 0 ? rows.sum(x - 1, y + 1, size) : rows.prefix(x - 1, y - 1);
+        }
+        if (dy == 0 && (dx == 1 || dx == -1)) {
+            if (columns == null) {
+                columns = build(new FenwickLines(size, size), 1);
+            }
+            return dx > 0 ? columns.sum(y - 1, x + 1, size) : columns.prefix(y - 1, x - 1);
+        }
+        if (dx == dy && dx != 0) {
+            if (diagonals == null) {
+                diagonals = build(new FenwickLines(2 * size - 1, size), 2);
+            }
+            int line = x - y + size - 1;
+            return dx > 0 ? diagonals.sum(line, x + 1, size) : diagonals.prefix(line, x - 1);
+        }
+        if (dx == -dy && dx != 0) {
+            if (antiDiagonals == null) {
+                antiDiagonals = build(new FenwickLines(2 * size - 1, size), 3);
+            }
+            int line = x + y - 2;
+            return dx > 0 ? antiDiagonals.sum(line, x + 1, size) : antiDiagonals.prefix(line, x - 1);
+        }
+        int half = (size + 1) / 2;
+        if (dx == 0 && (dy == 2 || dy == -2)) {
+            if (rowsByParity == null) {
+                rowsByParity = build(new FenwickLines(2 * size, half), 4);
+            }
+            int line = (x - 1) * 2 + (y - 1) % 2;
+            int position = (y - 1) / 2 + 1;
+            return dy > 0 ? rowsByParity.sum(line, position + 1, half) : rowsByParity.prefix(line, position - 1);
+        }
+        if (dy == 0 && (dx == 2 || dx == -2)) {
+            if (columnsByParity == null) {
+                columnsByParity = build(new FenwickLines(2 * size, half), 5);
+            }
+            int line = (y - 1) * 2 + (x - 1) % 2;
+            int position = (x - 1) / 2 + 1;
+            return dx > 0 ? columnsByParity.sum(line, position + 1, half) : columnsByParity.prefix(line, position - 1);
+        }
+        return 0;
+    }
+}
+
+/**
+ * SkipIndex gives the next occupied cell along a ray, so that a ray jumps over
+ * empty cells. For every ray step (dx, dy), with dx and dy from -2 to 2, it keeps
+ * a pointer per cell in a disjoint-set forest: a cell points to itself while it is
+ * occupied and to the next cell of the ray once it is empty. Paths are halved on
+ * every lookup. Cells are only ever emptied during a simulation, which keeps the
+ * pointers valid. A pointer array is allocated on the first ray with its step and
+ * a zero entry means the pointer was not computed yet
+ */
+class SkipIndex {
+    private final int size;
+    private final int end;
+    private final DenseGrid grid;
+    private final int[][] pointers = new int[25][];
+
+    /**
+     * constructor of the index
+     * @param size - size of our board
+     * @param grid - cells of our board
+     */
+    SkipIndex(int size, DenseGrid grid) {
+        this.size = size;
+        this.end = size * size;
+        this.grid = grid;
+    }
+
+    /**
+     * next cell of a ray
+     * @param cell - index of the current cell
+     * @param dx step on Ox axis
+     * @param dy step on Oy axis
+     * @return index of the next cell, or end if the ray leaves the board
+     */
+    private int step(int cell, int dx, int dy) {
+        int x = cell / size + dx;
+        int y = cell % size + dy;
+        if (x < 0 || y < 0 || x >= size || y >= size) {
+            return end;
+        }
+        return x * size + y;
+    }
+
+    /**
+     * parent of a cell in the forest of the given ray step
+     * @param p - pointers of the ray step
+     * @param cell - index of the cell
+     * @param dx step on Ox axis
+     * @param dy step on Oy axis
+     * @return index of the parent cell
+     */
+    private int parent(int[] p, int cell, int dx, int dy) {
+        if (cell == end) {
+            return end;
+        }
+        if (p[cell] != 0) {
+            return p[cell] - 1;
+        }
+        int parent = grid.isEmpty(cell) ? step(cell, dx, dy) : cell;
+        p[cell] = parent + 1;
+        return parent;
+    }
+
+    /**
+     * first occupied cell of the ray, which starts after the cell (x, y)
+     * @param x first coordinate of the start cell
+     * @param y second coordinate of the start cell
+     * @param dx step on Ox axis
+     * @param dy step on Oy axis
+     * @return index of the occupied cell, or -1 if there is none up to the board edge
+     */
+    int next(int x, int y, int dx, int dy) {
+        int key = (dx + 2) * 5 + dy + 2;
+        int[] p = pointers[key];
+        if (p == null) {
+            p = new int[end];
+            pointers[key] = p;
+        }
+        int cell = step(grid.index(x, y), dx, dy);
+        int parent = parent(p, cell, dx, dy);
+        while (parent != cell) {
+            int grandParent = parent(p, parent, dx, dy);
+            p[cell] = grandParent + 1;
+            cell = grandParent;
+            parent = parent(p, cell, dx, dy);
+        }
+        return cell == end ? -1 : cell;
+    }
+
+    /**
+     * forget all pointers after a cell became occupied, a pointer may jump over the cell
+     * and there is no way back in a compressed forest. Pointers are found again lazily,
+     * it costs O(d^2), but the index is used only for boards smaller than 64
+     */
+    void insert() {
+        for (int[] p : pointers) {
+            if (p != null) {
+                Arrays.fill(p, 0);
+            }
+        }
+    }
+
+    /**
+     * update pointers after the cell became empty
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     */
+    void remove(int x, int y) {
+        int cell = grid.index(x, y);
+        for (int key = 0; key < pointers.length; key++) {
+            if (pointers[key] != null) {
+                pointers[key][cell] = step(cell, key / 5 - 2, key % 5 - 2) + 1;
+            }
+        }
+    }
+}
+
+/**
+ * Bitboards keeps occupancy of the board in long[] bit planes: one plane for food
+ * and one plane per InsectColor for insects. Every plane exists in four layouts,
+ * so that any ray is a run of consecutive bits: rows, columns, diagonals (x - y is
+ * constant) and anti-diagonals (x + y is constant), each line ordered by x, or by y
+ * for rows. A ray is then scanned 64 cells at a time with
+ * Long.numberOfTrailingZeros and Long.numberOfLeadingZeros
+ */
+class Bitboards {
+    private static final int ROWS = 0;
+    private static final int COLUMNS = 1;
+    private static final int DIAGONALS = 2;
+    private static final int ANTI_DIAGONALS = 3;
+    private static final int LAYOUTS = 4;
+    private static final long EVEN_BITS = 0x5555555555555555L;
+    private static final long ODD_BITS = 0xAAAAAAAAAAAAAAAAL;
+
+    private final int size;
+
+    /**
+     * first bit of every diagonal line, the same offsets serve both diagonal layouts
+     */
+    private final int[] lineStart;
+    private final long[][] food = new long[LAYOUTS][];
+    private final long[][][] insects = new long[InsectColor.values().length][LAYOUTS][];
+
+    /**
+     * constructor of empty planes
+     * @param size - size of our board
+     */
+    Bitboards(int size) {
+        this.size = size;
+        int words = (size * size + 63) >>> 6;
+        for (int layout = 0; layout < LAYOUTS; layout++) {
+            food[layout] = new long[words];
+            for (long[][] planes : insects) {
+                planes[layout] = new long[words];
+            }
+        }
+        lineStart = new int[2 * size - 1];
+        for (int line = 1; line < lineStart.length; line++) {
+            lineStart[line] = lineStart[line - 1] + size - Math.abs(line - 1 - (size - 1));
+        }
+    }
+
+    /**
+     * position of the cell (x, y) in a layout
+     * @param layout - one of ROWS, COLUMNS, DIAGONALS and ANTI_DIAGONALS
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return number of the bit
+     */
+    private int position(int layout, int x, int y) {
+        switch (layout) {
+            case ROWS:
+                return (x - 1) * size + (y - 1);
+            case COLUMNS:
+                return (y - 1) * size + (x - 1);
+            case DIAGONALS:
+                return lineStart[x - y + size - 1] + x - Math.max(1, x - y + 1);
+            default:
+                return lineStart[x + y - 2] + x - Math.max(1, x + y - size);
+        }
+    }
+
+    /**
+     * set or clear the bit of the cell (x, y) in every layout of a plane
+     * @param planes - plane in all layouts
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param value - true to set the bit, false to clear it
+     */
+    private void mark(long[][] planes, int x, int y, boolean value) {
+        for (int layout = 0; layout < LAYOUTS; layout++) {
+            int bit = position(layout, x, y);
+            if (value) {
+                planes[layout][bit >>> 6] |= 1L << bit;
+            } else {
+                planes[layout][bit >>> 6] &= ~(1L << bit);
+            }
+        }
+    }
+
+    /**
+     * mark food in the cell (x, y)
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param value - true if there is food, false if it was eaten
+     */
+    void markFood(int x, int y, boolean value) {
+        mark(food, x, y, value);
+    }
+
+    /**
+     * mark an insect in the cell (x, y)
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param color - color of the insect
+     * @param value - true if the insect is there, false if it left
+     */
+    void markInsect(int x, int y, InsectColor color, boolean value) {
+        mark(insects[color.ordinal()], x, y, value);
+    }
+
+    /**
+     * one word of the union of food and insects of every color except one
+     * @param layout - layout of planes
+     * @param word - number of the word
+     * @param color - ordinal of the color, whose insects do not stop a ray
+     * @return bits of cells where a ray stops
+     */
+    private long stops(int layout, int word, int color) {
+        long bits = food[layout][word];
+        for (int c = 0; c < insects.length; c++) {
+            if (c != color) {
+                bits |= insects[c][layout][word];
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * first cell of a ray, which starts after the cell (x, y), with food or with an insect
+     * of another color
+     * @param x first coordinate of the start cell
+     * @param y second coordinate of the start cell
+     * @param dx step on Ox axis, from -2 to 2
+     * @param dy step on Oy axis, from -2 to 2
+     * @param color - color of the moving insect
+     * @return number of steps to that cell, or -1 if the ray reaches the board edge
+     */
+    int nextStop(int x, int y, int dx, int dy, InsectColor color) {
+        int steps = Integer.MAX_VALUE;
+        if (dx != 0) {
+            steps = dx > 0 ? (size - x) / dx : (x - 1) / -dx;
+        }
+        if (dy != 0) {
+            steps = Math.min(steps, dy > 0 ? (size - y) / dy : (y - 1) / -dy);
+        }
+        if (steps == 0 || steps == Integer.MAX_VALUE) {
+            return -1;
+        }
+        int layout;
+        int sign;
+        if (dx == 0) {
+            layout = ROWS;
+            sign = dy;
+        } else if (dy == 0) {
+            layout = COLUMNS;
+            sign = dx;
+        } else if (dx == dy) {
+            layout = DIAGONALS;
+            sign = dx;
+        } else {
+            layout = ANTI_DIAGONALS;
+            sign = dx;
+        }
+        int stride = Math.abs(sign);
+        int start = position(layout, x, y);
+        int found;
+        if (sign > 0) {
+            found = scanForward(layout, start + stride, start + stride * steps, stride, color.ordinal());
+        } else {
+            found = scanBackward(layout, start - stride, start - stride * steps, stride, color.ordinal());
+        }
+        return found < 0 ? -1 : Math.abs(found - start) / stride;
+    }
+
+    /**
+     * find the lowest stop bit between two positions
+     * @param layout - layout of planes
+     * @param from - first position, included
+     * @param to - last position, included
+     * @param stride - 1, or 2 to look only at positions of the same parity as from
+     * @param color - ordinal of the color of the moving insect
+     * @return position of the bit, or -1
+     */
+    private int scanForward(int layout, int from, int to, int stride, int color) {
+        long parity = stride == 1 ? -1L : (from & 1) == 0 ? EVEN_BITS : ODD_BITS;
+        long mask = -1L << from;
+        int last = to >>> 6;
+        for (int word = from >>> 6; word <= last; word++) {
+            long bits = stops(layout, word, color) & mask & parity;
+            if (word == last) {
+                bits &= -1L >>> (63 - (to & 63));
+            }
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            mask = -1L;
+        }
+        return -1;
+    }
+
+    /**
+     * find the highest stop bit between two positions
+     * @param layout - layout of planes
+     * @param from - first position, included, it is the highest one
+     * @param to - last position, included
+     * @param stride - 1, or 2 to look only at positions of the same parity as from
+     * @param color - ordinal of the color of the moving insect
+     * @return position of the bit, or -1
+     */
+    private int scanBackward(int layout, int from, int to, int stride, int color) {
+        long parity = stride == 1 ? -1L : (from & 1) == 0 ? EVEN_BITS : ODD_BITS;
+        long mask = -1L >>> (63 - (from & 63));
+        int last = to >>> 6;
+        for (int word = from >>> 6; word >= last; word--) {
+            long bits = stops(layout, word, color) & mask & parity;
+            if (word == last) {
+                bits &= -1L << to;
+            }
+            if (bits != 0) {
+                return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+            }
+            mask = -1L;
+        }
+        return -1;
+    }
+}
+
+/**
+ * LongIntHashMap is an open-addressing hash map from long keys to non-negative
+ * int values with linear probing, so that neither keys nor values are boxed.
+ * The key 0 is reserved to mark empty slots
+ */
+class LongIntHashMap {
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int count;
+
+    /**
+     * constructor of an empty map
+     * @param expected - expected number of keys
+     */
+    LongIntHashMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) * 2;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * slot where a key starts probing
+     * @param key - key of the map
+     * @return number of the slot
+     */
+    private int home(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * value of a key
+     * @param key - key of the map, not 0
+     * @return value, or -1 if there is no such key
+     */
+    int get(long key) {
+        for (int i = home(key); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * put a value for a key, replacing the previous one
+     * @param key - key of the map, not 0
+     * @param value - non-negative value
+     */
+    void put(long key, int value) {
+        if ((count + 1) * 2 > keys.length) {
+            grow();
+        }
+        int i = home(key);
+        while (keys[i] != 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == 0) {
+            count++;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    /**
+     * remove a key, later keys of its probe run are shifted back, so no tombstones are left
+     * @param key - key of the map, not 0
+     */
+    void remove(long key) {
+        int i = home(key);
+        while (keys[i] != key) {
+            if (keys[i] == 0) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        count--;
+        int hole = i;
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int h = home(keys[j]);
+            if (((j - h) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = 0;
+    }
+
+    /**
+     * double the capacity of the map
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        count = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
+
+/**
+ * SparseGrid stores only occupied cells of a huge board. A cell (x, y) is a packed
+ * long key x << 32 | y in a LongIntHashMap, which points to a compact entity slot:
+ * cell type, insect color and a value, which is the amount of food or the insect id
+ */
+class SparseGrid {
+    private final LongIntHashMap slots;
+    private byte[] cellType = new byte[16];
+    private byte[] color = new byte[16];
+    private int[] value = new int[16];
+    private int[] xs = new int[16];
+    private int[] ys = new int[16];
+    private int slotCount;
+
+    /**
+     * slots of cleared cells, they are taken again before new ones
+     */
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+
+    /**
+     * constructor of an empty grid
+     * @param expected - expected number of entities
+     */
+    SparseGrid(int expected) {
+        slots = new LongIntHashMap(expected);
+    }
+
+    /**
+     * packed key of a cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return key of the cell
+     */
+    static long key(int x, int y) {
+        return (long) x << 32 | y;
+    }
+
+    /**
+     * type of the cell: EMPTY, FOOD or INSECT
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return type of the cell
+     */
+    byte getCellType(int x, int y) {
+        int slot = slots.get(key(x, y));
+        return slot < 0 ? BoardStorage.EMPTY : cellType[slot];
+    }
+
+    /**
+     * amount of food in the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return amount of food, 0 if there is no food
+     */
+    int getFoodValue(int x, int y) {
+        int slot = slots.get(key(x, y));
+        return slot < 0 || cellType[slot] != BoardStorage.FOOD ? 0 : value[slot];
+    }
+
+    /**
+     * id of the insect in the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return id of the insect, only meaningful when the cell type is INSECT
+     */
+    int getInsectId(int x, int y) {
+        return value[slots.get(key(x, y))];
+    }
+
+    /**
+     * check whether a ray moving with the given color has to stop in the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param insectColor - color of the moving insect
+     * @return true if there is food or an insect of another color
+     */
+    boolean isStop(int x, int y, InsectColor insectColor) {
+        int slot = slots.get(key(x, y));
+        if (slot < 0) {
+            return false;
+        }
+        return cellType[slot] == BoardStorage.FOOD || color[slot] != insectColor.ordinal();
+    }
+
+    /**
+     * take a new slot for an entity
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param type - type of the entity
+     * @param entityColor - ordinal of the insect color, 0 for food
+     * @param entityValue - amount of food or insect id
+     */
+    private void put(int x, int y, byte type, int entityColor, int entityValue) {
+        if (freeCount > 0) {
+            int slot = freeSlots[--freeCount];
+            fill(slot, x, y, type, entityColor, entityValue);
+            slots.put(key(x, y), slot);
+            return;
+        }
+        if (slotCount == cellType.length) {
+            int capacity = slotCount * 2;
+            cellType = Arrays.copyOf(cellType, capacity);
+            color = Arrays.copyOf(color, capacity);
+            value = Arrays.copyOf(value, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+        }
+        fill(slotCount, x, y, type, entityColor, entityValue);
+        slots.put(key(x, y), slotCount++);
+    }
+
+    /**
+     * write an entity into a slot
+     */
+    private void fill(int slot, int x, int y, byte type, int entityColor, int entityValue) {
+        cellType[slot] = type;
+        color[slot] = (byte) entityColor;
+        value[slot] = entityValue;
+        xs[slot] = x;
+        ys[slot] = y;
+    }
+
+    /**
+     * put food in the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param foodValue amount of food
+     */
+    void putFood(int x, int y, int foodValue) {
+        put(x, y, BoardStorage.FOOD, 0, foodValue);
+    }
+
+    /**
+     * put an insect in the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param id id of the insect
+     * @param insectColor color of the insect
+     */
+    void putInsect(int x, int y, int id, InsectColor insectColor) {
+        put(x, y, BoardStorage.INSECT, insectColor.ordinal(), id);
+    }
+
+    /**
+     * make the cell empty, its slot is taken again by the next entity
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     */
+    void clear(int x, int y) {
+        long key = key(x, y);
+        int slot = slots.get(key);
+        if (slot >= 0) {
+            cellType[slot] = BoardStorage.EMPTY;
+            slots.remove(key);
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    /**
+     * number of slots which were ever taken
+     * @return number of slots
+     */
+    int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * check whether the entity of a slot is still on the board
+     * @param slot - number of the slot
+     * @return true if the slot is not empty
+     */
+    boolean isLive(int slot) {
+        return cellType[slot] != BoardStorage.EMPTY;
+    }
+
+    /**
+     * first coordinate of the entity of a slot
+     * @param slot - number of the slot
+     * @return x coordinate
+     */
+    int slotX(int slot) {
+        return xs[slot];
+    }
+
+    /**
+     * second coordinate of the entity of a slot
+     * @param slot - number of the slot
+     * @return y coordinate
+     */
+    int slotY(int slot) {
+        return ys[slot];
+    }
+
+    /**
+     * amount of food of a slot
+     * @param slot - number of the slot
+     * @return amount of food, 0 for insects
+     */
+    int slotFood(int slot) {
+        return cellType[slot] == BoardStorage.FOOD ? value[slot] : 0;
+    }
+}
+
+/**
+ * SparseLineIndex keeps, for every row, column, diagonal and anti-diagonal with
+ * entities, the sorted positions of those entities and a Fenwick tree over their
+ * food values. Rows and columns are also split by parity for stride-2 rays.
+ * A ray jumps from one entity of its line to the next, and visible food is a range
+ * query, so nothing depends on the board size. Lines are built on the first query
+ * from the entities on the board; after that entities may only be removed
+ */
+class SparseLineIndex {
+    private static final int ROWS = 0;
+    private static final int COLUMNS = 1;
+    private static final int DIAGONALS = 2;
+    private static final int ANTI_DIAGONALS = 3;
+    private static final int ROWS_BY_PARITY = 4;
+    private static final int COLUMNS_BY_PARITY = 5;
+    private static final int FAMILIES = 6;
+
+    private final int size;
+    private final SparseGrid grid;
+    private boolean built;
+
+    /**
+     * for every family: line number to ordinal of the line
+     */
+    private final LongIntHashMap[] lineOrdinal = new LongIntHashMap[FAMILIES];
+
+    /**
+     * for every family: first entry of each line, plus the end of the last line
+     */
+    private final int[][] lineStart = new int[FAMILIES][];
+
+    /**
+     * for every family: positions of entities, sorted inside each line
+     */
+    private final int[][] positions = new int[FAMILIES][];
+
+    /**
+     * for every family: Fenwick trees over food values, one per line
+     */
+    private final int[][] trees = new int[FAMILIES][];
+
+    /**
+     * longest list of pending entries of a line, a longer one is merged into the overflow
+     */
+    private static final int PENDING_LINE_LIMIT = 32;
+
+    /**
+     * cells which got an insect after the index was built and are not in sorted lines:
+     * line and family to the last pending entry of that line, entries are linked lists
+     * in parallel arrays, the head of a list keeps its length. Insects have no food, so
+     * trees do not need them
+     */
+    private LongIntHashMap pendingHead = new LongIntHashMap(0);
+    private int[] pendingPosition = new int[16];
+    private int[] pendingNext = new int[16];
+    private int[] pendingLength = new int[16];
+    private int pendingCount;
+
+    /**
+     * line and family to a sorted array of merged pending positions of that line,
+     * so lines where many insects land, like board edges, are searched by halves too
+     */
+    private LongIntHashMap overflowIndex = new LongIntHashMap(0);
+    private int[][] overflow = new int[4][];
+    private int overflowCount;
+
+    /**
+     * number of entities, when the index was built last time
+     */
+    private int builtEntities;
+
+    /**
+     * constructor of the index
+     * @param size - size of our board
+     * @param grid - occupied cells of our board
+     */
+    SparseLineIndex(int size, SparseGrid grid) {
+        this.size = size;
+        this.grid = grid;
+    }
+
+    /**
+     * line of a cell in a family, it is never 0 so it can be a LongIntHashMap key
+     * @param family - family of lines
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return number of the line
+     */
+    private long line(int family, int x, int y) {
+        switch (family) {
+            case ROWS:
+                return x;
+            case COLUMNS:
+                return y;
+            case DIAGONALS:
+                return (long) x - y + size;
+            case ANTI_DIAGONALS:
+                return (long) x + y;
+            case ROWS_BY_PARITY:
+                return (long) x * 2 + (y & 1);
+            default:
+                return (long) y * 2 + (x & 1);
+        }
+    }
+
+    /**
+     * position of a cell on its line: y for rows, x for every other family
+     * @param family - family of lines
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return position on the line
+     */
+    private static int position(int family, int x, int y) {
+        return family == ROWS || family == ROWS_BY_PARITY ? y : x;
+    }
+
+    /**
+     * build all families from the entities which are on the board now
+     */
+    private void build() {
+        built = true;
+        pendingHead = new LongIntHashMap(0);
+        pendingCount = 0;
+        overflowIndex = new LongIntHashMap(0);
+        overflow = new int[4][];
+        overflowCount = 0;
+        builtEntities = 0;
+        int slots = grid.getSlotCount();
+        for (int family = 0; family < FAMILIES; family++) {
+            long[] entries = new long[slots];
+            int count = 0;
+            LongIntHashMap ordinals = new LongIntHashMap(slots);
+            int lines = 0;
+            for (int slot = 0; slot < slots; slot++) {
+                if (!grid.isLive(slot)) {
+                    continue;
+                }
+                int x = grid.slotX(slot);
+                int y = grid.slotY(slot);
+                long line = line(family, x, y);
+                int ordinal = ordinals.get(line);
+                if (ordinal < 0) {
+                    ordinal = lines++;
+                    ordinals.put(line, ordinal);
+                }
+                entries[count++] = (long) ordinal << 32 | position(family, x, y);
+            }
+            builtEntities = count;
+            Arrays.sort(entries, 0, count);
+            int[] starts = new int[lines + 1];
+            int[] sorted = new int[count];
+            for (int i = 0; i < count; i++) {
+                starts[(int) (entries[i] >>> 32) + 1]++;
+                sorted[i] = (int) entries[i];
+            }
+            for (int i = 0; i < lines; i++) {
+                starts[i + 1] += starts[i];
+            }
+            lineOrdinal[family] = ordinals;
+            lineStart[family] = starts;
+            positions[family] = sorted;
+            trees[family] = new int[count];
+        }
+        for (int slot = 0; slot < slots; slot++) {
+            if (grid.isLive(slot) && grid.slotFood(slot) != 0) {
+                update(grid.slotX(slot), grid.slotY(slot), grid.slotFood(slot));
+            }
+        }
+    }
+
+    /**
+     * number of entries of a line, whose position is less than a given one
+     * @param family - family of lines
+     * @param from - first entry of the line
+     * @param to - end of the line
+     * @param position - position to compare with
+     * @return index of the first entry with a position not less than the given one
+     */
+    private int lowerBound(int family, int from, int to, int position) {
+        return lowerBound(positions[family], from, to, position);
+    }
+
+    /**
+     * first entry of sorted positions, which is not less than a given one
+     * @param sorted - sorted positions
+     * @param from - first entry to look at
+     * @param to - end of entries
+     * @param position - position to compare with
+     * @return index of the entry, or to if there is none
+     */
+    private static int lowerBound(int[] sorted, int from, int to, int position) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * apply a change of food value of a cell to every family
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param delta change of food value
+     */
+    private void update(int x, int y, int delta) {
+        for (int family = 0; family < FAMILIES; family++) {
+            int ordinal = lineOrdinal[family].get(line(family, x, y));
+            int from = lineStart[family][ordinal];
+            int to = lineStart[family][ordinal + 1];
+            int index = lowerBound(family, from, to, position(family, x, y)) - from + 1;
+            for (int i = index; i <= to - from; i += i & -i) {
+                trees[family][from + i - 1] += delta;
+            }
+        }
+    }
+
+    /**
+     * sum of food of the first entries of a line
+     * @param family - family of lines
+     * @param from - first entry of the line
+     * @param count - number of entries to count
+     * @return amount of food
+     */
+    private int prefix(int family, int from, int count) {
+        int sum = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += trees[family][from + i - 1];
+        }
+        return sum;
+    }
+
+    /**
+     * update trees after food was eaten, the grid must still have the food
+     * @param x first coordinate of the food point
+     * @param y second coordinate of the food point
+     * @param value amount of eaten food
+     */
+    void removeFood(int x, int y, int value) {
+        if (built) {
+            update(x, y, -value);
+        }
+    }
+
+    /**
+     * family which holds a ray
+     * @param dx step on Ox axis
+     * @param dy step on Oy axis
+     * @param byParity - true to use rows and columns split by parity for stride-2 rays
+     * @return family of lines
+     */
+    private static int family(int dx, int dy, boolean byParity) {
+        if (dx == 0) {
+            return byParity && (dy == 2 || dy == -2) ? ROWS_BY_PARITY : ROWS;
+        }
+        if (dy == 0) {
+            return byParity && (dx == 2 || dx == -2) ? COLUMNS_BY_PARITY : COLUMNS;
+        }
+        return dx == dy ? DIAGONALS : ANTI_DIAGONALS;
+    }
+
+    /**
+     * build the index now, after that queries do not change it
+     */
+    void prepare() {
+        if (!built) {
+            build();
+        }
+    }
+
+    /**
+     * find a cell in sorted lines
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return true if the index was built with an entity in this cell
+     */
+    private boolean contains(int x, int y) {
+        int ordinal = lineOrdinal[ROWS].get(line(ROWS, x, y));
+        if (ordinal < 0) {
+            return false;
+        }
+        int to = lineStart[ROWS][ordinal + 1];
+        int index = lowerBound(ROWS, lineStart[ROWS][ordinal], to, y);
+        return index < to && positions[ROWS][index] == y;
+    }
+
+    /**
+     * update the index after food was put on the board, the grid must already have it.
+     * A cell which was in sorted lines, like a cell where food grows again, only changes
+     * trees, food in a new cell needs a new entry of trees, so the index is built again
+     * @param x first coordinate of the food point
+     * @param y second coordinate of the food point
+     * @param value amount of food
+     */
+    void addFood(int x, int y, int value) {
+        if (!built) {
+            return;
+        }
+        if (contains(x, y)) {
+            update(x, y, value);
+        } else {
+            built = false;
+        }
+    }
+
+    /**
+     * update the index after an insect was put on the board. A new cell goes to pending
+     * entries of its lines, the index is built again when there are as many pending
+     * entries as there were entities, so every put costs O(log) on average
+     * @param x first coordinate of the insect
+     * @param y second coordinate of the insect
+     */
+    void addInsect(int x, int y) {
+        if (!built || contains(x, y)) {
+            return;
+        }
+        if (pendingCount + FAMILIES > Math.max(builtEntities, 1) * FAMILIES) {
+            built = false;
+            return;
+        }
+        if (pendingCount + FAMILIES > pendingPosition.length) {
+            int length = pendingPosition.length * 2;
+            pendingPosition = Arrays.copyOf(pendingPosition, length);
+            pendingNext = Arrays.copyOf(pendingNext, length);
+            pendingLength = Arrays.copyOf(pendingLength, length);
+        }
+        for (int family = 0; family < FAMILIES; family++) {
+            long key = line(family, x, y) * FAMILIES + family;
+            int head = pendingHead.get(key);
+            pendingPosition[pendingCount] = position(family, x, y);
+            pendingNext[pendingCount] = head;
+            pendingLength[pendingCount] = head < 0 ? 1 : pendingLength[head] + 1;
+            if (pendingLength[pendingCount] > PENDING_LINE_LIMIT) {
+                merge(key, pendingCount);
+                pendingHead.remove(key);
+            } else {
+                pendingHead.put(key, pendingCount);
+            }
+            pendingCount++;
+        }
+    }
+
+    /**
+     * merge a list of pending entries into the sorted overflow array of its line
+     * @param key - line and family
+     * @param head - last entry of the list
+     */
+    private void merge(long key, int head) {
+        int index = overflowIndex.get(key);
+        int[] old = index < 0 ? new int[0] : overflow[index];
+        int[] added = new int[pendingLength[head]];
+        int count = 0;
+        for (int i = head; i >= 0; i = pendingNext[i]) {
+            added[count++] = pendingPosition[i];
+        }
+        Arrays.sort(added);
+        int[] merged = new int[old.length + added.length];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < merged.length; k++) {
+            merged[k] = j == added.length || i < old.length && old[i] < added[j] ? old[i++] : added[j++];
+        }
+        if (index < 0) {
+            if (overflowCount == overflow.length) {
+                overflow = Arrays.copyOf(overflow, overflowCount * 2);
+            }
+            index = overflowCount++;
+            overflowIndex.put(key, index);
+        }
+        overflow[index] = merged;
+    }
+
+    /**
+     * sum of food visible from the cell (x, y) along a ray, the cell itself is not counted
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param dx step on Ox axis, from -2 to 2
+     * @param dy step on Oy axis, from -2 to 2
+     * @return amount of visible food
+     */
+    int raySum(int x, int y, int dx, int dy) {
+        if (!built) {
+            build();
+        }
+        if (dx == 0 && dy == 0 || dx != 0 && dy != 0 && Math.abs(dx) != 1) {
+            return 0;
+        }
+        int family = family(dx, dy, true);
+        int ordinal = lineOrdinal[family].get(line(family, x, y));
+        if (ordinal < 0) {
+            return 0;
+        }
+        int from = lineStart[family][ordinal];
+        int to = lineStart[family][ordinal + 1];
+        int position = position(family, x, y);
+        if ((dx != 0 ? dx : dy) > 0) {
+            int before = lowerBound(family, from, to, position + 1) - from;
+            return prefix(family, from, to - from) - prefix(family, from, before);
+        }
+        return prefix(family, from, lowerBound(family, from, to, position) - from);
+    }
+
+    /**
+     * first cell of a ray, which starts after the cell (x, y), with food or with an insect
+     * of another color
+     * @param x first coordinate of the start cell
+     * @param y second coordinate of the start cell
+     * @param dx step on Ox axis, from -2 to 2
+     * @param dy step on Oy axis, from -2 to 2
+     * @param color - color of the moving insect
+     * @return number of steps to that cell, or -1 if there is none
+     */
+    int nextStop(int x, int y, int dx, int dy, InsectColor color) {
+        if (!built) {
+            build();
+        }
+        int family = family(dx, dy, false);
+        long line = line(family, x, y);
+        long key = line * FAMILIES + family;
+        int position = position(family, x, y);
+        int sign = dx != 0 ? dx : dy;
+        int stride = Math.abs(sign);
+        int nearest = Integer.MAX_VALUE;
+        for (int i = pendingHead.get(key); i >= 0; i = pendingNext[i]) {
+            int distance = (pendingPosition[i] - position) * Integer.signum(sign);
+            if (distance > 0 && distance < nearest && distance % stride == 0
+                    && grid.isStop(x + dx / stride * distance, y + dy / stride * distance, color)) {
+                nearest = distance;
+            }
+        }
+        int index = overflowIndex.get(key);
+        if (index >= 0) {
+            int[] sorted = overflow[index];
+            nearest = scan(sorted, 0, sorted.length, position, x, y, dx, dy, color, nearest);
+        }
+        int ordinal = lineOrdinal[family].get(line);
+        if (ordinal >= 0) {
+            nearest = scan(positions[family], lineStart[family][ordinal], lineStart[family][ordinal + 1],
+                    position, x, y, dx, dy, color, nearest);
+        }
+        return nearest == Integer.MAX_VALUE ? -1 : nearest / stride;
+    }
+
+    /**
+     * find the nearest stop of a ray among sorted positions of its line
+     * @param sorted - sorted positions
+     * @param from - first position of the line
+     * @param to - end of the line
+     * @param position - position of the start cell on the line
+     * @param x first coordinate of the start cell
+     * @param y second coordinate of the start cell
+     * @param dx step on Ox axis, from -2 to 2
+     * @param dy step on Oy axis, from -2 to 2
+     * @param color - color of the moving insect
+     * @param nearest - distance to the nearest stop found before
+     * @return distance to the nearest stop, along the line and not in steps
+     */
+    private int scan(int[] sorted, int from, int to, int position, int x, int y, int dx, int dy,
+                     InsectColor color, int nearest) {
+        int stride = Math.max(Math.abs(dx), Math.abs(dy));
+        if ((dx != 0 ? dx : dy) > 0) {
+            for (int i = lowerBound(sorted, from, to, position + 1); i < to; i++) {
+                int distance = sorted[i] - position;
+                if (distance >= nearest) {
+                    break;
+                }
+                if (distance % stride == 0 && grid.isStop(x + dx / stride * distance, y + dy / stride * distance, color)) {
+                    return distance;
+                }
+            }
+        } else {
+            for (int i = lowerBound(sorted, from, to, position) - 1; i >= from; i--) {
+                int distance = position - sorted[i];
+                if (distance >= nearest) {
+                    break;
+                }
+                if (distance % stride == 0 && grid.isStop(x + dx / stride * distance, y + dy / stride * distance, color)) {
+                    return distance;
+                }
+            }
+        }
+        return nearest;
+    }
+}
+
+/**
+ * BoardStorage is the way a Board keeps its cells. Every backend answers the same
+ * queries by (x, y) without allocating: cell lookup, visible food along a ray and
+ * the next cell where a moving insect has to stop
+ */
+interface BoardStorage {
+    byte EMPTY = 0;
+    byte FOOD = 1;
+    byte INSECT = 2;
+
+    /**
+     * type of the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return EMPTY, FOOD or INSECT
+     */
+    byte getCellType(int x, int y);
+
+    /**
+     * amount of food in the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return amount of food, 0 if there is no food
+     */
+    int getFoodValue(int x, int y);
+
+    /**
+     * id of the insect in the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return id of the insect, only meaningful when the cell type is INSECT
+     */
+    int getInsectId(int x, int y);
+
+    /**
+     * put food in an empty cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param value amount of food
+     */
+    void putFood(int x, int y, int value);
+
+    /**
+     * put an insect in an empty cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param id id of the insect
+     * @param color color of the insect
+     */
+    void putInsect(int x, int y, int id, InsectColor color);
+
+    /**
+     * remove eaten food from the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     */
+    void removeFood(int x, int y);
+
+    /**
+     * remove an insect from the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     */
+    void removeInsect(int x, int y);
+
+    /**
+     * amount of food visible from the cell (x, y) along a ray, the cell itself is not counted
+     * and insects do not hide food
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param dx step on Ox axis, from -2 to 2
+     * @param dy step on Oy axis, from -2 to 2
+     * @return amount of visible food
+     */
+    int getVisibleFood(int x, int y, int dx, int dy);
+
+    /**
+     * build every lazy structure, which getVisibleFood uses, so that after it getVisibleFood
+     * only reads and may be called from many threads at once while nothing is changed
+     */
+    void prepareVisibleFood();
+
+    /**
+     * first cell of a ray, which starts after the cell (x, y), with food or with an insect of another color
+     * @param x first coordinate of the start cell
+     * @param y second coordinate of the start cell
+     * @param dx step on Ox axis, from -2 to 2
+     * @param dy step on Oy axis, from -2 to 2
+     * @param color color of the moving insect
+     * @return number of steps to the cell, or -1 if the ray reaches the board edge
+     */
+    int nextStop(int x, int y, int dx, int dy, InsectColor color);
+
+    /**
+     * a copy of this storage, which changes independently of it. Both of them may be read
+     * and changed from different threads without locks, each by one thread
+     * @return copy of the storage, or null if the backend can not share its cells,
+     * then Board.snapshot moves the cells to a tiled storage first
+     */
+    BoardStorage snapshot();
+}
+
+/**
+ * StorageKind lists the backends of a Board and chooses one from the size of the board
+ * and the number of entities on it
+ */
+enum StorageKind {
+    PACKED,
+    DENSE,
+    TILED,
+    SPARSE;
+
+    /**
+     * boards up to this size are walked cell by cell in a packed array
+     */
+    private static final int PACKED_MAX_SIZE = 8;
+
+    /**
+     * a dense grid pays for its indexes only on boards of at least this size ...
+     */
+    private static final int DENSE_MIN_SIZE = 64;
+
+    /**
+     * ... up to this number of cells ...
+     */
+    private static final long DENSE_MAX_CELLS = 1L << 22;
+
+    /**
+     * ... with at least one entity per this number of cells
+     */
+    private static final int DENSE_CELLS_PER_ENTITY = 16;
+
+    /**
+     * a tiled grid needs at least this number of entities per tile, unless the board is one tile
+     */
+    private static final int TILED_ENTITIES_PER_TILE = 8;
+
+    /**
+     * boards with more tiles than this never get a tiled grid
+     */
+    private static final long TILED_MAX_TILES = 1L << 22;
+
+    /**
+     * choose the fastest backend for a board. Building indexes of a dense grid costs
+     * more than a whole simulation unless the board is crowded, so most boards of the
+     * task get a tiled grid, and boards with lots of empty tiles get a sparse one
+     * @param size - size of the board
+     * @param entities - number of insects and food points, 0 if it is not known
+     * @return kind of the backend
+     */
+    static StorageKind choose(int size, long entities) {
+        long cells = (long) size * size;
+        if (size <= PACKED_MAX_SIZE) {
+            return PACKED;
+        }
+        if (size >= DENSE_MIN_SIZE && cells <= DENSE_MAX_CELLS && entities * DENSE_CELLS_PER_ENTITY >= cells) {
+            return DENSE;
+        }
+        long tilesPerSide = (size + TiledBoardStorage.TILE - 1) / TiledBoardStorage.TILE;
+        long tiles = tilesPerSide * tilesPerSide;
+        if (tiles <= TILED_MAX_TILES && (tiles == 1 || tiles * TILED_ENTITIES_PER_TILE <= entities)) {
+            return TILED;
+        }
+        return SPARSE;
+    }
+
+    /**
+     * choose a backend for a board, on which entities are put while it is simulated. A sparse
+     * grid builds its sorted lines again after every put, so a tiled grid is taken instead
+     * while the board has not too many tiles
+     * @param size - size of the board
+     * @param entities - number of insects and food points
+     * @return kind of the backend
+     */
+    static StorageKind chooseIncremental(int size, long entities) {
+        StorageKind kind = choose(size, entities);
+        long tilesPerSide = (size + TiledBoardStorage.TILE - 1) / TiledBoardStorage.TILE;
+        if (kind == SPARSE && tilesPerSide * tilesPerSide <= TILED_MAX_TILES) {
+            return TILED;
+        }
+        return kind;
+    }
+
+    /**
+     * choose a backend for a board, which is copied by Board.snapshot: only tiled and packed
+     * grids share their cells with snapshots, other boards are moved to a tiled grid on their
+     * first snapshot
+     * @param size - size of the board
+     * @return kind of the backend
+     */
+    static StorageKind chooseSnapshots(int size) {
+        return size <= PACKED_MAX_SIZE ? PACKED : TILED;
+    }
+
+    /**
+     * create an empty backend of this kind
+     * @param size - size of the board
+     * @param entities - expected number of insects and food points
+     * @return new backend
+     */
+    BoardStorage create(int size, int entities) {
+        switch (this) {
+            case PACKED:
+                return new PackedBoardStorage(size);
+            case TILED:
+                return new TiledBoardStorage(size);
+            case SPARSE:
+                return new SparseBoardStorage(size, entities);
+            default:
+                return new DenseBoardStorage(size);
+        }
+    }
+}
+
+/**
+ * PackedBoardStorage keeps every cell of a tiny board in one array of packed longs and walks
+ * rays cell by cell. It has no index to build and nothing is boxed, which makes it the
+ * cheapest backend for tiny boards, and a snapshot is a copy of at most 64 longs
+ */
+class PackedBoardStorage implements BoardStorage {
+    private final int size;
+
+    /**
+     * entity of every cell by its index: type in the lowest byte, insect color in the next one,
+     * amount of food or insect id in the high half, 0 is an empty cell
+     */
+    private final long[] cells;
+
+    /**
+     * constructor of an empty storage
+     * @param size - size of our board
+     */
+    PackedBoardStorage(int size) {
+        this.size = size;
+        this.cells = new long[size * size];
+    }
+
+    /**
+     * constructor of a copy
+     * @param other - storage to copy
+     */
+    private PackedBoardStorage(PackedBoardStorage other) {
+        this.size = other.size;
+        this.cells = other.cells.clone();
+    }
+
+    @Override
+    public BoardStorage snapshot() {
+        return new PackedBoardStorage(this);
+    }
+
+    /**
+     * index of a cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return index of the cell
+     */
+    private int index(int x, int y) {
+        return (x - 1) * size + (y - 1);
+    }
+
+    @Override
+    public byte getCellType(int x, int y) {
+        return (byte) (cells[index(x, y)] & 0xFF);
+    }
+
+    @Override
+    public int getFoodValue(int x, int y) {
+        long entity = cells[index(x, y)];
+        return (entity & 0xFF) != FOOD ? 0 : (int) (entity >> 32);
+    }
+
+    @Override
+    public int getInsectId(int x, int y) {
+        return (int) (cells[index(x, y)] >> 32);
+    }
+
+    @Override
+    public void putFood(int x, int y, int value) {
+        cells[index(x, y)] = (long) value << 32 | FOOD;
+    }
+
+    @Override
+    public void putInsect(int x, int y, int id, InsectColor color) {
+        cells[index(x, y)] = (long) id << 32 | color.ordinal() << 8 | INSECT;
+    }
+
+    @Override
+    public void removeFood(int x, int y) {
+        cells[index(x, y)] = 0;
+    }
+
+    @Override
+    public void removeInsect(int x, int y) {
+        cells[index(x, y)] = 0;
+    }
+
+    @Override
+    public int getVisibleFood(int x, int y, int dx, int dy) {
+        int sum = 0;
+        x += dx;
+        y += dy;
+        while (x >= 1 && y >= 1 && x <= size && y <= size) {
+            sum += getFoodValue(x, y);
+            x += dx;
+            y += dy;
+        }
+        return sum;
+    }
+
+    @Override
+    public void prepareVisibleFood() {
+    }
+
+    @Override
+    public int nextStop(int x, int y, int dx, int dy, InsectColor color) {
+        x += dx;
+        y += dy;
+        for (int steps = 1; x >= 1 && y >= 1 && x <= size && y <= size; steps++) {
+            long entity = cells[index(x, y)];
+            if (entity != 0 && ((entity & 0xFF) == FOOD || (entity >> 8 & 0xFF) != color.ordinal())) {
+                return steps;
+            }
+            x += dx;
+            y += dy;
+        }
+        return -1;
+    }
+}
+
+/**
+ * DenseBoardStorage keeps every cell in a DenseGrid, food sums in a FoodLineIndex and
+ * occupancy in Bitboards, or in a SkipIndex when a line is shorter than one word
+ */
+class DenseBoardStorage implements BoardStorage {
+    private final int size;
+    private final DenseGrid grid;
+    private final FoodLineIndex foodLines;
+    private final SkipIndex skipIndex;
+    private final Bitboards bitboards;
+
+    /**
+     * colors of insects by their id
+     */
+    private InsectColor[] colors = new InsectColor[16];
+
+    /**
+     * constructor of an empty storage
+     * @param size - size of our board
+     */
+    DenseBoardStorage(int size) {
+        this.size = size;
+        this.grid = new DenseGrid(size);
+        this.foodLines = new FoodLineIndex(size, grid);
+        final int k64 = 64;
+        if (size >= k64) {
+            this.skipIndex = null;
+            this.bitboards = new Bitboards(size);
+        } else {
+            this.skipIndex = new SkipIndex(size, grid);
+            this.bitboards = null;
+        }
+    }
+
+    @Override
+    public BoardStorage snapshot() {
+        return null;
+    }
+
+    @Override
+    public byte getCellType(int x, int y) {
+        return grid.getCellType(x, y);
+    }
+
+    @Override
+    public int getFoodValue(int x, int y) {
+        return grid.getFoodValue(x, y);
+    }
 
-        int currentScore = 0;
+    @Override
+    public int getInsectId(int x, int y) {
+        return grid.getInsectId(x, y);
+    }
 
-        int dx = 0;
-        int dy = 0;
+    @Override
+    public void putFood(int x, int y, int value) {
+        grid.putFood(x, y, value);
+        foodLines.addFood(x, y);
+        if (bitboards != null) {
+            bitboards.markFood(x, y, true);
+        } else {
+            skipIndex.insert();
+        }
+    }
 
-        switch (dir) {
-            case NE:
-                dy = 1;
-                dx = -1;
-                break;
-            case SE:
-                dy = 1;
-                dx = 1;
-                break;
-            case SW:
-                dy = -1;
-                dx = 1;
-                break;
-            case NW:
-                dy = -1;
-                dx = -1;
-                break;
-            default:
-                break;
+    @Override
+    public void putInsect(int x, int y, int id, InsectColor color) {
+        if (id >= colors.length) {
+            colors = Arrays.copyOf(colors, Math.max(id + 1, colors.length * 2));
+        }
+        colors[id] = color;
+        grid.putInsect(x, y, id);
+        if (bitboards != null) {
+            bitboards.markInsect(x, y, color, true);
+        } else {
+            skipIndex.insert();
+        }
+    }
+
+    @Override
+    public void removeFood(int x, int y) {
+        foodLines.removeFood(x, y, grid.getFoodValue(x, y));
+        grid.clear(x, y);
+        if (bitboards != null) {
+            bitboards.markFood(x, y, false);
+        } else {
+            skipIndex.remove(x, y);
         }
+    }
 
-        y += dy;
-        x += dx;
-        while (y >= 1 && x >= 1 && y <= boardSize && x <= boardSize) {
-            BoardEntity entity = boardData.get(x + "_" + y);
+    @Override
+    public void removeInsect(int x, int y) {
+        InsectColor color = colors[grid.getInsectId(x, y)];
+        grid.clear(x, y);
+        if (bitboards != null) {
+            bitboards.markInsect(x, y, color, false);
+        } else {
+            skipIndex.remove(x, y);
+        }
+    }
+
+    @Override
+    public int getVisibleFood(int x, int y, int dx, int dy) {
+        return foodLines.raySum(x, y, dx, dy);
+    }
+
+    @Override
+    public void prepareVisibleFood() {
+        foodLines.prepare();
+    }
+
+    @Override
+    public int nextStop(int x, int y, int dx, int dy, InsectColor color) {
+        if (bitboards != null) {
+            return bitboards.nextStop(x, y, dx, dy, color);
+        }
+        int cell = skipIndex.next(x, y, dx, dy);
+        while (cell >= 0 && grid.isInsect(cell) && colors[grid.getInsectId(cell)] == color) {
+            cell = skipIndex.next(cell / size + 1, cell % size + 1, dx, dy);
+        }
+        if (cell < 0) {
+            return -1;
+        }
+        return dx != 0 ? (cell / size + 1 - x) / dx : (cell % size + 1 - y) / dy;
+    }
+}
+
+/**
+ * SparseBoardStorage keeps only occupied cells in a SparseGrid and walks rays over
+ * the sorted entities of a SparseLineIndex, so its cost does not depend on the board size
+ */
+class SparseBoardStorage implements BoardStorage {
+    private final SparseGrid grid;
+    private final SparseLineIndex lines;
+
+    /**
+     * constructor of an empty storage
+     * @param size - size of our board
+     * @param entities - expected number of entities
+     */
+    SparseBoardStorage(int size, int entities) {
+        this.grid = new SparseGrid(entities);
+        this.lines = new SparseLineIndex(size, grid);
+    }
+
+    @Override
+    public BoardStorage snapshot() {
+        return null;
+    }
+
+    @Override
+    public byte getCellType(int x, int y) {
+        return grid.getCellType(x, y);
+    }
+
+    @Override
+    public int getFoodValue(int x, int y) {
+        return grid.getFoodValue(x, y);
+    }
+
+    @Override
+    public int getInsectId(int x, int y) {
+        return grid.getInsectId(x, y);
+    }
+
+    @Override
+    public void putFood(int x, int y, int value) {
+        grid.putFood(x, y, value);
+        lines.addFood(x, y, value);
+    }
+
+    @Override
+    public void putInsect(int x, int y, int id, InsectColor color) {
+        grid.putInsect(x, y, id, color);
+        lines.addInsect(x, y);
+    }
+
+    @Override
+    public void removeFood(int x, int y) {
+        lines.removeFood(x, y, grid.getFoodValue(x, y));
+        grid.clear(x, y);
+    }
+
+    @Override
+    public void removeInsect(int x, int y) {
+        grid.clear(x, y);
+    }
+
+    @Override
+    public int getVisibleFood(int x, int y, int dx, int dy) {
+        return lines.raySum(x, y, dx, dy);
+    }
+
+    @Override
+    public void prepareVisibleFood() {
+        lines.prepare();
+    }
+
+    @Override
+    public int nextStop(int x, int y, int dx, int dy, InsectColor color) {
+        return lines.nextStop(x, y, dx, dy, color);
+    }
+}
+
+/**
+ * TiledBoardStorage splits a big board into square tiles of TILE x TILE cells and
+ * allocates only tiles with entities. A ray crosses a tile without entities, or
+ * without food when it only sums food, in one jump
+ */
+class TiledBoardStorage implements BoardStorage {
+    static final int TILE = 64;
+    private static final int SHIFT = 6;
+
+    /**
+     * a chunk holds CHUNK x CHUNK tiles
+     */
+    private static final int CHUNK_SHIFT = 5;
+    private static final int CHUNK = 1 << CHUNK_SHIFT;
+
+    private final int size;
+    private final int chunksPerSide;
+
+    /**
+     * chunks of tiles, null where no tile has ever had entities. The root, chunks and tiles
+     * are shared with snapshots, each of them belongs to the storage whose owner token it
+     * has, and any other storage copies it before a change
+     */
+    private Chunk[] root;
+    private Object rootOwner;
+    private Object owner = new Object();
+
+    /**
+     * Tile holds the cells of one square of the board
+     */
+    static final class Tile {
+        private final Object owner;
+        private final byte[] cellType = new byte[TILE * TILE];
+        private final byte[] color = new byte[TILE * TILE];
+        private final int[] value = new int[TILE * TILE];
+        private int entities;
+        private int foodPoints;
+
+        /**
+         * constructor of an empty tile
+         * @param owner - token of the storage, which may change the tile
+         */
+        Tile(Object owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * copy of the tile for another storage
+         * @param newOwner - token of that storage
+         * @return copy of the tile
+         */
+        Tile copy(Object newOwner) {
+            Tile tile = new Tile(newOwner);
+            System.arraycopy(cellType, 0, tile.cellType, 0, cellType.length);
+            System.arraycopy(color, 0, tile.color, 0, color.length);
+            System.arraycopy(value, 0, tile.value, 0, value.length);
+            tile.entities = entities;
+            tile.foodPoints = foodPoints;
+            return tile;
+        }
+    }
+
+    /**
+     * Chunk holds references to CHUNK x CHUNK tiles
+     */
+    static final class Chunk {
+        private final Object owner;
+        private final Tile[] tiles;
+
+        /**
+         * constructor of a chunk
+         * @param owner - token of the storage, which may change the chunk
+         * @param tiles - tiles of the chunk
+         */
+        Chunk(Object owner, Tile[] tiles) {
+            this.owner = owner;
+            this.tiles = tiles;
+        }
+    }
+
+    /**
+     * constructor of an empty storage
+     * @param size - size of our board
+     */
+    TiledBoardStorage(int size) {
+        this.size = size;
+        int tilesPerSide = (size + TILE - 1) >> SHIFT;
+        this.chunksPerSide = (tilesPerSide + CHUNK - 1) >> CHUNK_SHIFT;
+        this.root = new Chunk[chunksPerSide * chunksPerSide];
+        this.rootOwner = owner;
+    }
+
+    /**
+     * constructor of a snapshot, it shares the root with the copied storage
+     * @param base - copied storage
+     */
+    private TiledBoardStorage(TiledBoardStorage base) {
+        this.size = base.size;
+        this.chunksPerSide = base.chunksPerSide;
+        this.root = base.root;
+        this.rootOwner = base.rootOwner;
+    }
+
+    /**
+     * here we take a snapshot in O(1): both storages get new owner tokens, so neither
+     * of them changes the shared root, chunks or tiles in place any more
+     * @return copy of the storage
+     */
+    @Override
+    public BoardStorage snapshot() {
+        owner = new Object();
+        return new TiledBoardStorage(this);
+    }
+
+    /**
+     * index of the chunk of a cell in the root
+     */
+    private int chunkIndex(int x, int y) {
+        return ((x - 1) >> (SHIFT + CHUNK_SHIFT)) * chunksPerSide + ((y - 1) >> (SHIFT + CHUNK_SHIFT));
+    }
+
+    /**
+     * index of the tile of a cell in its chunk
+     */
+    private static int tileIndex(int x, int y) {
+        return ((x - 1) >> SHIFT & (CHUNK - 1)) << CHUNK_SHIFT | ((y - 1) >> SHIFT & (CHUNK - 1));
+    }
+
+    /**
+     * tile of a cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return tile, null if it has never had entities
+     */
+    private Tile tile(int x, int y) {
+        Chunk chunk = root[chunkIndex(x, y)];
+        return chunk == null ? null : chunk.tiles[tileIndex(x, y)];
+    }
+
+    /**
+     * tile of a cell, which this storage may change: it is allocated if needed, and the root,
+     * the chunk and the tile are copied if they belong to another storage
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return tile
+     */
+    private Tile tileForUpdate(int x, int y) {
+        if (rootOwner != owner) {
+            root = root.clone();
+            rootOwner = owner;
+        }
+        int index = chunkIndex(x, y);
+        Chunk chunk = root[index];
+        if (chunk == null) {
+            chunk = new Chunk(owner, new Tile[CHUNK * CHUNK]);
+            root[index] = chunk;
+        } else if (chunk.owner != owner) {
+            chunk = new Chunk(owner, chunk.tiles.clone());
+            root[index] = chunk;
+        }
+        int i = tileIndex(x, y);
+        Tile tile = chunk.tiles[i];
+        if (tile == null) {
+            tile = new Tile(owner);
+            chunk.tiles[i] = tile;
+        } else if (tile.owner != owner) {
+            tile = tile.copy(owner);
+            chunk.tiles[i] = tile;
+        }
+        return tile;
+    }
+
+    /**
+     * index of a cell inside its tile
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return index in the arrays of the tile
+     */
+    private static int offset(int x, int y) {
+        return ((x - 1) & (TILE - 1)) << SHIFT | ((y - 1) & (TILE - 1));
+    }
+
+    /**
+     * number of steps after which a ray leaves the tile of the cell (x, y) or the board
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param dx step on Ox axis
+     * @param dy step on Oy axis
+     * @return number of steps, at least 1
+     */
+    private int stepsToLeaveTile(int x, int y, int dx, int dy) {
+        int steps = Integer.MAX_VALUE;
+        if (dx > 0) {
+            steps = (((x - 1) | (TILE - 1)) + 1 - (x - 1) + dx - 1) / dx;
+        } else if (dx < 0) {
+            steps = ((x - 1) & (TILE - 1)) / -dx + 1;
+        }
+        if (dy > 0) {
+            steps = Math.min(steps, (((y - 1) | (TILE - 1)) + 1 - (y - 1) + dy - 1) / dy);
+        } else if (dy < 0) {
+            steps = Math.min(steps, ((y - 1) & (TILE - 1)) / -dy + 1);
+        }
+        return steps;
+    }
+
+    @Override
+    public byte getCellType(int x, int y) {
+        Tile tile = tile(x, y);
+        return tile == null ? EMPTY : tile.cellType[offset(x, y)];
+    }
+
+    @Override
+    public int getFoodValue(int x, int y) {
+        Tile tile = tile(x, y);
+        int i = offset(x, y);
+        return tile == null || tile.cellType[i] != FOOD ? 0 : tile.value[i];
+    }
+
+    @Override
+    public int getInsectId(int x, int y) {
+        return tile(x, y).value[offset(x, y)];
+    }
+
+    @Override
+    public void putFood(int x, int y, int value) {
+        Tile tile = tileForUpdate(x, y);
+        int i = offset(x, y);
+        tile.cellType[i] = FOOD;
+        tile.value[i] = value;
+        tile.entities++;
+        tile.foodPoints++;
+    }
+
+    @Override
+    public void putInsect(int x, int y, int id, InsectColor color) {
+        Tile tile = tileForUpdate(x, y);
+        int i = offset(x, y);
+        tile.cellType[i] = INSECT;
+        tile.color[i] = (byte) color.ordinal();
+        tile.value[i] = id;
+        tile.entities++;
+    }
+
+    @Override
+    public void removeFood(int x, int y) {
+        Tile tile = tileForUpdate(x, y);
+        tile.cellType[offset(x, y)] = EMPTY;
+        tile.entities--;
+        tile.foodPoints--;
+    }
+
+    @Override
+    public void removeInsect(int x, int y) {
+        Tile tile = tileForUpdate(x, y);
+        tile.cellType[offset(x, y)] = EMPTY;
+        tile.entities--;
+    }
 
-            if (entity == null) {
-                y += dy;
-                x += dx;
+    @Override
+    public int getVisibleFood(int x, int y, int dx, int dy) {
+        int sum = 0;
+        x += dx;
+        y += dy;
+        while (x >= 1 && y >= 1 && x <= size && y <= size) {
+            Tile tile = tile(x, y);
+            if (tile == null || tile.foodPoints == 0) {
+                int steps = stepsToLeaveTile(x, y, dx, dy);
+                x += dx * steps;
+                y += dy * steps;
                 continue;
             }
+            int i = offset(x, y);
+            if (tile.cellType[i] == FOOD) {
+                sum += tile.value[i];
+            }
+            x += dx;
+            y += dy;
+        }
+        return sum;
+    }
 
-            if (entity.getClass() == FoodPoint.class) {
-                FoodPoint foodPoint = (FoodPoint) entity;
+    @Override
+    public void prepareVisibleFood() {
+    }
 
-                currentScore += foodPoint.value;
+    @Override
+    public int nextStop(int x, int y, int dx, int dy, InsectColor color) {
+        int startX = x;
+        int startY = y;
+        x += dx;
+        y += dy;
+        while (x >= 1 && y >= 1 && x <= size && y <= size) {
+            Tile tile = tile(x, y);
+            if (tile == null || tile.entities == 0) {
+                int steps = stepsToLeaveTile(x, y, dx, dy);
+                x += dx * steps;
+                y += dy * steps;
+                continue;
+            }
+            int i = offset(x, y);
+            if (tile.cellType[i] == FOOD || tile.cellType[i] == INSECT && tile.color[i] != color.ordinal()) {
+                return dx != 0 ? (x - startX) / dx : (y - startY) / dy;
             }
-
-            y += dy;
             x += dx;
+            y += dy;
+        }
+        return -1;
+    }
+}
+
+/**
+ * class Board represent our board, where we allocate all our insects and foodPoints
+ */
+class Board {
+    /**
+     * here we store all cells of the board, the backend depends on the size of the board,
+     * it is replaced by a tiled one when a board without cheap snapshots is copied
+     */
+    private BoardStorage storage;
+
+    /**
+     * here we store coordinates, colors, types and food of all entities,
+     * insects get the first ids in the order of the input
+     */
+    private final EntityStore entities;
+    private int size;
+
+    /**
+     * food totals of lines, they let getBestDirection skip rays, which can not win
+     */
+    private final LineTotals lineTotals;
+    private boolean onlyPositiveFood = true;
+
+    /**
+     * false after any food point with negative food: a sum of such food may wrap around,
+     * so line totals are no longer upper bounds of visible food
+     */
+    private boolean noNegativeFood = true;
+
+    /**
+     * who is told about eaten food, null if nobody
+     */
+    private FoodListener foodListener;
+
+    /**
+     * where every change of cells is recorded, null if nowhere
+     */
+    private MutationJournal journal;
+
+
+    /**
+     * it is a constructor of a new board, its storage is chosen only by the size
+     * @param boardSize - we create a board of a given size
+     */
+    public Board(int boardSize) {
+        this(boardSize, StorageKind.choose(boardSize, 0), 0);
+    }
+
+    /**
+     * it is a constructor of a new board, which chooses the fastest storage for the given numbers of entities
+     * @param boardSize - we create a board of a given size
+     * @param insectCount - number of insects
+     * @param foodCount - number of food points
+     */
+    public Board(int boardSize, int insectCount, int foodCount) {
+        this(boardSize, StorageKind.choose(boardSize, (long) insectCount + foodCount), insectCount + foodCount);
+    }
+
+    /**
+     * it is a constructor of a new board with a given storage
+     * @param boardSize - we create a board of a given size
+     * @param kind - backend of the board
+     * @param entities - expected number of insects and food points
+     */
+    Board(int boardSize, StorageKind kind, int entities) {
+        this.size = boardSize;
+        this.storage = kind.create(boardSize, entities);
+        this.entities = new EntityStore(entities);
+        this.lineTotals = new LineTotals(boardSize);
+    }
+
+    /**
+     * it is a constructor of a snapshot, see snapshot
+     * @param base - copied board
+     * @param storage - copy of the storage of the base board
+     */
+    private Board(Board base, BoardStorage storage) {
+        this.size = base.size;
+        this.storage = storage;
+        this.entities = base.entities.snapshot();
+        this.lineTotals = base.lineTotals.snapshot();
+        this.onlyPositiveFood = base.onlyPositiveFood;
+        this.noNegativeFood = base.noNegativeFood;
+    }
+
+    /**
+     * here we take a snapshot of the board for a what-if variant: the snapshot and this board
+     * share cells, entities and line totals, and each of them copies only what it changes, a
+     * tile of cells or a whole array of entities or totals. Many snapshots of one board may be
+     * simulated at once from different threads while the board itself is not changed. Dense and
+     * sparse storages can not share cells, so on the first snapshot their cells are moved
+     * once to a tiled storage, which this board keeps, and every snapshot branches from it
+     * @return copy of the board
+     */
+    public synchronized Board snapshot() {
+        BoardStorage copy = storage.snapshot();
+        if (copy == null) {
+            storage = toTiled();
+            copy = storage.snapshot();
         }
+        return new Board(this, copy);
+    }
 
-        return currentScore;
+    /**
+     * a tiled storage with the same cells. Every occupied cell is the cell of an entity:
+     * insects keep their positions in the store and food grows again only where it was
+     * @return new storage
+     */
+    private BoardStorage toTiled() {
+        BoardStorage tiled = StorageKind.TILED.create(size, entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            int x = entities.getX(i);
+            int y = entities.getY(i);
+            byte cellType = storage.getCellType(x, y);
+            if (cellType == BoardStorage.FOOD) {
+                tiled.putFood(x, y, storage.getFoodValue(x, y));
+            } else if (cellType == BoardStorage.INSECT) {
+                int id = storage.getInsectId(x, y);
+                tiled.putInsect(x, y, id, entities.getColor(id));
+            }
+        }
+        return tiled;
+    }
+
+    /**
+     * with the help of this function we can add a new insect to the board
+     * @param x first coordinate of the insect
+     * @param y second coordinate of the insect
+     * @param color - color of the insect
+     * @param type - type of the insect
+     * @return id of the insect
+     */
+    public int addInsect(int x, int y, InsectColor color, InsectType type) {
+        int id = entities.addInsect(x, y, color, type);
+        storage.putInsect(x, y, id, color);
+        return id;
+    }
+
+    /**
+     * with the help of this function we can add a new foodPoint to the board
+     * @param x first coordinate of the food point
+     * @param y second coordinate of the food point
+     * @param value - amount of food
+     */
+    public void addFood(int x, int y, int value) {
+        entities.addFood(x, y, value);
+        storage.putFood(x, y, value);
+        lineTotals.add(x, y, value);
+        onlyPositiveFood &= value > 0;
+        noNegativeFood &= value >= 0;
     }
 
     /**
-     * here we override method travelOrthogonally to count
-     * specific amount of eaten food by travelling diagonally
-     * @param dir - current direction
-     * @param entityPosition - coordinates of the spider
-     * @param color - color of the spider
-     * @param boardData - our board
-     * @param boardSize - size of our board
-     * @return amount of eaten food
+     * getter for the store of entities
+     * @return entities of this board
      */
-    @Override
-    public int travelDiagonally(Direction dir, EntityPosition entityPosition, InsectColor color,
-                                Map<String, BoardEntity> boardData, int boardSize) {
-        int x = this.entityPosition.getX();
-        int y = this.entityPosition.getY();
-
-        int currentScore = 0;
-
-        int dx = 0;
-        int dy = 0;
+    public EntityStore getEntities() {
+        return entities;
+    }
 
-        switch (dir) {
-            case NE:
-                dy = 1;
-                dx = -1;
-                break;
-            case SE:
-                dy = 1;
-                dx = 1;
-                break;
-            case SW:
-                dy = -1;
-                dx = 1;
-                break;
-            case NW:
-                dy = -1;
-                dx = -1;
-                break;
+    /**
+     * getter for insects by their id, it creates a handle to the insect in the store
+     * @param id - number of the insect in the input
+     * @return insect with this id
+     */
+    public Insect getInsect(int id) {
+        switch (entities.getType(id)) {
+            case BUTTERFLY:
+                return new Butterfly(entities, id);
+            case ANT:
+                return new Ant(entities, id);
+            case SPIDER:
+                return new Spider(entities, id);
             default:
-                break;
+                return new Grasshopper(entities, id);
         }
+    }
 
-        y += dy;
-        x += dx;
-        while (y >= 1 && x >= 1 && y <= boardSize && x <= boardSize) {
-            BoardEntity entity = boardData.get(x + "_" + y);
-
-            if (entity == null) {
-                y += dy;
-                x += dx;
-                continue;
-            }
+    /**
+     * check whether there is any entity in the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return true if the cell is not empty
+     */
+    public boolean isOccupied(int x, int y) {
+        return storage.getCellType(x, y) != BoardStorage.EMPTY;
+    }
 
-            if (entity.getClass() == FoodPoint.class) {
-                FoodPoint foodPoint = (FoodPoint) entity;
+    /**
+     * type of the cell, one of BoardStorage.EMPTY, BoardStorage.FOOD and BoardStorage.INSECT
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return type of the cell
+     */
+    public byte getCellType(int x, int y) {
+        return storage.getCellType(x, y);
+    }
 
-                currentScore += foodPoint.value;
-                boardData.remove(x + "_" + y);
-            }
+    /**
+     * amount of food in the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return amount of food
+     */
+    public int getFoodValue(int x, int y) {
+        return storage.getFoodValue(x, y);
+    }
 
-            if (entity instanceof Insect) {
-                Insect insect = (Insect) entity;
+    /**
+     * insect which stays in the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return insect in the cell
+     */
+    public Insect getInsectAt(int x, int y) {
+        return getInsect(storage.getInsectId(x, y));
+    }
 
-                if (this.color != insect.color) {
-                    break;
-                }
-            }
+    /**
+     * color of the insect which stays in the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return color of the insect in the cell
+     */
+    public InsectColor getInsectColorAt(int x, int y) {
+        return entities.getColor(storage.getInsectId(x, y));
+    }
 
-            y += dy;
-            x += dx;
+    /**
+     * remove eaten food from the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     */
+    public void removeFood(int x, int y) {
+        int value = storage.getFoodValue(x, y);
+        lineTotals.remove(x, y, value);
+        storage.removeFood(x, y);
+        if (journal != null) {
+            journal.foodRemoved(x, y, value);
         }
+        if (foodListener != null) {
+            foodListener.foodRemoved(x, y, value);
+        }
+    }
 
-        x = this.entityPosition.getX();
-        y = this.entityPosition.getY();
-        boardData.remove(x + "_" + y);
+    /**
+     * getter for the journal
+     * @return journal of the board, null if changes are not recorded
+     */
+    public MutationJournal getJournal() {
+        return journal;
+    }
 
-        return currentScore;
+    /**
+     * start or stop recording changes of cells: eaten and regrown food, removed and moved insects
+     * @param journal - journal for the changes, null to stop recording
+     */
+    public void setJournal(MutationJournal journal) {
+        this.journal = journal;
     }
-}
 
-/**
- * class Grasshopper represent one of 4 types of Insects
- */
-class Grasshopper extends Insect {
+    /**
+     * put a removed insect back into its cell, this is how a journal is rewound
+     * @param id - id of the insect
+     */
+    public void restoreInsect(int id) {
+        storage.putInsect(entities.getX(id), entities.getY(id), id, entities.getColor(id));
+    }
 
     /**
-     * here we override GRASSHOPPER to String "Spider"
-     * @return String "Grasshopper"
+     * set who is told about eaten food
+     * @param listener - listener, null to stop telling
      */
-    @Override
-    public String toString() {
-        return "Grasshopper";
+    public void setFoodListener(FoodListener listener) {
+        this.foodListener = listener;
     }
 
     /**
-     * public Spider is a constructor to create new insects of Spider type
-     * @param entityPosition - coordinates of a new spider
-     * @param color - color of a new spider
+     * put food on an empty cell again, it does not become a new entity
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @param value - amount of food
      */
-    public Grasshopper(EntityPosition entityPosition, InsectColor color) {
-        super(entityPosition, color);
+    public void regrowFood(int x, int y, int value) {
+        storage.putFood(x, y, value);
+        lineTotals.add(x, y, value);
+        onlyPositiveFood &= value > 0;
+        noNegativeFood &= value >= 0;
+        if (journal != null) {
+            journal.foodPut(x, y, value);
+        }
     }
 
     /**
-     * function tryDirection is used to choose the best direction for a grasshopper
-     * @param direction - current direction
-     * @param dx - how we'll change location of a grasshopper on Ox axis
-     * @param dy - how we'll change location of a grasshopper on Oy axis
-     * @param boardData - our board
-     * @param boardSize - size of our board
-     * @return amount of eaten food on this direction
+     * move an insect to an empty cell, every index of the board is updated in place
+     * @param id - id of the insect
+     * @param x new first coordinate
+     * @param y new second coordinate
      */
-    private int tryDirection(Direction direction, int dx, int dy, Map<String, BoardEntity> boardData, int boardSize) {
-        int x = this.entityPosition.getX();
-        int y = this.entityPosition.getY();
+    public void moveInsect(int id, int x, int y) {
+        if (journal != null) {
+            journal.insectMoved(id, entities.getX(id), entities.getY(id), x, y);
+        }
+        storage.removeInsect(entities.getX(id), entities.getY(id));
+        entities.setPosition(id, x, y);
+        storage.putInsect(x, y, id, entities.getColor(id));
+    }
 
-        int currentScore = 0;
+    /**
+     * number of food points removed so far from the row, the column and the diagonals of a cell,
+     * while it does not change, the food visible from the cell does not change too
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     * @return number of removals
+     */
+    public long getFoodRemovals(int x, int y) {
+        return lineTotals.removals(x, y);
+    }
 
-        y += dy;
-        x += dx;
-        while (y >= 1 && x >= 1 && y <= boardSize && x <= boardSize) {
-            BoardEntity entity = boardData.get(x + "_" + y);
+    /**
+     * build every lazy structure, which is used to look for the best direction, so that
+     * getBestDirection of insects may be called from many threads until the board changes
+     */
+    public void prepareVisibleFood() {
+        storage.prepareVisibleFood();
+    }
 
-            if (entity == null) {
-                y += dy;
-                x += dx;
-                continue;
-            }
+    /**
+     * check that all food points, which were added, have more than zero food
+     * @return true if there is no food point with zero or negative food
+     */
+    public boolean hasOnlyPositiveFood() {
+        return onlyPositiveFood;
+    }
 
-            if (entity.getClass() == FoodPoint.class) {
-                FoodPoint foodPoint = (FoodPoint) entity;
+    /**
+     * getter for the size of the board
+     * @return size of the board
+     */
+    public int getSize() {
+        return size;
+    }
 
-                currentScore += foodPoint.value;
-            }
+    /**
+     * getter for food totals of lines, null when some food is negative: then visible food
+     * is an int sum, which may wrap around above a line total
+     * @return line totals or null
+     */
+    public LineTotals getLineTotals() {
+        return noNegativeFood ? lineTotals : null;
+    }
 
-            y += dy;
-            x += dx;
+    /**
+     * remove an insect, which has left the board, from the cell
+     * @param x first coordinate of the cell
+     * @param y second coordinate of the cell
+     */
+    public void removeInsect(int x, int y) {
+        if (journal != null) {
+            journal.insectRemoved(storage.getInsectId(x, y));
         }
-
-        return currentScore;
+        storage.removeInsect(x, y);
     }
 
     /**
-     * in function getBestDirection we choose the best direction according to the maximum possible amount of eaten food
-     * @param boardData - our board, where we locate all food and insects
-     * @param boardSize - size of our board
-     * @return
+     * first cell of a ray, which starts after the cell (x, y), where a moving insect has to stop:
+     * a cell with food or with an insect of another color
+     * @param x first coordinate of the start cell
+     * @param y second coordinate of the start cell
+     * @param dx step on Ox axis, from -2 to 2
+     * @param dy step on Oy axis, from -2 to 2
+     * @param color - color of the moving insect
+     * @return number of steps to the cell, or -1 if the ray reaches the board edge
      */
-    public Direction getBestDirection(Map<String, BoardEntity> boardData, int boardSize) {
-        Direction bestDirection = Direction.N;
-        int maxScore = 0;
-        final int km2 = -2;
-        int westResult = tryDirection(Direction.W, 0, km2, boardData, boardSize);
-        int eastResult = tryDirection(Direction.E, 0, 2, boardData, boardSize);
-        int northResult = tryDirection(Direction.N, km2, 0, boardData, boardSize);
-        int southResult = tryDirection(Direction.S, 2, 0, boardData, boardSize);
+    public int nextStop(int x, int y, int dx, int dy, InsectColor color) {
+        return storage.nextStop(x, y, dx, dy, color);
+    }
 
-        if (northResult > maxScore) {
-            maxScore = northResult;
-            bestDirection = Direction.N;
-        }
-        if (eastResult > maxScore) {
-            maxScore = eastResult;
-            bestDirection = Direction.E;
+    /**
+     * it's a getter to get information about private entities
+     * @param position - location on the board
+     * @return insect or food point in this location, null if it is empty or outside the board
+     */
+    public BoardEntity getEntity(EntityPosition position) {
+        int x = position.getX();
+        int y = position.getY();
+        if (x < 1 || y < 1 || x > size || y > size) {
+            return null;
         }
-        if (southResult > maxScore) {
-            maxScore = southResult;
-            bestDirection = Direction.S;
+        byte cellType = storage.getCellType(x, y);
+        if (cellType == BoardStorage.INSECT) {
+            return getInsect(storage.getInsectId(x, y));
         }
-        if (westResult > maxScore) {
-            maxScore = westResult;
-            bestDirection = Direction.W;
+        if (cellType == BoardStorage.FOOD) {
+            return new FoodPoint(new EntityPosition(x, y), storage.getFoodValue(x, y));
         }
-
-        return bestDirection;
+        return null;
     }
 
     /**
-     * function travelDirection is used to count amount of eaten food on the chosen direction
-     * @param dir chosen direction
-     * @param boardData our board
-     * @param boardSize size of our board
-     * @return amount of eaten food
+     * it's a getter to get the direction which the insect would choose now
+     * @param insect - insect, which direction we want to get
+     * @return best direction of the insect
      */
-    public int travelDirection(Direction dir, Map<String, BoardEntity> boardData, int boardSize) {
-        int x = this.entityPosition.getX();
-        int y = this.entityPosition.getY();
-
-        int currentScore = 0;
-
-        int dx = 0;
-        int dy = 0;
-        final int km2 = -2;
-
-        switch (dir) {
-            case E:
-                dy = 2;
-                dx = 0;
-                break;
-            case W:
-                dy = km2;
-                dx = 0;
-                break;
-            case N:
-                dy = 0;
-                dx = km2;
-                break;
-            case S:
-                dy = 0;
-                dx = 2;
-                break;
-            default:
-                break;
-        }
+    public Direction getDirection(Insect insect) {
+        return insect.getBestDirection(this, size);
+    }
 
-        y += dy;
-        x += dx;
-        while (y >= 1 && x >= 1 && y <= boardSize && x <= boardSize) {
-            BoardEntity entity = boardData.get(x + "_" + y);
+    /**
+     * here we count sum of food, which the insect sees in its best direction
+     * @param insect - insect for which we use this function
+     * @return amount of visible food
+     */
+    public int getDirectionSum(Insect insect) {
+        return getDirectionSum(insect, getDirection(insect));
+    }
 
-            if (entity == null) {
-                y += dy;
-                x += dx;
-                continue;
-            }
+    /**
+     * here we count sum of food, which the insect sees in a direction, insects do not hide food
+     * @param insect - insect for which we use this function
+     * @param dir - direction to look at
+     * @return amount of visible food
+     */
+    public int getDirectionSum(Insect insect, Direction dir) {
+        int stride = insect.getStride();
+        return getVisibleFood(insect.getX(), insect.getY(), dir.getDx() * stride, dir.getDy() * stride);
+    }
 
-            if (entity.getClass() == FoodPoint.class) {
-                FoodPoint foodPoint = (FoodPoint) entity;
+    /**
+     * sum of food along a ray, which starts after the cell (x, y), insects do not hide food
+     * @param x first coordinate of the start cell
+     * @param y second coordinate of the start cell
+     * @param dx step on Ox axis, from -2 to 2
+     * @param dy step on Oy axis, from -2 to 2
+     * @return amount of visible food
+     */
+    public int getVisibleFood(int x, int y, int dx, int dy) {
+        return storage.getVisibleFood(x, y, dx, dy);
+    }
+}
 
-                currentScore += foodPoint.value;
-                boardData.remove(x + "_" + y);
-            }
+/**
+ * EntityStore keeps all entities of a board as parallel primitive arrays: coordinates,
+ * ordinal of the color and of the type, and amount of food. An entity is addressed by
+ * its index, insects and food points share the same arrays, food points have no color
+ * and type. Values are the ones from the input, food which is eaten later is removed
+ * only from the BoardStorage.
+ */
+class EntityStore {
+    /**
+     * type and color of a food point
+     */
+    static final byte NONE = -1;
 
-            if (entity instanceof Insect) {
-                Insect insect = (Insect) entity;
+    private static final InsectColor[] COLORS = InsectColor.values();
+    private static final InsectType[] TYPES = InsectType.values();
 
-                if (this.color != insect.color) {
-                    break;
-                }
-            }
+    private int[] xs;
+    private int[] ys;
+    private byte[] colors;
+    private byte[] types;
+    private int[] food;
+    private int[] labels;
+    private int count;
+    private int insectCount;
 
-            y += dy;
-            x += dx;
-        }
+    /**
+     * true while arrays are shared with the store of a snapshot, they are copied before a change
+     */
+    private boolean shared;
 
-        x = this.entityPosition.getX();
-        y = this.entityPosition.getY();
-        boardData.remove(x + "_" + y);
+    /**
+     * constructor of a store
+     * @param capacity - expected number of entities
+     */
+    EntityStore(int capacity) {
+        int length = Math.max(capacity, 1);
+        xs = new int[length];
+        ys = new int[length];
+        colors = new byte[length];
+        types = new byte[length];
+        food = new int[length];
+        labels = new int[length];
+    }
 
-        return currentScore;
+    /**
+     * constructor of a snapshot, arrays are shared until one of the stores changes
+     * @param base - copied store
+     */
+    private EntityStore(EntityStore base) {
+        xs = base.xs;
+        ys = base.ys;
+        colors = base.colors;
+        types = base.types;
+        food = base.food;
+        labels = base.labels;
+        count = base.count;
+        insectCount = base.insectCount;
+        shared = true;
     }
-}
 
-/**
- * interface OrthogonalMoving might be used to imitate interface orthogonal moving of different insects
- */
-interface OrthogonalMoving {
     /**
-     * function getOrthogonalDirectionVisibleValue might
-     * be used to count possible amount of food which will be eaten
-     * in case following one of orthogonal directions
-     * @param dir - current direction
-     * @param entityPosition - coordinates of an insect
-     * @param boarData - our board
-     * @param boardSize - size of our board
-     * @return amount of eaten food
+     * copy of the store, which changes independently of it. In the classic and swarm modes
+     * entities do not change during the simulation, so the copy costs nothing there
+     * @return copy of the store
      */
-    public int getOrthogonalDirectionVisibleValue(Direction dir, EntityPosition entityPosition,
-                                                  Map<String, BoardEntity> boarData, int boardSize);
+    EntityStore snapshot() {
+        shared = true;
+        return new EntityStore(this);
+    }
 
     /**
-     * with the help of a function travelOrthogonally we might count amount of eaten
-     * food while following chosen direction
-     * @param dir - current direction
-     * @param entityPosition - coordinates of an insect
-     * @param color - color of an insect
-     * @param boarData - our board
-     * @param boardSize - size of our board
-     * @return amount of eaten food
+     * take own copies of shared arrays before a change
      */
-    public int travelOrthogonally(Direction dir, EntityPosition entityPosition, InsectColor color,
-                                  Map<String, BoardEntity> boarData, int boardSize);
-}
+    private void unshare() {
+        xs = xs.clone();
+        ys = ys.clone();
+        colors = colors.clone();
+        types = types.clone();
+        food = food.clone();
+        labels = labels.clone();
+        shared = false;
+    }
 
-/**
- * interface DiagonalMoving might be used to imitate interface diagonal moving of different insects
- */
-interface DiagonalMoving {
     /**
-     * function getDiagonalDirectionVisibleValue might
-     * be used to count possible amount of food which will be eaten
-     * in case following one of diagonal directions
-     * @param dir - current direction
-     * @param entityPosition - coordinates of an insect
-     * @param boarData - our board
-     * @param boardSize - size of our board
-     * @return amount of eaten food
+     * add an insect
+     * @param x first coordinate of the insect
+     * @param y second coordinate of the insect
+     * @param color - color of the insect
+     * @param type - type of the insect
+     * @return index of the insect
      */
-    public int getDiagonalDirectionVisibleValue(Direction dir, EntityPosition entityPosition,
-                                                Map<String, BoardEntity> boarData, int boardSize);
+    int addInsect(int x, int y, InsectColor color, InsectType type) {
+        insectCount++;
+        return add(x, y, (byte) color.ordinal(), (byte) type.ordinal(), 0);
+    }
 
     /**
-     * with the help of a function travelDiagonally we might count amount of eaten
-     * food while following chosen direction
-     * @param dir - current direction
-     * @param entityPosition - coordinates of an insect
-     * @param color - color of an insect
-     * @param boarData - our board
-     * @param boardSize - size of our board
-     * @return amount of eaten food
+     * add a food point
+     * @param x first coordinate of the food point
+     * @param y second coordinate of the food point
+     * @param value - amount of food
+     * @return index of the food point
      */
-    public int travelDiagonally(Direction dir, EntityPosition entityPosition, InsectColor color,
-                                Map<String, BoardEntity> boarData, int boardSize);
-}
+    int addFood(int x, int y, int value) {
+        return add(x, y, NONE, NONE, value);
+    }
 
-/**
- * class Board represent our board, where we allocate all our insects and foodPoints
- */
-class Board {
     /**
-     * we store data on board in a Map</> vision
-     * @return boardData which is a Map of all our entities
+     * append an entity, arrays grow twice when they are full
      */
-    public Map<String, BoardEntity> getBoardData() {
-        return boardData;
+    private int add(int x, int y, byte color, byte type, int value) {
+        if (shared) {
+            unshare();
+        }
+        if (count == xs.length) {
+            int length = count * 2;
+            xs = Arrays.copyOf(xs, length);
+            ys = Arrays.copyOf(ys, length);
+            colors = Arrays.copyOf(colors, length);
+            types = Arrays.copyOf(types, length);
+            food = Arrays.copyOf(food, length);
+            labels = Arrays.copyOf(labels, length);
+        }
+        xs[count] = x;
+        ys[count] = y;
+        colors[count] = color;
+        types[count] = type;
+        food[count] = value;
+        labels[count] = count;
+        return count++;
     }
 
     /**
-     * here we create new Map
+     * number of insects
+     * @return number of insects
      */
-    private Map<String, BoardEntity> boardData = new HashMap<>();
-    private int size;
+    int getInsectCount() {
+        return insectCount;
+    }
 
     /**
-     * it is a constructor of a new board
-     * @param boardSize - we create a board of a given size
+     * move an entity to another cell
+     * @param id - index of the entity
+     * @param x new first coordinate
+     * @param y new second coordinate
      */
-    public Board(int boardSize) {
-        this.size = boardSize;
+    void setPosition(int id, int x, int y) {
+        if (shared) {
+            unshare();
+        }
+        xs[id] = x;
+        ys[id] = y;
     }
 
     /**
-     * with the help of this function we can add a new entity to the boardData
-     * @param s - is a key for all entities
-     * @param entity - coordinates of this entity
+     * label of an entity, which is written in results, its index unless it was set
+     * @param id - index of the entity
+     * @return label of the entity
      */
-    public void addEntity(String s, BoardEntity entity) {
-        boardData.put(s, entity);
+    int getLabel(int id) {
+        return labels[id];
     }
 
     /**
-     * it's a getter to get information about private entities
-     * @param position - location on the board
-     * @return null
+     * set the label of an entity, for example the id of an insect from the input
+     * @param id - index of the entity
+     * @param label - new label
      */
-    public BoardEntity getEntity(EntityPosition position) {
-        return null;
+    void setLabel(int id, int label) {
+        if (shared) {
+            unshare();
+        }
+        labels[id] = label;
     }
 
     /**
-     * it's a getter to get information about private entities
-     * @param insect - insect, which direction we want to get
-     * @return null
+     * number of entities
+     * @return number of entities
      */
-    public Direction getDirection(Insect insect) {
-        return null;
+    int size() {
+        return count;
     }
 
     /**
-     * here we count sum of eaten food on a direction
-     * @param insect - insect foe which we use this function
-     * @return 0
+     * first coordinate of an entity
+     * @param id - index of the entity
+     * @return x of the entity
      */
-    public int getDirectionSum(Insect insect) {
-        return 0;
+    int getX(int id) {
+        return xs[id];
     }
-}
 
-/**
- * this class represent an exception for Invalid board size
- */
-class InvalidBoardSizeException extends Exception {
     /**
-     * call message
-     * @return message about mistake
+     * second coordinate of an entity
+     * @param id - index of the entity
+     * @return y of the entity
      */
-    public String getMessage() {
-        return "Invalid board size";
+    int getY(int id) {
+        return ys[id];
     }
-}
 
-/**
- * this class represent an exception for Invalid number of insects
- */
-class InvalidNumberOfInsectsException extends Exception {
     /**
-     * call message
-     * @return message about mistake
+     * color of an insect
+     * @param id - index of the insect
+     * @return color of the insect
      */
-    public String getMessage() {
-        return "Invalid number of insects";
+    InsectColor getColor(int id) {
+        return COLORS[colors[id]];
     }
-}
 
-/**
- * this class represent an exception for Invalid number of food points
- */
-class InvalidNumberOfFoodPointsException extends Exception {
     /**
-     * call message
-     * @return message about mistake
+     * type of an insect
+     * @param id - index of the insect
+     * @return type of the insect
      */
-    public String getMessage() {
-        return "Invalid number of food points";
+    InsectType getType(int id) {
+        return TYPES[types[id]];
     }
-}
 
-/**
- * this class represent an exception for Invalid insect color
- */
-class InvalidInsectColorException extends Exception {
     /**
-     * call message
-     * @return message about mistake
+     * check whether an entity is a food point
+     * @param id - index of the entity
+     * @return true for food points
      */
-    public String getMessage() {
-        return "Invalid insect color";
+    boolean isFood(int id) {
+        return types[id] == NONE;
     }
-}
 
-/**
- * this class represent an exception for Invalid insect type
- */
-class InvalidInsectTypeException extends Exception {
     /**
-     * call message
-     * @return message about mistake
+     * amount of food of a food point as it was added
+     * @param id - index of the food point
+     * @return amount of food
      */
-    public String getMessage() {
-        return "Invalid insect type";
+    int getFood(int id) {
+        return food[id];
     }
 }
 
 /**
- * this class represent an exception for Invalid entity position
+ * CellBitset marks cells of a board while a scenario is checked, one bit per cell. Every
+ * thread keeps its own set, so its words are allocated once for the largest board, and
+ * clear resets only the words, which were used, so a scenario pays for its own entities
  */
-class InvalidEntityPositionException extends Exception {
+final class CellBitset {
+    private static final ThreadLocal<CellBitset> CACHE = ThreadLocal.withInitial(CellBitset::new);
+    private static final int WORD_SHIFT = 6;
+
+    private long[] words = new long[0];
+    private int[] touched = new int[16];
+    private int touchedCount;
+
     /**
-     * call message
-     * @return message about mistake
+     * the set of the current thread, it must be cleared after use
+     * @param cells - number of cells of the board
+     * @return empty set for at least this number of cells
      */
-    public String getMessage() {
-        return "Invalid entity position";
+    static CellBitset acquire(int cells) {
+        CellBitset set = CACHE.get();
+        int length = (cells >>> WORD_SHIFT) + 1;
+        if (set.words.length < length) {
+            set.words = new long[length];
+        }
+        return set;
     }
-}
 
-/**
- * this class represent an exception for case with Duplicate insects
- */
-class DuplicateInsectException extends Exception {
     /**
-     * call message
-     * @return message about mistake
+     * mark a cell
+     * @param cell - number of the cell
+     * @return false if the cell was already marked
      */
-    public String getMessage() {
-        return "Duplicate insects";
+    boolean add(int cell) {
+        int word = cell >>> WORD_SHIFT;
+        long bit = 1L << cell;
+        if ((words[word] & bit) != 0) {
+            return false;
+        }
+        if (words[word] == 0) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touchedCount * 2);
+            }
+            touched[touchedCount++] = word;
+        }
+        words[word] |= bit;
+        return true;
     }
-}
 
-/**
- * this class represent an exception for situation when Two entities in the same position
- */
-class TwoEntitiesOnSamePositionException extends Exception {
     /**
-     * call message
-     * @return message about mistake
+     * unmark all marked cells
      */
-    public String getMessage() {
-        return "Two entities in the same position";
+    void clear() {
+        for (int i = 0; i < touchedCount; i++) {
+            words[touched[i]] = 0;
+        }
+        touchedCount = 0;
     }
 }
\ No newline at end of file
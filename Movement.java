@@ -0,0 +1,70 @@
+/**
+ * Movement describes how insects of one type move: the directions they may choose,
+ * in the order of tie-break, and the stride, which is the number of cells in one step.
+ * Steps are kept premultiplied by the stride, so the ray kernel only reads arrays
+ */
+final class Movement {
+    private final Direction[] directions;
+    private final int[] dx;
+    private final int[] dy;
+    private final int stride;
+
+    /**
+     * constructor of a movement
+     * @param stride - number of cells in one step
+     * @param directions - allowed directions, the first one wins when no direction has food
+     */
+    Movement(int stride, Direction... directions) {
+        this.stride = stride;
+        this.directions = directions;
+        this.dx = new int[directions.length];
+        this.dy = new int[directions.length];
+        for (int i = 0; i < directions.length; i++) {
+            dx[i] = directions[i].getDx() * stride;
+            dy[i] = directions[i].getDy() * stride;
+        }
+    }
+
+    /**
+     * number of allowed directions
+     * @return number of directions
+     */
+    int size() {
+        return directions.length;
+    }
+
+    /**
+     * direction by its place in the order of tie-break
+     * @param i - place of the direction
+     * @return direction
+     */
+    Direction getDirection(int i) {
+        return directions[i];
+    }
+
+    /**
+     * step on Ox axis in a direction, multiplied by the stride
+     * @param i - place of the direction
+     * @return step on Ox axis
+     */
+    int getDx(int i) {
+        return dx[i];
+    }
+
+    /**
+     * step on Oy axis in a direction, multiplied by the stride
+     * @param i - place of the direction
+     * @return step on Oy axis
+     */
+    int getDy(int i) {
+        return dy[i];
+    }
+
+    /**
+     * getter for the stride
+     * @return number of cells in one step
+     */
+    int getStride() {
+        return stride;
+    }
+}
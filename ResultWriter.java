@@ -0,0 +1,201 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ResultWriter writes result lines into a reusable direct ByteBuffer and flushes it
+ * through a FileChannel. Names of colors, types and directions are encoded once,
+ * and ints are written as ASCII digits, so writing a result does not allocate
+ */
+class ResultWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * longest result line: color, type, direction, an int, two spaces and a line separator
+     */
+    private static final int MAX_LINE = 64;
+
+    private static final byte[][] COLORS = encode(InsectColor.values());
+    private static final byte[][] TYPES = encode(InsectType.values());
+    private static final byte[][] DIRECTIONS = encode(Direction.values());
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * digits of an int, filled from the end
+     */
+    private final byte[] digits = new byte[20];
+
+    /**
+     * constructor of a writer
+     * @param channel - where to write
+     * @param buffer - buffer for lines
+     */
+    ResultWriter(WritableByteChannel channel, ByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * create or truncate a file and open a writer to it
+     * @param file - name of the output file
+     * @return writer to the file
+     * @throws IOException if the file can not be opened
+     */
+    static ResultWriter open(String file) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new ResultWriter(channel, ByteBuffer.allocateDirect(BUFFER_SIZE));
+    }
+
+    /**
+     * encode names of enum constants in UTF-8
+     * @param values - constants, whose toString is the name
+     * @return names by ordinal
+     */
+    private static byte[][] encode(Object[] values) {
+        byte[][] names = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            names[i] = values[i].toString().getBytes(StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    /**
+     * write a line with the result of one insect: color, type, direction and eaten food
+     * @param color - color of the insect
+     * @param type - type of the insect
+     * @param direction - chosen direction
+     * @param eatenFood - amount of eaten food
+     * @throws IOException if the buffer can not be flushed
+     */
+    void writeResult(InsectColor color, InsectType type, Direction direction, int eatenFood) throws IOException {
+        if (buffer.remaining() < MAX_LINE) {
+            flush();
+        }
+        buffer.put(COLORS[color.ordinal()]);
+        buffer.put((byte) ' ');
+        buffer.put(TYPES[type.ordinal()]);
+        buffer.put((byte) ' ');
+        buffer.put(DIRECTIONS[direction.ordinal()]);
+        buffer.put((byte) ' ');
+        writeInt(eatenFood);
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    /**
+     * write a line with the result of one insect of the swarm mode, which starts with its id
+     * @param id - id of the insect
+     * @param color - color of the insect
+     * @param type - type of the insect
+     * @param direction - chosen direction
+     * @param eatenFood - amount of eaten food
+     * @throws IOException if the buffer can not be flushed
+     */
+    void writeResult(int id, InsectColor color, InsectType type, Direction direction, int eatenFood)
+            throws IOException {
+        if (buffer.remaining() < MAX_LINE + digits.length + 1) {
+            flush();
+        }
+        writeInt(id);
+        buffer.put((byte) ' ');
+        writeResult(color, type, direction, eatenFood);
+    }
+
+    /**
+     * write a line with the state of one insect after the multi-tick mode:
+     * label, color, type, position and all eaten food
+     * @param label - label of the insect
+     * @param color - color of the insect
+     * @param type - type of the insect
+     * @param x first coordinate of the insect
+     * @param y second coordinate of the insect
+     * @param eatenFood - amount of eaten food
+     * @throws IOException if the buffer can not be flushed
+     */
+    void writeState(int label, InsectColor color, InsectType type, int x, int y, long eatenFood)
+            throws IOException {
+        if (buffer.remaining() < MAX_LINE + 4 * digits.length) {
+            flush();
+        }
+        writeInt(label);
+        buffer.put((byte) ' ');
+        buffer.put(COLORS[color.ordinal()]);
+        buffer.put((byte) ' ');
+        buffer.put(TYPES[type.ordinal()]);
+        buffer.put((byte) ' ');
+        writeInt(x);
+        buffer.put((byte) ' ');
+        writeInt(y);
+        buffer.put((byte) ' ');
+        writeInt(eatenFood);
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    /**
+     * write a number as ASCII digits, digits are taken from the negative value,
+     * so Long.MIN_VALUE works too
+     * @param value - number to write
+     */
+    private void writeInt(long value) {
+        final int radix = 10;
+        int i = digits.length;
+        long rest = value < 0 ? value : -value;
+        do {
+            digits[--i] = (byte) ('0' - rest % radix);
+            rest /= radix;
+        } while (rest != 0);
+        if (value < 0) {
+            buffer.put((byte) '-');
+        }
+        buffer.put(digits, i, digits.length - i);
+    }
+
+    /**
+     * write a line with a message, "null" for a null message as PrintWriter does
+     * @param message - message of an exception
+     * @throws IOException if the buffer can not be flushed
+     */
+    void writeMessage(String message) throws IOException {
+        byte[] text = String.valueOf(message).getBytes(StandardCharsets.UTF_8);
+        if (buffer.remaining() < text.length + LINE_SEPARATOR.length) {
+            flush();
+        }
+        if (buffer.remaining() < text.length + LINE_SEPARATOR.length) {
+            ByteBuffer wrapped = ByteBuffer.wrap(text);
+            while (wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+        } else {
+            buffer.put(text);
+        }
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    /**
+     * write everything from the buffer to the channel
+     * @throws IOException if writing fails
+     */
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * flush the buffer and close the channel
+     * @throws IOException if writing fails
+     */
+    void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
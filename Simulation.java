@@ -0,0 +1,385 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Simulation runs classic scenarios inside the calling JVM, without input.txt and output.txt.
+ * A scenario is the text of input.txt in a ByteBuffer or an InputStream, or a Scenario, which
+ * is filled with entities. The results are the same as the lines of output.txt, but they are
+ * kept as colors, types, directions and eaten food of insects, or as the message of the
+ * exception, which rejected the scenario. Every thread uses its own Context: the context keeps
+ * buffers and results between calls, so a call allocates almost nothing. Different contexts
+ * may be used from many threads at once, nothing else is shared
+ */
+public final class Simulation {
+    /**
+     * constructor is private, the API is static
+     */
+    private Simulation() {
+    }
+
+    /**
+     * create a context for one thread
+     * @return new context
+     */
+    public static Context newContext() {
+        return new Context();
+    }
+
+    /**
+     * simulate the text of a scenario
+     * @param input - text of input.txt, from its position to its limit, the buffer is not changed
+     * @param context - context of the current thread
+     * @return results, which stay valid until the next call with this context
+     */
+    public static Results run(ByteBuffer input, Context context) {
+        context.results.clear();
+        try {
+            Main.simulate(new InputParser(input), context.collector);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return context.results;
+    }
+
+    /**
+     * read a stream to its end and simulate its text
+     * @param input - text of input.txt, the stream is not closed
+     * @param context - context of the current thread
+     * @return results, which stay valid until the next call with this context
+     * @throws IOException if the stream can not be read
+     */
+    public static Results run(InputStream input, Context context) throws IOException {
+        ByteBuffer text = context.text;
+        text.clear();
+        int read;
+        while ((read = input.read(text.array(), text.position(), text.remaining())) >= 0) {
+            text.position(text.position() + read);
+            if (!text.hasRemaining()) {
+                text = context.grow(text.capacity() * 2);
+            }
+        }
+        return run(text.flip(), context);
+    }
+
+    /**
+     * simulate a scenario, which was filled in the code. It is put on a board directly and
+     * checked in the same order as input.txt, so its results and exceptions are the same as
+     * for its text. A null color or type is an invalid one
+     * @param scenario - scenario to simulate
+     * @param context - context of the current thread
+     * @return results, which stay valid until the next call with this context
+     */
+    public static Results run(Scenario scenario, Context context) {
+        context.results.clear();
+        try {
+            scenario.simulate(context.collector);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (Exception e) {
+            context.collector.writeMessage(e.getMessage());
+        }
+        return context.results;
+    }
+
+    /**
+     * Scenario is a board size, insects and food points, which are given as values instead
+     * of text. It is not checked until it is simulated
+     */
+    public static final class Scenario {
+        private final int size;
+        private int insects;
+        private InsectColor[] colors = new InsectColor[1];
+        private InsectType[] types = new InsectType[1];
+        private int[] insectCells = new int[2];
+        private int food;
+        private int[] foodPoints = new int[3];
+
+        /**
+         * constructor of an empty scenario
+         * @param size - size of the board
+         */
+        public Scenario(int size) {
+            this.size = size;
+        }
+
+        /**
+         * add an insect
+         * @param color - color of the insect
+         * @param type - type of the insect
+         * @param x first coordinate of the insect
+         * @param y second coordinate of the insect
+         * @return this scenario
+         */
+        public Scenario addInsect(InsectColor color, InsectType type, int x, int y) {
+            if (insects == colors.length) {
+                colors = Arrays.copyOf(colors, insects * 2);
+                types = Arrays.copyOf(types, insects * 2);
+                insectCells = Arrays.copyOf(insectCells, insects * 4);
+            }
+            colors[insects] = color;
+            types[insects] = type;
+            insectCells[2 * insects] = x;
+            insectCells[2 * insects + 1] = y;
+            insects++;
+            return this;
+        }
+
+        /**
+         * add a food point
+         * @param amount - amount of food
+         * @param x first coordinate of the food point
+         * @param y second coordinate of the food point
+         * @return this scenario
+         */
+        public Scenario addFood(int amount, int x, int y) {
+            final int fields = 3;
+            if (fields * food == foodPoints.length) {
+                foodPoints = Arrays.copyOf(foodPoints, foodPoints.length * 2);
+            }
+            foodPoints[fields * food] = amount;
+            foodPoints[fields * food + 1] = x;
+            foodPoints[fields * food + 2] = y;
+            food++;
+            return this;
+        }
+
+        /**
+         * remove all insects and food points, so the scenario may be filled again
+         */
+        public void clear() {
+            insects = 0;
+            food = 0;
+        }
+
+        /**
+         * simulate the scenario, it is checked as Main.simulate checks input.txt
+         * @param writer - output of the scenario
+         * @throws Exception the first mistake of the scenario, as for its text
+         */
+        private void simulate(ResultWriter writer) throws Exception {
+            Main.simulate(size, insects, colors, types, insectCells, food, foodPoints, writer);
+        }
+    }
+
+    /**
+     * Context keeps the buffers and results of one thread, it must not be used by two
+     * threads at once. Buffers grow with the largest scenario, reset gives their memory back
+     */
+    public static final class Context {
+        private static final int TEXT_BUFFER = 1 << 12;
+
+        private ByteBuffer text = ByteBuffer.allocate(TEXT_BUFFER);
+        private final Results results = new Results();
+        private final Collector collector = new Collector(results);
+
+        /**
+         * constructor is private, see newContext
+         */
+        private Context() {
+        }
+
+        /**
+         * forget the last results and shrink buffers, which have grown
+         */
+        public void reset() {
+            if (text.capacity() > TEXT_BUFFER) {
+                text = ByteBuffer.allocate(TEXT_BUFFER);
+            }
+            results.shrink();
+        }
+
+        /**
+         * replace the text buffer with a larger one, which keeps its bytes
+         * @param capacity - new capacity
+         * @return new buffer, ready to be written after the kept bytes
+         */
+        private ByteBuffer grow(int capacity) {
+            text.flip();
+            text = ByteBuffer.allocate(capacity).put(text);
+            return text;
+        }
+    }
+
+    /**
+     * Results of one scenario: either the results of its insects in the order of the input,
+     * or the message of the exception, which rejected it, the same text as in output.txt.
+     * They are filled by the Collector of the context, so nothing is written
+     */
+    public static final class Results {
+        private static final int INSECTS = 16;
+
+        private int size;
+        private InsectColor[] colors = new InsectColor[INSECTS];
+        private InsectType[] types = new InsectType[INSECTS];
+        private Direction[] directions = new Direction[INSECTS];
+        private int[] eatenFood = new int[INSECTS];
+        private String error;
+
+        /**
+         * constructor of empty results
+         */
+        private Results() {
+        }
+
+        /**
+         * check whether the scenario was simulated
+         * @return false if it was rejected
+         */
+        public boolean isValid() {
+            return error == null;
+        }
+
+        /**
+         * message of the exception, which rejected the scenario
+         * @return message, or null if the scenario was simulated
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * number of insects, which have results
+         * @return number of insects
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * color of an insect
+         * @param i - index of the insect in the input
+         * @return color
+         */
+        public InsectColor getColor(int i) {
+            return colors[check(i)];
+        }
+
+        /**
+         * type of an insect
+         * @param i - index of the insect in the input
+         * @return type
+         */
+        public InsectType getType(int i) {
+            return types[check(i)];
+        }
+
+        /**
+         * direction, which an insect has chosen
+         * @param i - index of the insect in the input
+         * @return direction
+         */
+        public Direction getDirection(int i) {
+            return directions[check(i)];
+        }
+
+        /**
+         * food, which an insect has eaten
+         * @param i - index of the insect in the input
+         * @return amount of food
+         */
+        public int getEatenFood(int i) {
+            return eatenFood[check(i)];
+        }
+
+        /**
+         * check an index of an insect
+         * @param i - index
+         * @return the same index
+         */
+        private int check(int i) {
+            if (i < 0 || i >= size) {
+                throw new IndexOutOfBoundsException("Insect " + i + " of " + size);
+            }
+            return i;
+        }
+
+        /**
+         * forget all results
+         */
+        private void clear() {
+            size = 0;
+            error = null;
+        }
+
+        /**
+         * forget all results and shrink arrays, which have grown
+         */
+        private void shrink() {
+            clear();
+            if (colors.length > INSECTS) {
+                colors = new InsectColor[INSECTS];
+                types = new InsectType[INSECTS];
+                directions = new Direction[INSECTS];
+                eatenFood = new int[INSECTS];
+            }
+        }
+
+        /**
+         * add the result of an insect
+         * @param color - color of the insect
+         * @param type - type of the insect
+         * @param direction - chosen direction
+         * @param eaten - amount of eaten food
+         */
+        private void add(InsectColor color, InsectType type, Direction direction, int eaten) {
+            if (size == colors.length) {
+                colors = Arrays.copyOf(colors, size * 2);
+                types = Arrays.copyOf(types, size * 2);
+                directions = Arrays.copyOf(directions, size * 2);
+                eatenFood = Arrays.copyOf(eatenFood, size * 2);
+            }
+            colors[size] = color;
+            types[size] = type;
+            directions[size] = direction;
+            eatenFood[size] = eaten;
+            size++;
+        }
+
+        /**
+         * replace all results with the message of an exception
+         * @param message - message, "null" for a null message as in output.txt
+         */
+        private void reject(String message) {
+            size = 0;
+            error = String.valueOf(message);
+        }
+    }
+
+    /**
+     * Collector is the ResultWriter, which the simulation writes to, it keeps lines in Results
+     * instead of writing them, so the results are filled without any output
+     */
+    private static final class Collector extends ResultWriter {
+        private final Results results;
+
+        /**
+         * constructor of a collector, nothing is written to the channel and the buffer
+         * @param results - where results are kept
+         */
+        private Collector(Results results) {
+            super(null, null);
+            this.results = results;
+        }
+
+        @Override
+        void writeResult(InsectColor color, InsectType type, Direction direction, int eaten) {
+            results.add(color, type, direction, eaten);
+        }
+
+        @Override
+        void writeMessage(String message) {
+            results.reject(message);
+        }
+
+        @Override
+        void flush() {
+        }
+
+        @Override
+        void close() {
+        }
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * this class represent an exception for situation when Two entities in the same position
+ */
+public class TwoEntitiesOnSamePositionException extends Exception {
+    /**
+     * the only instance, it has no stack trace, so a rejected scenario costs no stack walk
+     */
+    static final TwoEntitiesOnSamePositionException INSTANCE = new TwoEntitiesOnSamePositionException();
+
+    /**
+     * constructor of the instance, without a stack trace and suppressed exceptions
+     */
+    private TwoEntitiesOnSamePositionException() {
+        super(null, null, false, false);
+    }
+
+    /**
+     * call message
+     * @return message about mistake
+     */
+    public String getMessage() {
+        return "Two entities in the same position";
+    }
+}
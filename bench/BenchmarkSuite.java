@@ -0,0 +1,388 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * BenchmarkSuite measures the hot paths without any library: getBestDirection and
+ * travelDirection of every insect type over board sizes, food densities and numbers of
+ * insects, and the whole parse, simulate and write pipeline of the classic and swarm modes.
+ * Every case runs warm-up iterations and then measured ones, a fresh board or input is
+ * prepared before each iteration and is not measured. The median time and allocated bytes
+ * per operation are reported, allocations are counted by the thread allocation counter of
+ * the JVM. Results may be saved as a baseline and compared with it later: only allocations
+ * are a gate, they do not depend on the machine, times are reported and never fail a run.
+ * It lives in the benchmark sources and is built together with the program:
+ * "javac -d out *.java bench/*.java" and
+ * "java -cp out BenchmarkSuite [--quick] [--baseline file] [--save file]",
+ * bench/benchmark-baseline.txt is the baseline of the repository
+ */
+public class BenchmarkSuite {
+    /**
+     * an iteration, which is already prepared
+     */
+    interface Trial {
+        /**
+         * run the measured work
+         * @return number of operations
+         * @throws IOException if a writer fails
+         */
+        int run() throws IOException;
+    }
+
+    private static final int[] BOARD_SIZES = {8, 64, 1000, 4000};
+    private static final double[] FOOD_DENSITIES = {0.01, 0.1};
+    private static final int MAX_INSECTS = 1024;
+    private static final int MAX_FOOD = 1 << 18;
+    private static final int DIRECTION_CALLS = 1 << 15;
+
+    /**
+     * time of a case may grow by this factor before it is reported, times are noisy and
+     * depend on the machine, so they are never counted as regressions
+     */
+    private static final double TIME_TOLERANCE = 1.5;
+
+    /**
+     * allocations of a case may grow by this factor plus ALLOCATION_SLACK bytes per operation
+     */
+    private static final double ALLOCATION_TOLERANCE = 1.1;
+    private static final double ALLOCATION_SLACK = 16;
+
+    private final int warmups;
+    private final int iterations;
+
+    /**
+     * false when there are too few warm-up iterations for times to be compared with a baseline
+     */
+    private boolean comparingTimes = true;
+    private final Map<String, double[]> results = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * results go here, so the JIT can not drop the measured work
+     */
+    static volatile long blackhole;
+
+    /**
+     * constructor of a suite
+     * @param warmups - number of iterations, which are not measured
+     * @param iterations - number of measured iterations
+     */
+    BenchmarkSuite(int warmups, int iterations) {
+        this.warmups = warmups;
+        this.iterations = iterations;
+    }
+
+    /**
+     * run all cases, print results and compare them with a baseline, the exit code is 1
+     * if allocations regressed
+     * @param args - optionally "--quick", "--baseline" with a file and "--save" with a file
+     * @throws IOException if a file can not be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        final int warmups = 5;
+        final int iterations = 10;
+        boolean quick = Arrays.asList(args).contains("--quick");
+        BenchmarkSuite suite = quick ? new BenchmarkSuite(1, 3) : new BenchmarkSuite(warmups, iterations);
+        suite.comparingTimes = !quick;
+        suite.runAll();
+        System.out.print(suite.format());
+        int regressions = 0;
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("--baseline")) {
+                regressions = suite.compare(Files.readAllLines(Paths.get(args[i + 1])));
+            } else if (args[i].equals("--save")) {
+                Files.write(Paths.get(args[i + 1]), suite.format().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * run every case of the suite
+     * @throws IOException if a writer fails
+     */
+    void runAll() throws IOException {
+        for (InsectType type : InsectType.values()) {
+            for (int size : BOARD_SIZES) {
+                for (double density : FOOD_DENSITIES) {
+                    int insects = insects(size);
+                    int food = food(size, density);
+                    String params = " d=" + size + " insects=" + insects + " food=" + food;
+                    measure("direction " + type + params, () -> directionTrial(type, size, insects, food));
+                    measure("travel " + type + params, () -> travelTrial(type, size, insects, food));
+                }
+            }
+        }
+        final int classicSize = 1000;
+        final int classicInsects = 16;
+        final int classicFood = 200;
+        byte[] classic = input(false, classicSize, classicInsects, classicFood);
+        measure("pipeline classic d=" + classicSize, () -> pipelineTrial(classic, false));
+        final int[] swarmSizes = {1000, 100000};
+        final int swarmEntities = 20000;
+        for (int size : swarmSizes) {
+            byte[] swarm = input(true, size, swarmEntities, swarmEntities);
+            measure("pipeline swarm d=" + size + " insects=" + swarmEntities + " food=" + swarmEntities,
+                    () -> pipelineTrial(swarm, true));
+        }
+    }
+
+    /**
+     * number of insects of a board in the cases of one insect type
+     */
+    private static int insects(int size) {
+        final int cellsPerInsect = 8;
+        return Math.max(1, Math.min(MAX_INSECTS, size * size / cellsPerInsect));
+    }
+
+    /**
+     * number of food points of a board with a given density
+     */
+    private static int food(int size, double density) {
+        return (int) Math.max(1, Math.min(MAX_FOOD, (long) (density * size * size)));
+    }
+
+    /**
+     * a board with insects of one type and random colors, and food from 1 to 100, on
+     * random cells, the same seed gives the same board
+     */
+    private static Board board(InsectType type, int size, int insects, int food) {
+        final long seed = 20;
+        final int maxFood = 100;
+        Random random = new Random(seed);
+        Board board = new Board(size, insects, food);
+        InsectColor[] colors = InsectColor.values();
+        for (int i = 0; i < insects; i++) {
+            int x = 1 + random.nextInt(size);
+            int y = 1 + random.nextInt(size);
+            if (board.isOccupied(x, y)) {
+                i--;
+                continue;
+            }
+            board.addInsect(x, y, colors[random.nextInt(colors.length)], type);
+        }
+        for (int i = 0; i < food; i++) {
+            int x = 1 + random.nextInt(size);
+            int y = 1 + random.nextInt(size);
+            if (board.isOccupied(x, y)) {
+                i--;
+                continue;
+            }
+            board.addFood(x, y, 1 + random.nextInt(maxFood));
+        }
+        return board;
+    }
+
+    /**
+     * getBestDirection of every insect again and again, the board does not change and its
+     * lazy indexes of visible food are built before
+     */
+    private static Trial directionTrial(InsectType type, int size, int insects, int food) {
+        Board board = board(type, size, insects, food);
+        board.prepareVisibleFood();
+        Insect[] handles = new Insect[insects];
+        for (int i = 0; i < insects; i++) {
+            handles[i] = board.getInsect(i);
+        }
+        return () -> {
+            long sum = 0;
+            for (int call = 0; call < DIRECTION_CALLS; call++) {
+                sum += handles[call % insects].getBestDirection(board, size).ordinal();
+            }
+            blackhole = sum;
+            return DIRECTION_CALLS;
+        };
+    }
+
+    /**
+     * travelDirection of every insect once in the order of ids, directions are chosen before
+     */
+    private static Trial travelTrial(InsectType type, int size, int insects, int food) {
+        Board board = board(type, size, insects, food);
+        Insect[] handles = new Insect[insects];
+        Direction[] directions = new Direction[insects];
+        for (int i = 0; i < insects; i++) {
+            handles[i] = board.getInsect(i);
+            directions[i] = handles[i].getBestDirection(board, size);
+        }
+        return () -> {
+            long sum = 0;
+            for (int i = 0; i < insects; i++) {
+                sum += handles[i].travelDirection(directions[i], board, size);
+            }
+            blackhole = sum;
+            return insects;
+        };
+    }
+
+    /**
+     * the whole scenario: parsing the input, simulating and writing all results
+     */
+    private static Trial pipelineTrial(byte[] input, boolean swarm) {
+        final int bufferSize = 1 << 16;
+        InputParser parser = new InputParser(ByteBuffer.wrap(input));
+        ResultWriter writer = new ResultWriter(Channels.newChannel(OutputStream.nullOutputStream()),
+                ByteBuffer.allocate(bufferSize));
+        return () -> {
+            if (swarm) {
+                Main.simulateSwarm(parser, writer);
+            } else {
+                Main.simulate(parser, writer);
+            }
+            writer.flush();
+            return 1;
+        };
+    }
+
+    /**
+     * text of a random scenario, classic insects have distinct colors and types
+     */
+    private static byte[] input(boolean swarm, int size, int insects, int food) {
+        final long seed = 7;
+        return input(swarm, size, insects, food, seed, InsectType.values());
+    }
+
+    /**
+     * text of a random scenario on distinct random cells with food from 1 to 100, classic
+     * insects have distinct colors and types, swarm insects have random colors and given types
+     * @param swarm - true for the swarm mode, where insect lines start with ids
+     * @param size - size of the board
+     * @param insects - number of insects
+     * @param food - number of food points
+     * @param seed - seed of the random numbers
+     * @param types - types of swarm insects
+     * @return text of the scenario
+     */
+    static byte[] input(boolean swarm, int size, int insects, int food, long seed, InsectType[] types) {
+        final int maxFood = 100;
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        text.append(size).append('\n').append(insects).append('\n').append(food).append('\n');
+        Map<Long, Boolean> used = new HashMap<>();
+        InsectColor[] colors = InsectColor.values();
+        InsectType[] allTypes = InsectType.values();
+        for (int i = 0; i < insects + food; i++) {
+            int x = 1 + random.nextInt(size);
+            int y = 1 + random.nextInt(size);
+            if (used.put((long) x * (size + 1) + y, true) != null) {
+                i--;
+                continue;
+            }
+            if (i >= insects) {
+                text.append(1 + random.nextInt(maxFood)).append(' ').append(x).append(' ').append(y).append('\n');
+                continue;
+            }
+            if (swarm) {
+                text.append(i).append(' ').append(colors[random.nextInt(colors.length)]).append(' ')
+                        .append(types[random.nextInt(types.length)]);
+            } else {
+                text.append(colors[i / allTypes.length]).append(' ').append(allTypes[i % allTypes.length]);
+            }
+            text.append(' ').append(x).append(' ').append(y).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * bytes allocated by the current thread, or -1 if the JVM does not count them
+     */
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * run one case and remember the median time and allocations per operation
+     * @param name - name of the case
+     * @param prepare - prepares an iteration, it is not measured
+     * @throws IOException if a writer fails
+     */
+    void measure(String name, Supplier<Trial> prepare) throws IOException {
+        double[] times = new double[iterations];
+        double[] allocations = new double[iterations];
+        for (int i = -warmups; i < iterations; i++) {
+            Trial trial = prepare.get();
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            int operations = trial.run();
+            long elapsed = System.nanoTime() - start;
+            long allocated = allocatedBytes() - bytes;
+            if (i >= 0) {
+                times[i] = (double) elapsed / operations;
+                allocations[i] = bytes < 0 ? -1 : (double) allocated / operations;
+            }
+        }
+        names.add(name);
+        results.put(name, new double[] {median(times), median(allocations)});
+    }
+
+    /**
+     * median of measured values
+     */
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * here we format results as lines "name<TAB>ns/op<TAB>B/op", which can be read as a baseline
+     * @return results of all cases
+     */
+    String format() {
+        StringBuilder text = new StringBuilder();
+        for (String name : names) {
+            double[] result = results.get(name);
+            text.append(String.format("%s\t%.1f\t%.1f%n", name, result[0], result[1]));
+        }
+        return text.toString();
+    }
+
+    /**
+     * compare results with a baseline and print every case, which got slower or allocates more.
+     * Only allocations are counted: they are stable, times depend on the machine.
+     * Lines, which are not results, like comments, are skipped
+     * @param baseline - lines of a saved baseline
+     * @return number of regressions
+     */
+    int compare(List<String> baseline) {
+        int regressions = 0;
+        for (String line : baseline) {
+            String[] fields = line.split("\t");
+            final int columns = 3;
+            double[] result = results.get(fields[0]);
+            if (fields.length != columns || result == null) {
+                continue;
+            }
+            double time = Double.parseDouble(fields[1]);
+            double allocation = Double.parseDouble(fields[2]);
+            if (result[1] > allocation * ALLOCATION_TOLERANCE + ALLOCATION_SLACK) {
+                System.out.printf("REGRESSION allocations %s: %.1f B/op, baseline %.1f%n", fields[0], result[1], allocation);
+                regressions++;
+            }
+            if (comparingTimes && result[0] > time * TIME_TOLERANCE) {
+                System.out.printf("slower, not a regression: %s: %.1f ns/op, baseline %.1f%n",
+                        fields[0], result[0], time);
+            }
+        }
+        return regressions;
+    }
+}
+
@@ -0,0 +1,96 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * RayKernelBench measures getBestDirection alone in the steady state: one board is built once
+ * and every insect chooses its direction again and again, nothing is allocated or prepared
+ * between rounds. It uses only the constructor of Board, addInsect, addFood, getInsect and
+ * getBestDirection, which exist in every revision of Main.java since the kernel was added,
+ * so older revisions can be measured by the same code. The current tree is built as the other
+ * benchmarks, "javac -d out *.java bench/*.java", a revision, which had only Main.java, by
+ * "git show REV:Main.java > rev/Main.java" and "javac -d rev rev/Main.java bench/RayKernelBench.java",
+ * then "java -cp out RayKernelBench [size] [insects] [food]", by default 1000 16 200.
+ * Every round lasts ROUND_NANOS, the first WARM_UP_ROUNDS are not counted, the median, the
+ * minimum and the maximum of the other rounds are printed in ns per call
+ */
+public class RayKernelBench {
+    private static final int ROUNDS = 15;
+    private static final int WARM_UP_ROUNDS = 5;
+    private static final long ROUND_NANOS = 400_000_000L;
+    private static final long SEED = 1;
+
+    /**
+     * constructor is private, the benchmark has only main
+     */
+    private RayKernelBench() {
+    }
+
+    /**
+     * build a board and print the times of getBestDirection
+     * @param args - optionally the size of the board, the number of insects and of food points
+     */
+    public static void main(String[] args) {
+        final int defaultSize = 1000;
+        final int defaultInsects = 16;
+        final int defaultFood = 200;
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : defaultSize;
+        int insects = args.length > 1 ? Integer.parseInt(args[1]) : defaultInsects;
+        int food = args.length > 2 ? Integer.parseInt(args[2]) : defaultFood;
+        Board board = build(size, insects, food);
+        long sink = 0;
+        double[] rounds = new double[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            long repetitions = 0;
+            while (System.nanoTime() - start < ROUND_NANOS) {
+                for (int i = 0; i < insects; i++) {
+                    sink += board.getInsect(i).getBestDirection(board, size).ordinal();
+                }
+                repetitions++;
+            }
+            rounds[round] = (System.nanoTime() - start) / (repetitions * (double) insects);
+        }
+        double[] counted = Arrays.copyOfRange(rounds, WARM_UP_ROUNDS, ROUNDS);
+        Arrays.sort(counted);
+        System.out.printf("getBestDirection d=%d insects=%d food=%d: median %.1f ns/op, min %.1f, max %.1f (%d)%n",
+                size, insects, food, counted[counted.length / 2], counted[0], counted[counted.length - 1], sink);
+    }
+
+    /**
+     * here we place insects of all colors and types and food points on random free cells
+     * @param size - size of the board
+     * @param insects - number of insects
+     * @param food - number of food points
+     * @return board
+     */
+    private static Board build(int size, int insects, int food) {
+        final int maxFood = 100;
+        final int shift = 32;
+        Random random = new Random(SEED);
+        Board board = new Board(size, insects, food);
+        Set<Long> used = new HashSet<>();
+        InsectColor[] colors = InsectColor.values();
+        InsectType[] types = InsectType.values();
+        int placed = 0;
+        while (placed < insects) {
+            int x = 1 + random.nextInt(size);
+            int y = 1 + random.nextInt(size);
+            if (used.add((long) x << shift | y)) {
+                board.addInsect(x, y, colors[placed % colors.length], types[placed / colors.length % types.length]);
+                placed++;
+            }
+        }
+        placed = 0;
+        while (placed < food) {
+            int x = 1 + random.nextInt(size);
+            int y = 1 + random.nextInt(size);
+            if (used.add((long) x << shift | y)) {
+                board.addFood(x, y, 1 + random.nextInt(maxFood));
+                placed++;
+            }
+        }
+        return board;
+    }
+}
@@ -0,0 +1,217 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * ScalingHarness drives the whole swarm pipeline of Main, parsing, simulating and writing,
+ * over generated scenarios: boards from 4 to 100000 cells on a side, several numbers of
+ * insects and food points, and every insect type alone or all of them mixed. Each
+ * configuration runs a number of scenarios with different seeds, inputs are generated
+ * before and are not measured. For each configuration we report scenarios per second,
+ * p50, p99 and p999 latency of a scenario, peak heap after a collection before the
+ * configuration, and allocation rate, as a table and optionally as CSV or JSON:
+ * "java -cp out ScalingHarness [--quick] [--csv file] [--json file]". It needs nothing but
+ * the JVM and runs offline, it is built with the benchmark sources, see BenchmarkSuite
+ */
+public class ScalingHarness {
+    private static final int[] BOARD_SIZES = {4, 10, 100, 1000, 10000, 100000};
+    private static final int[] COUNTS = {16, 1024, 65536};
+    private static final String[] COLUMNS = {
+        "d", "insects", "food", "mix", "scenarios", "seconds", "scenarios_per_s",
+        "p50_ms", "p99_ms", "p999_ms", "peak_heap_mb", "alloc_mb_per_s"
+    };
+
+    private final int scenarios;
+    private final int largestCount;
+    private final List<Object[]> rows = new ArrayList<>();
+
+    /**
+     * constructor of a harness
+     * @param scenarios - number of scenarios of every configuration
+     * @param largestCount - largest number of insects or food points
+     */
+    ScalingHarness(int scenarios, int largestCount) {
+        this.scenarios = scenarios;
+        this.largestCount = largestCount;
+    }
+
+    /**
+     * run all configurations and write reports
+     * @param args - optionally "--quick", "--csv" with a file and "--json" with a file
+     * @throws IOException if a report can not be written
+     */
+    public static void main(String[] args) throws IOException {
+        final int scenarios = 20;
+        final int quickScenarios = 3;
+        final int quickLargest = 1024;
+        boolean quick = Arrays.asList(args).contains("--quick");
+        ScalingHarness harness = quick ? new ScalingHarness(quickScenarios, quickLargest)
+                : new ScalingHarness(scenarios, Integer.MAX_VALUE);
+        harness.runAll();
+        System.out.print(harness.table());
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("--csv")) {
+                Files.write(Paths.get(args[i + 1]), harness.csv().getBytes(StandardCharsets.UTF_8));
+            } else if (args[i].equals("--json")) {
+                Files.write(Paths.get(args[i + 1]), harness.json().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * run every configuration, numbers of entities are limited by a quarter of the board each
+     * @throws IOException if a writer fails
+     */
+    void runAll() throws IOException {
+        List<InsectType[]> mixes = new ArrayList<>();
+        for (InsectType type : InsectType.values()) {
+            mixes.add(new InsectType[] {type});
+        }
+        mixes.add(InsectType.values());
+        for (int size : BOARD_SIZES) {
+            long quarter = (long) size * size / 4;
+            List<Integer> counts = new ArrayList<>();
+            for (int count : COUNTS) {
+                int limited = (int) Math.min(count, quarter);
+                if (count <= largestCount && !counts.contains(limited)) {
+                    counts.add(limited);
+                }
+            }
+            for (int insects : counts) {
+                for (int food : counts) {
+                    for (InsectType[] mix : mixes) {
+                        run(size, insects, food, mix);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * run the scenarios of one configuration
+     */
+    private void run(int size, int insects, int food, InsectType[] mix) throws IOException {
+        final int bufferSize = 1 << 16;
+        final double nanosPerMilli = 1e6;
+        final double bytesPerMegabyte = 1 << 20;
+        byte[][] inputs = new byte[scenarios][];
+        for (int i = 0; i < scenarios; i++) {
+            inputs[i] = BenchmarkSuite.input(true, size, insects, food, i, mix);
+        }
+        ResultWriter writer = new ResultWriter(Channels.newChannel(OutputStream.nullOutputStream()),
+                ByteBuffer.allocate(bufferSize));
+        List<java.lang.management.MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+        System.gc();
+        for (java.lang.management.MemoryPoolMXBean pool : pools) {
+            pool.resetPeakUsage();
+        }
+        long[] latencies = new long[scenarios];
+        long allocated = BenchmarkSuite.allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < scenarios; i++) {
+            long scenarioStart = System.nanoTime();
+            Main.simulateSwarm(new InputParser(ByteBuffer.wrap(inputs[i])), writer);
+            writer.flush();
+            latencies[i] = System.nanoTime() - scenarioStart;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        allocated = BenchmarkSuite.allocatedBytes() - allocated;
+        long peakHeap = 0;
+        for (java.lang.management.MemoryPoolMXBean pool : pools) {
+            if (pool.getType() == java.lang.management.MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        Arrays.sort(latencies);
+        final double p50 = 0.5;
+        final double p99 = 0.99;
+        final double p999 = 0.999;
+        String mixName = mix.length == 1 ? mix[0].toString() : "All";
+        rows.add(new Object[] {
+            size, insects, food, mixName, scenarios, seconds, scenarios / seconds,
+            percentile(latencies, p50) / nanosPerMilli, percentile(latencies, p99) / nanosPerMilli,
+            percentile(latencies, p999) / nanosPerMilli, peakHeap / bytesPerMegabyte,
+            allocated / bytesPerMegabyte / seconds
+        });
+    }
+
+    /**
+     * nearest-rank percentile of sorted values
+     */
+    private static long percentile(long[] sorted, double rank) {
+        int index = (int) Math.ceil(rank * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    /**
+     * text of a value, numbers with three digits after the point and never a comma
+     */
+    private static String text(Object value) {
+        if (value instanceof Double) {
+            return String.format(Locale.ROOT, "%.3f", (Double) value);
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * here we format results as an aligned table for people
+     * @return table with a header
+     */
+    String table() {
+        StringBuilder text = new StringBuilder();
+        final String cell = "%16s";
+        for (String column : COLUMNS) {
+            text.append(String.format(cell, column));
+        }
+        text.append(System.lineSeparator());
+        for (Object[] row : rows) {
+            for (Object value : row) {
+                text.append(String.format(cell, text(value)));
+            }
+            text.append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+
+    /**
+     * here we format results as CSV with a header
+     * @return CSV text
+     */
+    String csv() {
+        StringBuilder text = new StringBuilder(String.join(",", COLUMNS)).append('\n');
+        for (Object[] row : rows) {
+            text.append(Arrays.stream(row).map(ScalingHarness::text).collect(Collectors.joining(","))).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * here we format results as a JSON array of objects, the mix is a string
+     * @return JSON text
+     */
+    String json() {
+        StringBuilder text = new StringBuilder("[\n");
+        for (int r = 0; r < rows.size(); r++) {
+            text.append("  {");
+            for (int c = 0; c < COLUMNS.length; c++) {
+                Object value = rows.get(r)[c];
+                String quote = value instanceof String ? "\"" : "";
+                text.append(c == 0 ? "" : ", ").append('"').append(COLUMNS[c]).append("\": ")
+                        .append(quote).append(text(value)).append(quote);
+            }
+            text.append(r + 1 < rows.size() ? "},\n" : "}\n");
+        }
+        return text.append("]\n").toString();
+    }
+}
+
@@ -0,0 +1,1022 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * DifferentialTest compares the program with its baseline, the original program in
+ * test/baseline/Main.java, on generated scenarios. The baseline reads input.txt and writes
+ * output.txt in its working directory, so every scenario of the baseline runs in its own
+ * process and directory. Boards of every part have sizes on both sides of the thresholds of
+ * StorageKind.choose. These parts are checked:
+ * classic - valid scenarios and scenarios with every kind of mistake, the output of
+ * Main.simulate, of Simulation.run with the text and, when the mistake is not in the text,
+ * with a Simulation.Scenario must be the same as output.txt of the baseline. Food may be
+ * negative or near the ends of the int range, so sums along rays wrap around as in the baseline;
+ * batch and daemon - the same scenarios simulated by "--batch", separately and combined, and
+ * sent to a "--serve" daemon by "--client";
+ * generated - scenarios of "--generate" with every distribution, layout and exception,
+ * compared with the baseline;
+ * swarm - scenarios of the swarm mode, most of them with more insects than
+ * SpeculativeEngine.MIN_INSECTS, run by "--swarm" with the common pool of one thread, of
+ * several threads and with "--waves", the results must be the ones of the baseline without
+ * its limits, after the id of the insect, and "--waves" must report its plan;
+ * journal - the same scenarios written by "--journal" with several threads, read back by
+ * "--replay", and rewound to a random insect by "--rewind", which simulates the rest again,
+ * must give these results every time;
+ * snapshots - variants of a board, one of which loses a food point, are simulated from
+ * different threads, every variant must give the baseline results of its own scenario, and
+ * the board itself must not change;
+ * ticks - the baseline has no multi-tick mode, so "--ticks" with and without regrowing food
+ * is compared with TickModel, a plain model of MultiTickEngine on a grid.
+ * test/run.sh builds everything and runs "java DifferentialTest baseline uncapped work [seed] [scenarios]",
+ * where baseline and uncapped are classes of the baseline with and without its limits
+ */
+public class DifferentialTest {
+    private static final String[] COLORS = {"Red", "Green", "Blue", "Yellow"};
+    private static final String[] TYPES = {"Butterfly", "Ant", "Spider", "Grasshopper"};
+    private static final String SEPARATOR = System.lineSeparator();
+    private static final String JAVA = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    private static final int BUFFER = 1 << 16;
+
+    /**
+     * threads of the common pool in the parallel runs of the swarm mode
+     */
+    private static final int PARALLELISM = 4;
+
+    /**
+     * sizes on both sides of the thresholds of StorageKind.choose: packed up to 8, dense from 64
+     */
+    private static final int[] THRESHOLD_SIZES = {8, 9, 63, 64, 65};
+
+    /**
+     * sizes of boards of the swarm mode, small ones have fewer insects than SpeculativeEngine.MIN_INSECTS
+     */
+    private static final int[] SWARM_SIZES = {8, 9, 63, 64, 65, 128, 300};
+
+    /**
+     * exceptions, which "--generate --invalid" makes Main throw, and their messages
+     */
+    private static final String[][] INVALID = {
+        {"InvalidBoardSizeException", "Invalid board size"},
+        {"InvalidNumberOfInsectsException", "Invalid number of insects"},
+        {"InvalidNumberOfFoodPointsException", "Invalid number of food points"},
+        {"InvalidInsectColorException", "Invalid insect color"},
+        {"InvalidInsectTypeException", "Invalid insect type"},
+        {"InvalidEntityPositionException", "Invalid entity position"},
+        {"DuplicateInsectException", "Duplicate insects"},
+        {"TwoEntitiesOnSamePositionException", "Two entities in the same position"},
+        {"InputMismatchException", "null"},
+        {"NoSuchElementException", "null"},
+    };
+
+    private static final int VALID = 4;
+    private static final int BOARD_SIZE = 4;
+    private static final int INSECTS = 5;
+    private static final int FOOD = 6;
+    private static final int COLOR = 7;
+    private static final int TYPE = 8;
+    private static final int POSITION = 9;
+    private static final int DUPLICATE = 10;
+    private static final int SAME_CELL = 11;
+    private static final int NOT_INT = 12;
+    private static final int MISSING = 13;
+    private static final int OVERFLOW = 14;
+    private static final int KINDS = 15;
+
+    private final Path baseline;
+    private final Path uncapped;
+    private final Path work;
+    private final Random random;
+    private final Simulation.Context context = Simulation.newContext();
+    private final List<String> classicInputs = new ArrayList<>();
+    private final List<String> classicOutputs = new ArrayList<>();
+    private int failures;
+
+    /**
+     * constructor of a test
+     * @param baseline - classes of the baseline
+     * @param uncapped - classes of the baseline without limits on insects and food points
+     * @param work - directory for scenarios and outputs
+     * @param seed - seed of the generated scenarios
+     */
+    DifferentialTest(Path baseline, Path uncapped, Path work, long seed) {
+        this.baseline = baseline.toAbsolutePath();
+        this.uncapped = uncapped.toAbsolutePath();
+        this.work = work.toAbsolutePath();
+        this.random = new Random(seed);
+    }
+
+    /**
+     * run all parts, the exit code is 1 if any output differs
+     * @param args - classes of the baseline, classes of the uncapped baseline, a work directory,
+     * and optionally a seed and the number of classic scenarios
+     * @throws Exception if a process or a file fails
+     */
+    public static void main(String[] args) throws Exception {
+        final int defaultScenarios = 120;
+        final int perSwarm = 20;
+        final int perSnapshot = 6;
+        final int perGenerated = 3;
+        final int perTicks = 6;
+        final int minSwarms = 3;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        int scenarios = args.length > 4 ? Integer.parseInt(args[4]) : defaultScenarios;
+        DifferentialTest test = new DifferentialTest(Paths.get(args[0]), Paths.get(args[1]), Paths.get(args[2]), seed);
+        test.classic(scenarios);
+        test.batch();
+        test.daemon();
+        test.generated(Math.max(INVALID.length + 1, scenarios / perGenerated));
+        test.swarm(Math.max(SWARM_SIZES.length, scenarios / perSwarm));
+        test.snapshots(Math.max(minSwarms, scenarios / perSnapshot));
+        test.ticks(Math.max(THRESHOLD_SIZES.length, scenarios / perTicks));
+        System.out.println(test.failures == 0 ? "ALL IDENTICAL" : test.failures + " MISMATCHES");
+        System.exit(test.failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * compare valid and broken classic scenarios with the baseline, they are kept for batch and daemon
+     * @param count - number of random scenarios
+     * @throws Exception if a process or a file fails
+     */
+    void classic(int count) throws Exception {
+        int before = failures;
+        for (int size : new int[] {10, 100}) {
+            String input = size + "\n1\n2\nRed Butterfly 5 5\n-2147483648 5 6\n-2147483643 5 7\n";
+            classic("classic-wrapped-" + size, input, null);
+        }
+        for (int size : THRESHOLD_SIZES) {
+            Scenario scenario = classicScenario(0, size);
+            classic("classic-size-" + size, scenario.render(false, -1, 0), scenario);
+        }
+        for (int i = 0; i < count; i++) {
+            int kind = random.nextInt(KINDS);
+            Scenario scenario = classicScenario(kind < VALID ? 0 : kind);
+            boolean inText = kind >= VALID && kind != DUPLICATE && kind != SAME_CELL;
+            classic("classic-" + i, scenario.render(false, -1, kind), inText ? null : scenario);
+        }
+        System.out.println("classic: " + classicInputs.size() + " scenarios, " + (failures - before) + " mismatches");
+    }
+
+    /**
+     * compare one classic scenario with the baseline, in this process and through the Simulation API
+     * @param name - name of the case
+     * @param input - text of input.txt
+     * @param scenario - the same scenario as values, null if its mistake is only in the text
+     * @throws Exception if a process or a file fails
+     */
+    private void classic(String name, String input, Scenario scenario) throws Exception {
+        String expected = runBaseline(baseline, name, input);
+        check(name, expected, simulate(input));
+        ByteBuffer text = ByteBuffer.wrap(input.getBytes(StandardCharsets.US_ASCII));
+        check(name + " api text", expected, text(Simulation.run(text, context)));
+        if (scenario != null) {
+            check(name + " api scenario", expected, text(Simulation.run(scenario.toSimulation(), context)));
+        }
+        classicInputs.add(input);
+        classicOutputs.add(expected);
+    }
+
+    /**
+     * simulate the classic scenarios by "--batch" into separate files and into one combined file
+     * @throws Exception if a process or a file fails
+     */
+    void batch() throws Exception {
+        int before = failures;
+        Path dir = work.resolve("batch");
+        Path scenarios = dir.resolve("scenarios");
+        Files.createDirectories(scenarios);
+        StringBuilder combined = new StringBuilder();
+        for (int i = 0; i < classicInputs.size(); i++) {
+            Path input = scenarios.resolve(String.format("input-%04d.txt", i));
+            Files.write(input, classicInputs.get(i).getBytes(StandardCharsets.US_ASCII));
+            combined.append("# ").append(input).append(SEPARATOR).append(classicOutputs.get(i));
+        }
+        run(dir, current(PARALLELISM, "--batch", scenarios.toString()));
+        for (int i = 0; i < classicInputs.size(); i++) {
+            check("batch " + i, classicOutputs.get(i), read(scenarios.resolve(String.format("output-%04d.txt", i))));
+        }
+        check("batch combined", combined.toString(),
+                runCurrent(dir, PARALLELISM, "--batch", scenarios.toString(), "--combined", "combined.txt"));
+        System.out.println("batch: " + classicInputs.size() + " scenarios, " + (failures - before) + " mismatches");
+    }
+
+    /**
+     * start a daemon and send the classic scenarios to it by "--client"
+     * @throws Exception if a process or a file fails
+     */
+    void daemon() throws Exception {
+        final int workers = 2;
+        final int warmup = 100;
+        final long waitMillis = 20;
+        final long timeoutMillis = 30000;
+        int before = failures;
+        Path dir = work.resolve("daemon");
+        Files.createDirectories(dir);
+        Path socket = dir.resolve("socket");
+        Files.deleteIfExists(socket);
+        Process daemon = new ProcessBuilder(current(workers, "--serve", socket.toString(), "--workers",
+                Integer.toString(workers), "--warmup", Integer.toString(warmup))).directory(dir.toFile())
+                .redirectErrorStream(true).redirectOutput(dir.resolve("process.log").toFile()).start();
+        try {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (!Files.exists(socket) && daemon.isAlive() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(waitMillis);
+            }
+            checkThat("daemon started", Files.exists(socket));
+            for (int i = 0; i < classicInputs.size() && Files.exists(socket); i++) {
+                Path input = dir.resolve("input-" + i + ".txt");
+                Path output = dir.resolve("output-" + i + ".txt");
+                Files.write(input, classicInputs.get(i).getBytes(StandardCharsets.US_ASCII));
+                SimulationDaemon.client(new String[] {"--client", socket.toString(), input.toString(), output.toString()});
+                check("daemon " + i, classicOutputs.get(i), read(output));
+            }
+        } finally {
+            daemon.destroy();
+            daemon.waitFor();
+        }
+        System.out.println("daemon: " + classicInputs.size() + " scenarios, " + (failures - before) + " mismatches");
+    }
+
+    /**
+     * compare classic scenarios of "--generate" with the baseline, the first ones are broken
+     * with every exception, which the generator knows, and must fail with its message
+     * @param count - number of scenarios
+     * @throws Exception if a process or a file fails
+     */
+    void generated(int count) throws Exception {
+        final String[] values = {"uniform:1:100", "uniform:-100:100", "constant:7", "pareto:1:1.5",
+            "uniform:-2147483648:2147483647"};
+        final String[] layouts = {"uniform", "rows:2", "diagonals:3"};
+        final int maxInsects = 16;
+        final int maxFood = 200;
+        int before = failures;
+        for (int i = 0; i < count; i++) {
+            String name = "generated-" + i;
+            int size = randomSize();
+            int cells = size * size;
+            int insects = 2 + random.nextInt(Math.min(maxInsects, cells / 2) - 1);
+            int food = 1 + random.nextInt(Math.min(maxFood, cells - insects));
+            Path dir = work.resolve(name);
+            Files.createDirectories(dir);
+            Path file = dir.resolve("generated.txt");
+            List<String> args = new ArrayList<>(List.of("--generate", "--seed", Long.toString(random.nextLong()),
+                    "--size", Integer.toString(size), "--insects", Integer.toString(insects),
+                    "--food", Integer.toString(food), "--values", values[random.nextInt(values.length)],
+                    "--layout", layouts[random.nextInt(layouts.length)]));
+            if (i < INVALID.length) {
+                args.addAll(List.of("--invalid", INVALID[i][0]));
+            }
+            args.add(file.toString());
+            ScenarioGenerator.main(args.toArray(new String[0]));
+            String input = read(file);
+            String expected = runBaseline(baseline, name, input);
+            check(name, expected, simulate(input));
+            if (i < INVALID.length) {
+                check(name + " " + INVALID[i][0], INVALID[i][1] + SEPARATOR, expected);
+            }
+        }
+        System.out.println("generated: " + count + " scenarios, " + (failures - before) + " mismatches");
+    }
+
+    /**
+     * compare the swarm mode, sequential, parallel and with waves, and journals with the
+     * uncapped baseline
+     * @param count - number of scenarios
+     * @throws Exception if a process or a file fails
+     */
+    void swarm(int count) throws Exception {
+        int before = failures;
+        for (int i = 0; i < count; i++) {
+            String name = "swarm-" + i;
+            int size = SWARM_SIZES[i % SWARM_SIZES.length];
+            int insects = Math.min(size * size / 4,
+                    SpeculativeEngine.MIN_INSECTS + random.nextInt(3 * SpeculativeEngine.MIN_INSECTS));
+            int food = Math.min(size * size / 2 - insects, insects + random.nextInt(2 * insects));
+            Scenario scenario = Scenario.random(random, size, insects, Math.max(1, food), false);
+            String expected = labelled(scenario, runBaseline(uncapped, name, scenario.render(false, -1, 0)));
+
+            Path dir = work.resolve(name);
+            Files.write(dir.resolve("swarm.txt"), scenario.render(true, -1, 0).getBytes(StandardCharsets.US_ASCII));
+            check(name + " parallelism 1", expected, runCurrent(dir, 1, "--swarm", "swarm.txt", "out-1.txt"));
+            check(name + " parallelism " + PARALLELISM, expected,
+                    runCurrent(dir, PARALLELISM, "--swarm", "swarm.txt", "out-n.txt"));
+            check(name + " waves", expected,
+                    runCurrent(dir, PARALLELISM, "--swarm", "--waves", "swarm.txt", "out-waves.txt"));
+            checkThat(name + " wave report", read(dir.resolve("process.log")).startsWith("waves: "));
+
+            check(name + " journal", expected,
+                    runCurrent(dir, PARALLELISM, "--journal", "journal.bin", "swarm.txt", "out-journal.txt"));
+            String in = dir.resolve("swarm.txt").toString();
+            String journal = dir.resolve("journal.bin").toString();
+            Main.simulateJournal(new String[] {"--replay", journal, in, dir.resolve("out-replay.txt").toString()});
+            check(name + " replay", expected, read(dir.resolve("out-replay.txt")));
+            String insect = Integer.toString(random.nextInt(insects));
+            Main.simulateJournal(new String[] {"--rewind", journal, insect, in, dir.resolve("out-rewind.txt").toString()});
+            check(name + " rewind to " + insect, expected, read(dir.resolve("out-rewind.txt")));
+        }
+        System.out.println("swarm and journal: " + count + " scenarios, " + (failures - before) + " mismatches");
+    }
+
+    /**
+     * compare snapshots of boards with every storage with the baseline
+     * @param count - number of scenarios
+     * @throws Exception if a process or a file fails
+     */
+    void snapshots(int count) throws Exception {
+        int before = failures;
+        for (int i = 0; i < count; i++) {
+            String name = "snapshot-" + i;
+            Scenario generated = classicScenario(0);
+            while (generated.food < 2) {
+                generated = classicScenario(0);
+            }
+            Scenario scenario = generated;
+            int removed = random.nextInt(scenario.food);
+            String expected = runBaseline(baseline, name, scenario.render(false, -1, 0));
+            String without = runBaseline(baseline, name + "-without", scenario.render(false, removed, 0));
+
+            Board base = scenario.board(i);
+            Board[] variants = {base.snapshot(), base.snapshot(), base.snapshot(), null};
+            variants[3] = variants[1].snapshot();
+            variants[2].removeFood(scenario.foodX[removed], scenario.foodY[removed]);
+            String[] outputs = new String[variants.length];
+            Thread[] threads = new Thread[variants.length];
+            for (int v = 0; v < variants.length; v++) {
+                int variant = v;
+                threads[v] = new Thread(() -> outputs[variant] = play(variants[variant], scenario.insects));
+                threads[v].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            for (int v = 0; v < variants.length; v++) {
+                check(name + " variant " + v, v == 2 ? without : expected, outputs[v]);
+            }
+            check(name + " base", expected, play(base, scenario.insects));
+        }
+        System.out.println("snapshots: " + count + " scenarios, " + (failures - before) + " mismatches");
+    }
+
+    /**
+     * compare the multi-tick mode with TickModel, with and without regrowing food
+     * @param count - number of scenarios
+     * @throws Exception if a process or a file fails
+     */
+    void ticks(int count) throws Exception {
+        final int maxSize = 80;
+        final int maxInsects = 200;
+        final int maxTicks = 8;
+        final int delays = 4;
+        final int percents = 151;
+        int before = failures;
+        for (int i = 0; i < count; i++) {
+            String name = "ticks-" + i;
+            int size = i < THRESHOLD_SIZES.length ? THRESHOLD_SIZES[i] : 4 + random.nextInt(maxSize - 3);
+            int cells = size * size;
+            int insects = 1 + random.nextInt(Math.min(maxInsects, cells / 4));
+            int food = 1 + random.nextInt(cells / 2);
+            Scenario scenario = Scenario.random(random, size, insects, food, false);
+            int ticks = 1 + random.nextInt(maxTicks);
+            int delay = random.nextInt(delays);
+            int percent = random.nextInt(percents);
+
+            Path dir = work.resolve(name);
+            Files.createDirectories(dir);
+            Files.write(dir.resolve("swarm.txt"), scenario.render(true, -1, 0).getBytes(StandardCharsets.US_ASCII));
+            check(name, TickModel.run(scenario, ticks, 0, 0),
+                    runCurrent(dir, 1, "--ticks", Integer.toString(ticks), "swarm.txt", "out-ticks.txt"));
+            check(name + " regrow " + delay + " " + percent, TickModel.run(scenario, ticks, delay, percent),
+                    runCurrent(dir, 1, "--ticks", Integer.toString(ticks), "--regrow", Integer.toString(delay),
+                            Integer.toString(percent), "swarm.txt", "out-regrow.txt"));
+        }
+        System.out.println("ticks: " + count + " scenarios, " + (failures - before) + " mismatches");
+    }
+
+    /**
+     * here we generate a classic scenario of a random size, which is valid, or has a mistake in its entities
+     * @param kind - 0, or DUPLICATE or SAME_CELL for mistakes, which are made before it is written
+     * @return scenario
+     */
+    private Scenario classicScenario(int kind) {
+        return classicScenario(kind, randomSize());
+    }
+
+    /**
+     * size of a classic board, mostly small ones, sometimes one of THRESHOLD_SIZES
+     * @return size
+     */
+    private int randomSize() {
+        final int small = 20;
+        final int medium = 200;
+        final int large = 1000;
+        final int choices = 12;
+        int choice = random.nextInt(choices);
+        if (choice >= 10) {
+            return THRESHOLD_SIZES[random.nextInt(THRESHOLD_SIZES.length)];
+        }
+        return choice < 6 ? 4 + random.nextInt(small - 3) : choice < 9 ? small + random.nextInt(medium) : medium + random.nextInt(large - medium + 1);
+    }
+
+    /**
+     * here we generate a classic scenario, which is valid, or has a mistake in its entities
+     * @param kind - 0, or DUPLICATE or SAME_CELL for mistakes, which are made before it is written
+     * @param size - size of the board
+     * @return scenario
+     */
+    private Scenario classicScenario(int kind, int size) {
+        final int maxInsects = 16;
+        final int maxFood = 200;
+        int cells = size * size;
+        int insects = 1 + random.nextInt(Math.min(maxInsects, cells / 2));
+        int food = 1 + random.nextInt(Math.min(maxFood, cells - insects));
+        Scenario scenario = Scenario.random(random, size, insects, food, true);
+        if (kind == DUPLICATE && insects > 1) {
+            int k = 1 + random.nextInt(insects - 1);
+            int j = random.nextInt(k);
+            scenario.colors[k] = scenario.colors[j];
+            scenario.types[k] = scenario.types[j];
+        }
+        if (kind == SAME_CELL) {
+            int entities = insects + food;
+            int k = 1 + random.nextInt(entities - 1);
+            int j = random.nextInt(k);
+            scenario.move(k, scenario.x(j), scenario.y(j));
+        }
+        return scenario;
+    }
+
+    /**
+     * run the baseline on a scenario in its own directory
+     * @param classes - classes of the baseline
+     * @param name - name of the directory
+     * @param input - text of input.txt
+     * @return text of output.txt
+     * @throws Exception if the process or a file fails
+     */
+    private String runBaseline(Path classes, String name, String input) throws Exception {
+        Path dir = work.resolve(name);
+        Files.createDirectories(dir);
+        Files.write(dir.resolve("input.txt"), input.getBytes(StandardCharsets.US_ASCII));
+        run(dir, JAVA, "-cp", classes.toString(), "Main");
+        return read(dir.resolve("output.txt"));
+    }
+
+    /**
+     * run this program in a process, whose common pool has a given number of threads
+     * @param dir - working directory
+     * @param parallelism - threads of the common pool
+     * @param args - arguments of Main, the last one is the output file
+     * @return text of the output file
+     * @throws Exception if the process or a file fails
+     */
+    private String runCurrent(Path dir, int parallelism, String... args) throws Exception {
+        run(dir, current(parallelism, args));
+        return read(dir.resolve(args[args.length - 1]));
+    }
+
+    /**
+     * command, which runs this program with a common pool of a given number of threads
+     * @param parallelism - threads of the common pool
+     * @param args - arguments of Main
+     * @return command and its arguments
+     */
+    private static String[] current(int parallelism, String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(JAVA);
+        command.add("-Djava.util.concurrent.ForkJoinPool.common.parallelism=" + parallelism);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("Main");
+        command.addAll(List.of(args));
+        return command.toArray(new String[0]);
+    }
+
+    /**
+     * start a process and wait for it, its output goes to process.log of the directory
+     * @param dir - working directory
+     * @param command - command and its arguments
+     * @throws Exception if the process can not be started or is interrupted
+     */
+    private static void run(Path dir, String... command) throws Exception {
+        Process process = new ProcessBuilder(command).directory(dir.toFile()).redirectErrorStream(true)
+                .redirectOutput(dir.resolve("process.log").toFile()).start();
+        process.waitFor();
+    }
+
+    /**
+     * simulate a classic scenario in this process
+     * @param input - text of input.txt
+     * @return the same text as output.txt
+     * @throws IOException if the writer fails
+     */
+    private static String simulate(String input) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResultWriter writer = new ResultWriter(Channels.newChannel(out), ByteBuffer.allocate(BUFFER));
+        Main.simulate(new InputParser(ByteBuffer.wrap(input.getBytes(StandardCharsets.US_ASCII))), writer);
+        writer.flush();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * results of the Simulation API as the text of output.txt
+     * @param results - results of a scenario
+     * @return the same text as output.txt
+     */
+    private static String text(Simulation.Results results) {
+        if (!results.isValid()) {
+            return results.getError() + SEPARATOR;
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < results.size(); i++) {
+            text.append(results.getColor(i)).append(' ').append(results.getType(i)).append(' ')
+                    .append(results.getDirection(i)).append(' ').append(results.getEatenFood(i)).append(SEPARATOR);
+        }
+        return text.toString();
+    }
+
+    /**
+     * move all insects of a board in the order of their ids, as the baseline does
+     * @param board - filled board
+     * @param insects - number of insects
+     * @return result lines
+     */
+    private static String play(Board board, int insects) {
+        StringBuilder text = new StringBuilder();
+        int size = board.getSize();
+        for (int i = 0; i < insects; i++) {
+            Insect insect = board.getInsect(i);
+            Direction direction = insect.getBestDirection(board, size);
+            int eaten = insect.travelDirection(direction, board, size);
+            text.append(insect.getColor()).append(' ').append(insect.getType()).append(' ')
+                    .append(direction).append(' ').append(eaten).append(SEPARATOR);
+        }
+        return text.toString();
+    }
+
+    /**
+     * put the ids of insects before lines of the baseline, as the swarm mode writes them
+     * @param scenario - scenario with ids
+     * @param output - output of the baseline
+     * @return expected output of the swarm mode
+     */
+    private static String labelled(Scenario scenario, String output) {
+        String[] lines = output.split(SEPARATOR);
+        if (lines.length != scenario.insects) {
+            return output;
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            text.append(scenario.ids[i]).append(' ').append(lines[i]).append(SEPARATOR);
+        }
+        return text.toString();
+    }
+
+    /**
+     * read a whole file, an empty text if it does not exist
+     * @param file - file to read
+     * @return text of the file
+     * @throws IOException if the file can not be read
+     */
+    private static String read(Path file) throws IOException {
+        return Files.exists(file) ? new String(Files.readAllBytes(file), StandardCharsets.UTF_8) : "";
+    }
+
+    /**
+     * compare an output with the expected one and report a difference
+     * @param name - name of the case
+     * @param expected - output of the baseline
+     * @param actual - output of this program
+     */
+    private void check(String name, String expected, String actual) {
+        checkThat(name, expected.equals(actual));
+    }
+
+    /**
+     * report a case, whose check failed
+     * @param name - name of the case
+     * @param passed - result of the check
+     */
+    private void checkThat(String name, boolean passed) {
+        if (!passed) {
+            failures++;
+            System.out.println("MISMATCH " + name + ", see " + work);
+        }
+    }
+
+    /**
+     * Scenario is a board size, insects and food points, which may be written as input.txt
+     * of the classic mode or of the swarm mode, and put on a board
+     */
+    static final class Scenario {
+        private final int size;
+        private final int insects;
+        private final int food;
+        private final int[] ids;
+        private final int[] colors;
+        private final int[] types;
+        private final int[] insectX;
+        private final int[] insectY;
+        private final int[] amounts;
+        private final int[] foodX;
+        private final int[] foodY;
+
+        /**
+         * constructor of a scenario with empty entities
+         * @param size - size of the board
+         * @param insects - number of insects
+         * @param food - number of food points
+         */
+        private Scenario(int size, int insects, int food) {
+            this.size = size;
+            this.insects = insects;
+            this.food = food;
+            this.ids = new int[insects];
+            this.colors = new int[insects];
+            this.types = new int[insects];
+            this.insectX = new int[insects];
+            this.insectY = new int[insects];
+            this.amounts = new int[food];
+            this.foodX = new int[food];
+            this.foodY = new int[food];
+        }
+
+        /**
+         * here we put entities on different random cells
+         * @param random - source of randomness
+         * @param size - size of the board
+         * @param insects - number of insects
+         * @param food - number of food points
+         * @param distinctPairs - true if no two insects have the same color and type
+         * @return scenario
+         */
+        static Scenario random(Random random, int size, int insects, int food, boolean distinctPairs) {
+            final int shift = 32;
+            final int amounts = 4;
+            int amountKind = random.nextInt(amounts);
+            Scenario scenario = new Scenario(size, insects, food);
+            int pairs = COLORS.length * TYPES.length;
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < pairs; i++) {
+                order.add(i);
+            }
+            Collections.shuffle(order, random);
+            Set<Long> used = new HashSet<>();
+            for (int i = 0; i < insects + food; i++) {
+                int x;
+                int y;
+                do {
+                    x = 1 + random.nextInt(size);
+                    y = 1 + random.nextInt(size);
+                } while (!used.add((long) x << shift | y));
+                if (i < insects) {
+                    int pair = distinctPairs ? order.get(i % pairs) : random.nextInt(pairs);
+                    scenario.ids[i] = 3 * i - insects;
+                    scenario.colors[i] = pair / TYPES.length;
+                    scenario.types[i] = pair % TYPES.length;
+                    scenario.insectX[i] = x;
+                    scenario.insectY[i] = y;
+                } else {
+                    scenario.amounts[i - insects] = amount(random, amountKind);
+                    scenario.foodX[i - insects] = x;
+                    scenario.foodY[i - insects] = y;
+                }
+            }
+            return scenario;
+        }
+
+        /**
+         * amount of a food point, food is never checked, so it may be negative, and sums of
+         * food along a ray may wrap around the int range
+         * @param random - source of randomness
+         * @param kind - 0 or 1 for food from 0 to 100, 2 for food from -100 to 100,
+         * 3 for values near the ends of the int range
+         * @return amount of food
+         */
+        static int amount(Random random, int kind) {
+            final int maxAmount = 100;
+            final int[] extremes = {Integer.MIN_VALUE, Integer.MIN_VALUE + 5, Integer.MAX_VALUE,
+                Integer.MAX_VALUE - 7, -1, 0, 1};
+            switch (kind) {
+                case 2:
+                    return random.nextInt(2 * maxAmount + 1) - maxAmount;
+                case 3:
+                    return random.nextBoolean() ? extremes[random.nextInt(extremes.length)] : random.nextInt();
+                default:
+                    return random.nextInt(maxAmount + 1);
+            }
+        }
+
+        /**
+         * first coordinate of an entity, insects go before food points
+         * @param entity - index of the entity
+         * @return first coordinate
+         */
+        int x(int entity) {
+            return entity < insects ? insectX[entity] : foodX[entity - insects];
+        }
+
+        /**
+         * second coordinate of an entity, insects go before food points
+         * @param entity - index of the entity
+         * @return second coordinate
+         */
+        int y(int entity) {
+            return entity < insects ? insectY[entity] : foodY[entity - insects];
+        }
+
+        /**
+         * move an entity to another cell
+         * @param entity - index of the entity, insects go before food points
+         * @param x first coordinate of the cell
+         * @param y second coordinate of the cell
+         */
+        void move(int entity, int x, int y) {
+            if (entity < insects) {
+                insectX[entity] = x;
+                insectY[entity] = y;
+            } else {
+                foodX[entity - insects] = x;
+                foodY[entity - insects] = y;
+            }
+        }
+
+        /**
+         * write the scenario as input.txt
+         * @param withIds - true for the swarm mode, where every insect line starts with its id
+         * @param skippedFood - index of a food point, which is left out, or -1
+         * @param mistake - one of the mistakes, which are made in the text, or anything else
+         * @return text of input.txt
+         */
+        String render(boolean withIds, int skippedFood, int mistake) {
+            Random random = new Random(size * 31L + insects * 7L + food);
+            List<String> lines = new ArrayList<>();
+            lines.add(Integer.toString(size));
+            lines.add(Integer.toString(insects));
+            lines.add(Integer.toString(skippedFood < 0 ? food : food - 1));
+            for (int i = 0; i < insects; i++) {
+                lines.add((withIds ? ids[i] + " " : "") + COLORS[colors[i]] + " " + TYPES[types[i]] + " "
+                        + insectX[i] + " " + insectY[i]);
+            }
+            for (int i = 0; i < food; i++) {
+                if (i != skippedFood) {
+                    lines.add(amounts[i] + " " + foodX[i] + " " + foodY[i]);
+                }
+            }
+            int insect = 3 + random.nextInt(insects);
+            int line = 3 + random.nextInt(lines.size() - 3);
+            String[] tokens = lines.get(line).split(" ");
+            switch (mistake) {
+                case BOARD_SIZE:
+                    lines.set(0, random.nextBoolean() ? "3" : "1001");
+                    break;
+                case INSECTS:
+                    lines.set(1, random.nextBoolean() ? "0" : "17");
+                    break;
+                case FOOD:
+                    lines.set(2, random.nextBoolean() ? "0" : "201");
+                    break;
+                case COLOR:
+                    lines.set(insect, lines.get(insect).replaceFirst("^\\S+", "Purple"));
+                    break;
+                case TYPE:
+                    lines.set(insect, lines.get(insect).replaceFirst(" \\S+", " Beetle"));
+                    break;
+                case POSITION:
+                    tokens[tokens.length - 1 - random.nextInt(2)] = Integer.toString(random.nextBoolean() ? 0 : size + 1);
+                    lines.set(line, String.join(" ", tokens));
+                    break;
+                case NOT_INT:
+                    tokens[tokens.length - 1] = "x" + tokens[tokens.length - 1];
+                    lines.set(line, String.join(" ", tokens));
+                    break;
+                case MISSING:
+                    lines.remove(lines.size() - 1);
+                    break;
+                case OVERFLOW:
+                    tokens[tokens.length - 1] = "4294967296";
+                    lines.set(line, String.join(" ", tokens));
+                    break;
+                default:
+                    break;
+            }
+            return String.join("\n", lines) + "\n";
+        }
+
+        /**
+         * the same scenario as values of the Simulation API
+         * @return scenario of the API
+         */
+        Simulation.Scenario toSimulation() {
+            Simulation.Scenario scenario = new Simulation.Scenario(size);
+            for (int i = 0; i < insects; i++) {
+                scenario.addInsect(InsectColor.values()[colors[i]], InsectType.values()[types[i]], insectX[i], insectY[i]);
+            }
+            for (int i = 0; i < food; i++) {
+                scenario.addFood(amounts[i], foodX[i], foodY[i]);
+            }
+            return scenario;
+        }
+
+        /**
+         * put the scenario on a new board, storages of boards go in turn
+         * @param turn - number of the board, it chooses the storage
+         * @return filled board
+         */
+        Board board(int turn) {
+            final int kinds = 4;
+            Board board;
+            switch (turn % kinds) {
+                case 0:
+                    board = new Board(size, insects, food);
+                    break;
+                case 1:
+                    board = new Board(size, StorageKind.chooseSnapshots(size), insects + food);
+                    break;
+                case 2:
+                    board = new Board(size, StorageKind.DENSE, insects + food);
+                    break;
+                default:
+                    board = new Board(size, StorageKind.SPARSE, insects + food);
+                    break;
+            }
+            for (int i = 0; i < insects; i++) {
+                board.addInsect(insectX[i], insectY[i], InsectColor.values()[colors[i]], InsectType.values()[types[i]]);
+            }
+            for (int i = 0; i < food; i++) {
+                board.addFood(foodX[i], foodY[i], amounts[i]);
+            }
+            return board;
+        }
+    }
+
+    /**
+     * TickModel is a plain model of MultiTickEngine on a grid of cells: every tick each insect,
+     * in the order of ids, looks along its directions, eats along the best one, lands on the last
+     * empty cell before an insect of another color or the board edge, then eaten food grows
+     * again on empty cells after its delay
+     */
+    static final class TickModel {
+        private static final int[][] STEPS = {{-1, 0}, {0, 1}, {1, 0}, {0, -1}, {-1, 1}, {1, 1}, {1, -1}, {-1, -1}};
+        private static final int[][] DIRECTIONS = {{0, 1, 2, 3}, {0, 1, 2, 3, 4, 5, 6, 7}, {4, 5, 6, 7}, {0, 1, 2, 3}};
+        private static final int[] STRIDES = {1, 1, 1, 2};
+
+        private final Scenario scenario;
+        private final int size;
+        private final int delay;
+        private final int percent;
+        private final int[][] insectAt;
+        private final boolean[][] hasFood;
+        private final int[][] foodAt;
+        private final int[] x;
+        private final int[] y;
+        private final long[] eaten;
+        private final List<int[]> queue = new ArrayList<>();
+        private int tick;
+
+        /**
+         * constructor of a model with the entities of a scenario
+         * @param scenario - scenario of the swarm mode
+         * @param delay - ticks before eaten food grows again, 0 if it never does
+         * @param percent - percent of eaten food, which grows again
+         */
+        private TickModel(Scenario scenario, int delay, int percent) {
+            this.scenario = scenario;
+            this.size = scenario.size;
+            this.delay = delay;
+            this.percent = percent;
+            this.insectAt = new int[size + 1][size + 1];
+            this.hasFood = new boolean[size + 1][size + 1];
+            this.foodAt = new int[size + 1][size + 1];
+            this.x = scenario.insectX.clone();
+            this.y = scenario.insectY.clone();
+            this.eaten = new long[scenario.insects];
+            for (int i = 0; i < scenario.insects; i++) {
+                insectAt[x[i]][y[i]] = i + 1;
+            }
+            for (int i = 0; i < scenario.food; i++) {
+                hasFood[scenario.foodX[i]][scenario.foodY[i]] = true;
+                foodAt[scenario.foodX[i]][scenario.foodY[i]] = scenario.amounts[i];
+            }
+        }
+
+        /**
+         * here we run the ticks and write the state of every insect as "--ticks" does
+         * @param scenario - scenario of the swarm mode
+         * @param ticks - number of ticks
+         * @param delay - ticks before eaten food grows again, 0 if it never does
+         * @param percent - percent of eaten food, which grows again
+         * @return expected output
+         */
+        static String run(Scenario scenario, int ticks, int delay, int percent) {
+            TickModel model = new TickModel(scenario, delay, percent);
+            for (int i = 0; i < ticks; i++) {
+                model.tick();
+            }
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < scenario.insects; i++) {
+                text.append(scenario.ids[i]).append(' ').append(COLORS[scenario.colors[i]]).append(' ')
+                        .append(TYPES[scenario.types[i]]).append(' ').append(model.x[i]).append(' ')
+                        .append(model.y[i]).append(' ').append(model.eaten[i]).append(SEPARATOR);
+            }
+            return text.toString();
+        }
+
+        /**
+         * move every insect once, then let due food grow again
+         */
+        private void tick() {
+            for (int i = 0; i < scenario.insects; i++) {
+                move(i);
+            }
+            tick++;
+            while (!queue.isEmpty() && queue.get(0)[0] <= tick) {
+                int[] entry = queue.remove(0);
+                int fx = entry[1];
+                int fy = entry[2];
+                if (insectAt[fx][fy] == 0 && !hasFood[fx][fy]) {
+                    hasFood[fx][fy] = true;
+                    foodAt[fx][fy] = entry[3];
+                } else {
+                    queue.add(new int[] {tick + delay, fx, fy, entry[3]});
+                }
+            }
+        }
+
+        /**
+         * one insect chooses its direction, eats along it and lands
+         * @param id - index of the insect
+         */
+        private void move(int id) {
+            final int hundred = 100;
+            int type = scenario.types[id];
+            int stride = STRIDES[type];
+            int[] best = STEPS[DIRECTIONS[type][0]];
+            int maxScore = 0;
+            for (int direction : DIRECTIONS[type]) {
+                int dx = STEPS[direction][0] * stride;
+                int dy = STEPS[direction][1] * stride;
+                int score = 0;
+                for (int cx = x[id] + dx, cy = y[id] + dy; inside(cx, cy); cx += dx, cy += dy) {
+                    score += foodAt[cx][cy];
+                }
+                if (score > maxScore) {
+                    maxScore = score;
+                    best = STEPS[direction];
+                }
+            }
+            int dx = best[0] * stride;
+            int dy = best[1] * stride;
+            int cx = x[id];
+            int cy = y[id];
+            int food = 0;
+            while (inside(cx + dx, cy + dy)) {
+                int nx = cx + dx;
+                int ny = cy + dy;
+                if (hasFood[nx][ny]) {
+                    food += foodAt[nx][ny];
+                    if (delay > 0) {
+                        queue.add(new int[] {tick + delay, nx, ny, (int) ((long) foodAt[nx][ny] * percent / hundred)});
+                    }
+                    hasFood[nx][ny] = false;
+                    foodAt[nx][ny] = 0;
+                }
+                int other = insectAt[nx][ny];
+                if (other != 0 && scenario.colors[other - 1] != scenario.colors[id]) {
+                    break;
+                }
+                cx = nx;
+                cy = ny;
+            }
+            while ((cx != x[id] || cy != y[id]) && (insectAt[cx][cy] != 0 || hasFood[cx][cy])) {
+                cx -= dx;
+                cy -= dy;
+            }
+            insectAt[x[id]][y[id]] = 0;
+            insectAt[cx][cy] = id + 1;
+            x[id] = cx;
+            y[id] = cy;
+            eaten[id] += food;
+        }
+
+        /**
+         * check that a cell is on the board
+         * @param cx first coordinate of the cell
+         * @param cy second coordinate of the cell
+         * @return true if the cell is on the board
+         */
+        private boolean inside(int cx, int cy) {
+            return cx >= 1 && cy >= 1 && cx <= size && cy <= size;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * JournalTest records a run of a random board, rewinds the board to some insects and
+ * simulates the rest again with playFrom, the results and the new records must be the ones
+ * of the plain run. It also replays the journal on a fresh board, and checks that
+ * SpeculativeEngine records the same journal as the sequential loop
+ */
+public class JournalTest {
+    private static final int SIZE = 30;
+    private static final int INSECTS = 80;
+    private static final int FOOD = 300;
+    private static final long SEED = 19;
+    private static final int RING = 1 << 16;
+    private static final int THREADS = 4;
+
+    private static int checks;
+    private static int failures;
+
+    /**
+     * constructor is private, the test has only main
+     */
+    private JournalTest() {
+    }
+
+    /**
+     * run all checks, the exit code is 1 if any of them fails
+     * @param args - not used
+     * @throws IOException if a writer fails
+     */
+    public static void main(String[] args) throws IOException {
+        ByteArrayOutputStream plainOutput = new ByteArrayOutputStream();
+        ResultWriter plainWriter = writer(plainOutput);
+        Main.playFrom(board(), 0, INSECTS, false, plainWriter);
+        plainWriter.flush();
+        String[] plain = plainOutput.toString("UTF-8").split("\n");
+        check(plain.length == INSECTS, INSECTS + " results, got " + plain.length);
+
+        Board board = board();
+        MutationJournal journal = new MutationJournal(RING);
+        board.setJournal(journal);
+        check(results(board, 0).equals(lines(plain, 0, INSECTS)), "journaled run equals the plain run");
+        long[] records = records(journal);
+
+        for (int k : new int[] {0, 1, INSECTS / 2, INSECTS - 1}) {
+            JournalCursor cursor = JournalCursor.atEnd(board, journal, false);
+            check(cursor.rewindTo(k), "rewind to insect " + k);
+            cursor.truncate();
+            check(results(board, k).equals(lines(plain, k, INSECTS)), "results after a rewind to insect " + k);
+            check(Arrays.equals(records(journal), records), "records after a rewind to insect " + k);
+        }
+
+        final int middle = INSECTS / 3;
+        Board fresh = board();
+        JournalCursor cursor = JournalCursor.atStart(fresh, journal, false);
+        ByteArrayOutputStream replayOutput = new ByteArrayOutputStream();
+        ResultWriter replayWriter = writer(replayOutput);
+        check(cursor.replayTo(middle, replayWriter), "replay to insect " + middle);
+        replayWriter.flush();
+        check(replayOutput.toString("UTF-8").equals(lines(plain, 0, middle)), "results before insect " + middle);
+        cursor.replayAll(replayWriter);
+        replayWriter.flush();
+        check(replayOutput.toString("UTF-8").equals(lines(plain, 0, INSECTS)), "replay of the whole journal");
+        check(cursor.getPosition() == journal.getEnd(), "cursor at the end after the replay");
+        check(!cursor.rewindTo(INSECTS), "no move of insect " + INSECTS);
+        check(cursor.getPosition() == 0 && results(fresh, 0).equals(lines(plain, 0, INSECTS)), "board at the start after a rewind past the first record");
+
+        Board speculative = board();
+        MutationJournal speculativeJournal = new MutationJournal(RING);
+        speculative.setJournal(speculativeJournal);
+        ForkJoinPool pool = new ForkJoinPool(THREADS);
+        new SpeculativeEngine(pool).run(speculative, INSECTS, new Direction[INSECTS], new int[INSECTS]);
+        pool.shutdown();
+        check(Arrays.equals(records(speculativeJournal), records), "SpeculativeEngine records the sequential journal");
+
+        System.out.println("JournalTest: " + checks + " checks, " + failures + " failures");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * here we fill a new board with insects and food on random distinct cells, one food point
+     * of twenty is negative
+     * @return board
+     */
+    private static Board board() {
+        final int maxFood = 100;
+        final int percent = 100;
+        final int negative = 5;
+        Random random = new Random(SEED);
+        Board board = new Board(SIZE, INSECTS, FOOD);
+        int[] cells = new int[SIZE * SIZE];
+        for (int i = 0; i < cells.length; i++) {
+            int j = random.nextInt(i + 1);
+            cells[i] = cells[j];
+            cells[j] = i;
+        }
+        InsectColor[] colors = InsectColor.values();
+        InsectType[] types = InsectType.values();
+        for (int i = 0; i < INSECTS; i++) {
+            board.addInsect(1 + cells[i] / SIZE, 1 + cells[i] % SIZE, colors[i % colors.length], types[random.nextInt(types.length)]);
+        }
+        for (int i = INSECTS; i < INSECTS + FOOD; i++) {
+            int value = 1 + random.nextInt(maxFood);
+            board.addFood(1 + cells[i] / SIZE, 1 + cells[i] % SIZE, random.nextInt(percent) < negative ? -value : value);
+        }
+        return board;
+    }
+
+    /**
+     * simulate the insects of a board from a given id
+     * @param board - our board
+     * @param from - id of the first insect to move
+     * @return results as text
+     * @throws IOException if the writer fails
+     */
+    private static String results(Board board, int from) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ResultWriter writer = writer(output);
+        Main.playFrom(board, from, INSECTS, false, writer);
+        writer.flush();
+        return output.toString("UTF-8");
+    }
+
+    /**
+     * results of some insects in the plain run
+     * @param plain - lines of the plain run
+     * @param from - id of the first insect
+     * @param to - id after the last insect
+     * @return text of those lines
+     */
+    private static String lines(String[] plain, int from, int to) {
+        StringBuilder text = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            text.append(plain[i]).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * all longs of a journal, which are in memory
+     * @param journal - our journal
+     * @return copy of the records
+     */
+    private static long[] records(MutationJournal journal) {
+        long[] records = new long[(int) (journal.getEnd() - journal.getStart())];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = journal.get(journal.getStart() + i);
+        }
+        return records;
+    }
+
+    /**
+     * writer into memory
+     * @param output - where the text goes
+     * @return writer
+     */
+    private static ResultWriter writer(ByteArrayOutputStream output) {
+        final int bufferSize = 1 << 12;
+        return new ResultWriter(Channels.newChannel(output), ByteBuffer.allocate(bufferSize));
+    }
+
+    /**
+     * count a check and report it if it fails
+     * @param passed - result of the check
+     * @param what - what was expected
+     */
+    private static void check(boolean passed, String what) {
+        checks++;
+        if (!passed) {
+            failures++;
+            System.out.println("FAILED " + what);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * SimulationTest checks the Simulation API: a Scenario must give the same results or the
+ * same message as its text, a null color or type is rejected as an invalid one, and one
+ * context gives the same results as a new one after any number of scenarios
+ */
+public class SimulationTest {
+    private static final long SEED = 25;
+    private static final int SCENARIOS = 2000;
+    private static final int KINDS = 12;
+
+    private static int checks;
+    private static int failures;
+
+    /**
+     * constructor is private, the test has only main
+     */
+    private SimulationTest() {
+    }
+
+    /**
+     * run all checks, the exit code is 1 if any of them fails
+     * @param args - not used
+     */
+    public static void main(String[] args) {
+        messages();
+        Random random = new Random(SEED);
+        Simulation.Context context = Simulation.newContext();
+        for (int i = 0; i < SCENARIOS; i++) {
+            StringBuilder text = new StringBuilder();
+            Simulation.Scenario scenario = fill(random, random.nextInt(KINDS), text);
+            String fromText = describe(Simulation.run(buffer(text.toString()), context));
+            String fromScenario = describe(Simulation.run(scenario, context));
+            check(fromScenario.equals(fromText), "scenario " + i + ": " + fromScenario + " from values, "
+                    + fromText + " from text");
+            if (i % 10 == 0) {
+                String fresh = describe(Simulation.run(scenario, Simulation.newContext()));
+                check(fresh.equals(fromScenario), "scenario " + i + " with a new context: " + fresh);
+            }
+            if (i % 100 == 0) {
+                context.reset();
+            }
+        }
+        System.out.println("SimulationTest: " + checks + " checks, " + failures + " failures");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * messages of the checks of a scenario, in the order in which input.txt is checked
+     */
+    private static void messages() {
+        Simulation.Context context = Simulation.newContext();
+        expect(new Simulation.Scenario(3).addInsect(InsectColor.RED, InsectType.ANT, 1, 1).addFood(1, 2, 2),
+                "Invalid board size", context);
+        expect(new Simulation.Scenario(10).addFood(1, 2, 2), "Invalid number of insects", context);
+        expect(new Simulation.Scenario(10).addInsect(InsectColor.RED, InsectType.ANT, 1, 1),
+                "Invalid number of food points", context);
+        expect(new Simulation.Scenario(10).addInsect(null, InsectType.ANT, 11, 1).addFood(1, 2, 2),
+                "Invalid entity position", context);
+        expect(new Simulation.Scenario(10).addInsect(null, null, 1, 1).addFood(1, 2, 2),
+                "Invalid insect color", context);
+        expect(new Simulation.Scenario(10).addInsect(InsectColor.RED, null, 1, 1).addFood(1, 2, 2),
+                "Invalid insect type", context);
+        expect(new Simulation.Scenario(10).addInsect(InsectColor.RED, InsectType.ANT, 1, 1)
+                .addInsect(InsectColor.RED, InsectType.ANT, 1, 1).addFood(1, 2, 2), "Duplicate insects", context);
+        expect(new Simulation.Scenario(10).addInsect(InsectColor.RED, InsectType.ANT, 1, 1)
+                .addInsect(InsectColor.RED, InsectType.SPIDER, 1, 1).addFood(1, 2, 2),
+                "Two entities in the same position", context);
+        expect(new Simulation.Scenario(10).addInsect(InsectColor.RED, InsectType.ANT, 1, 1).addFood(1, 1, 1),
+                "Two entities in the same position", context);
+        Simulation.Results results = Simulation.run(new Simulation.Scenario(10)
+                .addInsect(InsectColor.RED, InsectType.BUTTERFLY, 5, 5).addFood(3, 5, 8), context);
+        check(results.isValid() && results.size() == 1 && results.getDirection(0) == Direction.E
+                && results.getEatenFood(0) == 3, "valid results after errors, got " + describe(results));
+    }
+
+    /**
+     * simulate a scenario and check the message of its exception
+     * @param scenario - scenario with a mistake
+     * @param message - expected message
+     * @param context - context of the test
+     */
+    private static void expect(Simulation.Scenario scenario, String message, Simulation.Context context) {
+        Simulation.Results results = Simulation.run(scenario, context);
+        check(!results.isValid() && message.equals(results.getError()), message + ", got " + describe(results));
+    }
+
+    /**
+     * fill a scenario with random insects and food points, maybe with one mistake
+     * @param random - source of the scenario
+     * @param kind - 0 to 2 for a valid scenario, or a kind of mistake
+     * @param text - here we write the text of the same scenario
+     * @return scenario
+     */
+    private static Simulation.Scenario fill(Random random, int kind, StringBuilder text) {
+        final int smallest = 4;
+        final int sizes = 30;
+        final int maxFood = 200;
+        final int amounts = 1000;
+        final int badSize = 3;
+        final int invalidColor = 4;
+        final int invalidType = 5;
+        final int outside = 6;
+        final int duplicate = 7;
+        final int samePosition = 8;
+        final int tooManyInsects = 9;
+        final int noFood = 10;
+        final int extremes = 11;
+        int insects = kind == tooManyInsects ? Main.MAX_INSECTS + 1 : 1 + random.nextInt(Main.MAX_INSECTS);
+        int size = smallest + random.nextInt(sizes);
+        if (size * size <= insects) {
+            size++;
+        }
+        int declared = kind != badSize ? size : random.nextBoolean() ? smallest - 1 : Main.MAX_BOARD + 1;
+        Simulation.Scenario scenario = new Simulation.Scenario(declared);
+        InsectColor[] colors = InsectColor.values();
+        InsectType[] types = InsectType.values();
+        int food = kind == noFood ? 0 : 1 + random.nextInt(Math.min(maxFood, size * size - insects));
+        int[] pairs = permutation(random, colors.length * types.length);
+        int[] cells = permutation(random, size * size);
+        int broken = random.nextInt(insects + food);
+        text.append(declared).append('\n').append(insects).append('\n').append(food).append('\n');
+        for (int i = 0; i < insects; i++) {
+            int pair = pairs[i % pairs.length];
+            InsectColor color = colors[pair / types.length];
+            InsectType type = types[pair % types.length];
+            int cell = cells[i];
+            if (i == broken && kind == duplicate && i > 0) {
+                color = colors[pairs[0] / types.length];
+                type = types[pairs[0] % types.length];
+            }
+            if (i == broken && kind == samePosition && i > 0) {
+                cell = cells[0];
+            }
+            int x = 1 + cell / size;
+            int y = 1 + cell % size;
+            if (i == broken && kind == outside) {
+                x = random.nextBoolean() ? 0 : size + 1;
+            }
+            boolean noColor = i == broken && kind == invalidColor;
+            boolean noType = i == broken && kind == invalidType;
+            scenario.addInsect(noColor ? null : color, noType ? null : type, x, y);
+            text.append(noColor ? "Purple" : color.toString()).append(' ')
+                    .append(noType ? "Beetle" : type.toString()).append(' ').append(x).append(' ').append(y).append('\n');
+        }
+        for (int i = 0; i < food; i++) {
+            int cell = cells[insects + i];
+            if (insects + i == broken && kind == samePosition) {
+                cell = cells[random.nextInt(insects + i)];
+            }
+            int x = 1 + cell / size;
+            int y = 1 + cell % size;
+            if (insects + i == broken && kind == outside) {
+                y = random.nextBoolean() ? 0 : size + 1;
+            }
+            int amount = kind == extremes ? random.nextInt() : 1 + random.nextInt(amounts);
+            scenario.addFood(amount, x, y);
+            text.append(amount).append(' ').append(x).append(' ').append(y).append('\n');
+        }
+        return scenario;
+    }
+
+    /**
+     * a random permutation of numbers from 0
+     */
+    private static int[] permutation(Random random, int count) {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            int j = random.nextInt(i + 1);
+            values[i] = values[j];
+            values[j] = i;
+        }
+        return values;
+    }
+
+    /**
+     * text of a scenario in a buffer
+     */
+    private static ByteBuffer buffer(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * results as lines of output.txt
+     */
+    private static String describe(Simulation.Results results) {
+        if (!results.isValid()) {
+            return results.getError();
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < results.size(); i++) {
+            text.append(results.getColor(i)).append(' ').append(results.getType(i)).append(' ')
+                    .append(results.getDirection(i)).append(' ').append(results.getEatenFood(i)).append(';');
+        }
+        return text.toString();
+    }
+
+    /**
+     * count a check and report it if it fails
+     * @param passed - result of the check
+     * @param what - what was expected
+     */
+    private static void check(boolean passed, String what) {
+        checks++;
+        if (!passed) {
+            failures++;
+            System.out.println("FAILED " + what);
+        }
+    }
+}
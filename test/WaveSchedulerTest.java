@@ -0,0 +1,79 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * WaveSchedulerTest checks the plan of a small known dependency chain of spiders on a 10x10
+ * board, and that running the plan gives the results of the sequential run.
+ * Spiders at (1, 1) and (1, 2) do not share a cell of their diagonals, so both are in wave 1,
+ * a spider at (3, 3) stands on the diagonal of the first one, so it is in wave 2, and a
+ * spider at (5, 1) stands on the anti-diagonal of the third one, so it is in wave 3
+ */
+public class WaveSchedulerTest {
+    private static final int SIZE = 10;
+    private static final int[][] SPIDERS = {{1, 1}, {1, 2}, {3, 3}, {5, 1}};
+    private static final int[][] FOOD = {{2, 2, 5}, {4, 4, 3}, {4, 2, 7}, {2, 3, 1}, {3, 4, 2}};
+
+    private static int checks;
+    private static int failures;
+
+    /**
+     * constructor is private, the test has only main
+     */
+    private WaveSchedulerTest() {
+    }
+
+    /**
+     * run all checks, the exit code is 1 if any of them fails
+     * @param args - not used
+     */
+    public static void main(String[] args) {
+        WaveScheduler scheduler = new WaveScheduler(ForkJoinPool.commonPool());
+        Board board = board();
+        double mean = scheduler.plan(board, SPIDERS.length);
+        check(scheduler.getWaveCount() == 3, "3 waves, got " + scheduler.getWaveCount());
+        check(scheduler.getWidestWave() == 2, "widest wave 2, got " + scheduler.getWidestWave());
+        check(mean == SPIDERS.length / 3.0, "mean 4/3, got " + mean);
+        check(scheduler.toString().equals("4 insects in 3 waves, widest 2, mean 1"), "summary " + scheduler);
+
+        Direction[] directions = new Direction[SPIDERS.length];
+        int[] eaten = new int[SPIDERS.length];
+        scheduler.run(board, directions, eaten);
+        Board sequential = board();
+        for (int i = 0; i < SPIDERS.length; i++) {
+            Insect insect = sequential.getInsect(i);
+            Direction direction = insect.getBestDirection(sequential, SIZE);
+            int food = insect.travelDirection(direction, sequential, SIZE);
+            check(direction == directions[i] && food == eaten[i], "insect " + i + ": " + direction + " " + food
+                    + " sequentially, " + directions[i] + " " + eaten[i] + " in waves");
+        }
+        System.out.println("WaveSchedulerTest: " + checks + " checks, " + failures + " failures");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * here we fill a new board with the spiders and the food
+     * @return board
+     */
+    private static Board board() {
+        Board board = new Board(SIZE, SPIDERS.length, FOOD.length);
+        for (int i = 0; i < SPIDERS.length; i++) {
+            board.addInsect(SPIDERS[i][0], SPIDERS[i][1], InsectColor.values()[i], InsectType.SPIDER);
+        }
+        for (int[] food : FOOD) {
+            board.addFood(food[0], food[1], food[2]);
+        }
+        return board;
+    }
+
+    /**
+     * count a check and report it if it fails
+     * @param passed - result of the check
+     * @param what - what was expected
+     */
+    private static void check(boolean passed, String what) {
+        checks++;
+        if (!passed) {
+            failures++;
+            System.out.println("FAILED " + what);
+        }
+    }
+}
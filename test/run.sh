@@ -0,0 +1,23 @@
+#!/bin/sh
+# tests of the program: every test/*Test.java is run by its main, and at last the differential
+# test against test/baseline/Main.java, the original program, see test/DifferentialTest.java.
+# Usage: test/run.sh [seed] [scenarios], seed and scenarios are the ones of the differential test,
+# classes and scenarios go to $BUILD, a new temporary directory by default
+set -e
+cd "$(dirname "$0")/.."
+build=${BUILD:-$(mktemp -d)}
+mkdir -p "$build/current" "$build/baseline" "$build/uncapped" "$build/test" "$build/work"
+javac -Xlint:all -Xlint:-serial -d "$build/current" *.java
+javac -nowarn -d "$build/baseline" test/baseline/Main.java
+sed -e 's/final int k16 = 16;/final int k16 = Integer.MAX_VALUE;/' \
+    -e 's/final int k200 = 200;/final int k200 = Integer.MAX_VALUE;/' \
+    -e 's/throw new DuplicateInsectException();//' test/baseline/Main.java > "$build/uncapped/Main.java"
+javac -nowarn -d "$build/uncapped" "$build/uncapped/Main.java"
+javac -Xlint:all,-auxiliaryclass -cp "$build/current" -d "$build/test" test/*.java
+for test in test/*Test.java; do
+    name=$(basename "$test" .java)
+    if [ "$name" != DifferentialTest ]; then
+        java -cp "$build/current:$build/test" "$name"
+    fi
+done
+java -cp "$build/current:$build/test" DifferentialTest "$build/baseline" "$build/uncapped" "$build/work" "$@"